@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks, writes the results as JSON and compares them with the results of an earlier run.
+ * <pre>
+ * java -cp target/benchmarks.jar de.ralleytn.simple.registry.BenchmarkRunner [baseline.json] [threshold in percent] [JMH options]
+ * </pre>
+ * Use {@code -} to skip the baseline or the threshold. All following arguments are passed to JMH, for instance {@code -wi 1 -i 3} for a quicker run.
+ * The results are written to {@code target/jmh-result.json} in the JMH format so that they can be used as the baseline of the next run.
+ * The comparison is written to {@code target/jmh-regressions.json}.
+ * A benchmark has regressed if its score (time per operation) is worse than the baseline by more than the threshold, 10% by default.
+ * The exit code is 1 if at least one benchmark has regressed.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class BenchmarkRunner {
+	
+	private static final Path RESULT_FILE = Paths.get("target", "jmh-result.json");
+	private static final Path REGRESSION_FILE = Paths.get("target", "jmh-regressions.json");
+	private static final Pattern BENCHMARK_PATTERN = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+	private static final Pattern PARAMS_PATTERN = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+	private static final Pattern PARAM_PATTERN = Pattern.compile("\"([^\"]+)\"\\s*:\\s*\"([^\"]*)\"");
+	private static final Pattern SCORE_PATTERN = Pattern.compile("\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-0-9.Ee]+|\"NaN\")");
+	
+	private BenchmarkRunner() {}
+	
+	/**
+	 * @param args optional path of the baseline, optional threshold in percent and options for JMH
+	 * @throws IOException if the results could not be read or written
+	 * @throws RunnerException if the benchmarks could not be run
+	 * @throws CommandLineOptionException if the options for JMH are invalid
+	 * @since 2.1.0
+	 */
+	public static final void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+		
+		Path baseline = args.length > 0 && !args[0].equals("-") ? Paths.get(args[0]) : null;
+		double threshold = args.length > 1 && !args[1].equals("-") ? Double.parseDouble(args[1]) : 10.0D;
+		Files.createDirectories(RESULT_FILE.getParent());
+		
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(Arrays.copyOfRange(args, Math.min(args.length, 2), args.length)))
+			.include(BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark")
+			.resultFormat(ResultFormatType.JSON)
+			.result(RESULT_FILE.toString())
+			.build();
+		
+		Collection<RunResult> results = new Runner(options).run();
+		Map<String, Double> scores = new TreeMap<>();
+		
+		for(RunResult result : results) {
+			
+			Map<String, String> params = new TreeMap<>();
+			
+			for(String key : result.getParams().getParamsKeys()) {
+				
+				params.put(key, result.getParams().getParam(key));
+			}
+			
+			scores.put(BenchmarkRunner.toId(result.getParams().getBenchmark(), params), result.getPrimaryResult().getScore());
+		}
+		
+		Map<String, Double> baselineScores = baseline != null && Files.exists(baseline) ? BenchmarkRunner.readScores(baseline) : new LinkedHashMap<>();
+		List<String> regressions = new ArrayList<>();
+		
+		try(Writer writer = Files.newBufferedWriter(REGRESSION_FILE, StandardCharsets.UTF_8)) {
+			
+			writer.write("{\n  \"baseline\": " + (baseline != null ? BenchmarkRunner.quote(baseline.toString()) : "null") + ",\n");
+			writer.write("  \"threshold\": " + threshold + ",\n");
+			writer.write("  \"benchmarks\": [");
+			boolean first = true;
+			
+			for(Map.Entry<String, Double> entry : scores.entrySet()) {
+				
+				Double before = baselineScores.get(entry.getKey());
+				double change = before != null && before > 0 ? (entry.getValue() - before) / before * 100.0D : 0.0D;
+				boolean regressed = before != null && change > threshold;
+				
+				if(regressed) {
+					
+					regressions.add(entry.getKey());
+				}
+				
+				writer.write(first ? "\n" : ",\n");
+				writer.write("    {\"benchmark\": " + BenchmarkRunner.quote(entry.getKey()));
+				writer.write(", \"score\": " + entry.getValue());
+				writer.write(", \"baseline\": " + before);
+				writer.write(", \"change\": " + String.format(Locale.ROOT, "%.2f", change));
+				writer.write(", \"regressed\": " + regressed + "}");
+				first = false;
+			}
+			
+			writer.write("\n  ],\n  \"regressions\": " + regressions.size() + "\n}\n");
+		}
+		
+		if(!regressions.isEmpty()) {
+			
+			System.err.println("Regressions: " + regressions);
+			System.exit(1);
+		}
+	}
+	
+	private static final Map<String, Double> readScores(Path file) throws IOException {
+		
+		// the file is always written by JMH, so a full JSON parser is not needed
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		Map<String, Double> scores = new LinkedHashMap<>();
+		Matcher benchmark = BENCHMARK_PATTERN.matcher(json);
+		List<int[]> ranges = new ArrayList<>();
+		
+		while(benchmark.find()) {
+			
+			ranges.add(new int[] {benchmark.start(), benchmark.end()});
+		}
+		
+		for(int index = 0; index < ranges.size(); index++) {
+			
+			int end = index + 1 < ranges.size() ? ranges.get(index + 1)[0] : json.length();
+			String entry = json.substring(ranges.get(index)[0], end);
+			Matcher name = BENCHMARK_PATTERN.matcher(entry);
+			Matcher score = SCORE_PATTERN.matcher(entry);
+			
+			if(name.find() && score.find() && !score.group(1).startsWith("\"")) {
+				
+				Map<String, String> params = new TreeMap<>();
+				Matcher paramsBlock = PARAMS_PATTERN.matcher(entry);
+				
+				if(paramsBlock.find()) {
+					
+					Matcher param = PARAM_PATTERN.matcher(paramsBlock.group(1));
+					
+					while(param.find()) {
+						
+						params.put(param.group(1), param.group(2));
+					}
+				}
+				
+				scores.put(BenchmarkRunner.toId(name.group(1), params), Double.parseDouble(score.group(1)));
+			}
+		}
+		
+		return scores;
+	}
+	
+	private static final String toId(String benchmark, Map<String, String> params) {
+		
+		return params.isEmpty() ? benchmark : benchmark + params.toString();
+	}
+	
+	private static final String quote(String string) {
+		
+		return '"' + string.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+}
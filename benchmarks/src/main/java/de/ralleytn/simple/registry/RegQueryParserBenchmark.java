@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the streaming {@code reg query} parser with the line based parsing that was used up to version 2.0.0.
+ * Both read the output of a key with 10000 values and create the same {@linkplain RegistryKey}.
+ * Run with {@code -prof gc} to compare the allocation rate.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegQueryParserBenchmark {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@Param("10000")
+	private int values;
+	
+	private String output;
+	private ProcessRegistryBackend backend;
+	
+	@Setup
+	public void setUp() {
+		
+		StringBuilder builder = new StringBuilder();
+		builder.append("\r\n").append(KEY).append("\r\n");
+		
+		for(int index = 0; index < this.values; index++) {
+			
+			switch(index % 4) {
+				
+				case 0: builder.append("    MyString").append(index).append("    REG_SZ    Hello World! This is value number ").append(index).append("\r\n"); break;
+				case 1: builder.append("    MyNumber").append(index).append("    REG_DWORD    0x").append(Integer.toHexString(index)).append("\r\n"); break;
+				case 2: builder.append("    MyBinary").append(index).append("    REG_BINARY    00FF7F80A0B0C0D0E0F0").append("\r\n"); break;
+				default: builder.append("    MyList").append(index).append("    REG_MULTI_SZ    A\\0BC\\0DEF").append("\r\n"); break;
+			}
+		}
+		
+		builder.append("\r\n");
+		
+		for(int index = 0; index < 100; index++) {
+			
+			builder.append(KEY).append("\\Child").append(index).append("\r\n");
+		}
+		
+		this.output = builder.toString();
+		this.backend = new ProcessRegistryBackend(command -> this.output);
+	}
+	
+	@Benchmark
+	public RegistryKey streaming() throws IOException {
+		
+		return this.backend.getKey(KEY, false);
+	}
+	
+	@Benchmark
+	public RegistryKey lineBased() throws IOException {
+		
+		String result = RegQueryParserBenchmark.exec(this.output);
+		List<String> childs = new ArrayList<>();
+		List<RegistryValue> values = new ArrayList<>();
+		
+		for(String line : result.split("\n")) {
+			
+			if(line.startsWith(" >")) {
+				
+				String[] valueAttribs = line.substring(2).split("\\|");
+				values.add(new RegistryValue(valueAttribs[0], RegistryValue.Type.getTypeByName(valueAttribs[1]), valueAttribs.length == 2 ? null : valueAttribs[2], KEY, this.backend));
+				
+			} else if(!line.equals(KEY)){
+				
+				childs.add(line);
+			}
+		}
+		
+		return new RegistryKey(KEY, values, null, childs, this.backend);
+	}
+	
+	private static final String exec(String output) throws IOException {
+		
+		// the output processing of "Registry.exec" in version 2.0.0
+		StringBuilder builder = new StringBuilder();
+		boolean first = true;
+		
+		try(BufferedReader reader = new BufferedReader(new StringReader(output))) {
+			
+			String line = null;
+			
+			while((line = reader.readLine()) != null) {
+				
+				if(!line.trim().isEmpty()) {
+					
+					if(first) {
+						
+						first = false;
+						
+					} else {
+						
+						builder.append('\n');
+					}
+					
+					if(line.startsWith("    ")) {
+						
+						line = " >" + line.substring(4).replace("    ", "|");
+					}
+					
+					builder.append(line);
+				}
+			}
+		}
+		
+		return builder.toString();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups and {@linkplain RegistryKey#toString()} on a large key.
+ * The key is read from a fixture through a fake executor, so no registry is needed.
+ * The names that are looked up differ in case from the ones in the key and are spread over the whole key.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryKeyBenchmark {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	private static final int LOOKUPS = 64;
+	
+	@Param({"100", "10000"})
+	private int size;
+	
+	private RegistryKey key;
+	private String[] valueNames;
+	private String[] childNames;
+	private int next;
+	
+	@Setup
+	public void setUp() throws IOException {
+		
+		StringBuilder builder = new StringBuilder();
+		builder.append("\r\n").append(KEY).append("\r\n");
+		
+		for(int index = 0; index < this.size; index++) {
+			
+			builder.append("    MyValue").append(index).append("    REG_SZ    Hello World! This is value number ").append(index).append("\r\n");
+		}
+		
+		builder.append("\r\n");
+		
+		for(int index = 0; index < this.size; index++) {
+			
+			builder.append(KEY).append("\\MyChild").append(index).append("\r\n");
+		}
+		
+		String output = builder.toString();
+		
+		// a lazy key, so that the childs are not loaded by the lookup
+		this.key = new RegistryKey(KEY, new ProcessRegistryBackend(command -> output));
+		this.key.getValues();
+		this.valueNames = new String[LOOKUPS];
+		this.childNames = new String[LOOKUPS];
+		
+		for(int index = 0; index < LOOKUPS; index++) {
+			
+			int number = (int)((long)index * (this.size - 1) / (LOOKUPS - 1));
+			this.valueNames[index] = "MYVALUE" + number;
+			this.childNames[index] = "mychild" + number;
+		}
+	}
+	
+	@Benchmark
+	public RegistryValue getValueByName() {
+		
+		this.next = (this.next + 1) % LOOKUPS;
+		return this.key.getValueByName(this.valueNames[this.next]);
+	}
+	
+	@Benchmark
+	public RegistryKey getChild() throws IOException {
+		
+		this.next = (this.next + 1) % LOOKUPS;
+		return this.key.getChild(this.childNames[this.next]);
+	}
+	
+	@Benchmark
+	public String keyToString() {
+		
+		return this.key.toString();
+	}
+}
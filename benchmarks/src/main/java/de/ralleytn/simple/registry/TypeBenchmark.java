@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long {@linkplain RegistryValue.Type#parseValue(String)} takes for every data type.
+ * The raw values look like the ones printed by {@code reg query}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeBenchmark {
+	
+	@Param({"REG_SZ", "REG_EXPAND_SZ", "REG_DWORD", "REG_QWORD", "REG_BINARY", "REG_MULTI_SZ", "REG_NONE", "REG_FULL_RESOURCE_DESCRIPTOR"})
+	private String type;
+	
+	private RegistryValue.Type valueType;
+	private String rawValue;
+	
+	@Setup
+	public void setUp() {
+		
+		this.valueType = RegistryValue.Type.getTypeByName(this.type);
+		
+		switch(this.valueType) {
+			
+			case REG_SZ: this.rawValue = "C:\\Program Files\\MyExampleSoftware\\MyExampleSoftware.exe"; break;
+			case REG_EXPAND_SZ: this.rawValue = "%SystemRoot%\\system32\\MyExampleSoftware;%PATH%"; break;
+			case REG_DWORD: this.rawValue = "0x8000002a"; break;
+			case REG_QWORD: this.rawValue = "0x100000010"; break;
+			case REG_MULTI_SZ: this.rawValue = "First\\0Second\\0Third\\0Fourth"; break;
+			default: this.rawValue = "000102030405060708090A0B0C0D0E0F101112131415161718191A1B1C1D1E1F"; break;
+		}
+	}
+	
+	@Benchmark
+	public Object parseValue() {
+		
+		return this.valueType.parseValue(this.rawValue);
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the operations of the {@linkplain Registry} class on an executor so that the calling thread does not have to wait for the "reg" commands.
+ * Every method returns a {@linkplain CompletableFuture} that is completed with the result of the operation.
+ * If the future is cancelled or completed in any other way before the operation has finished,
+ * the thread that runs the operation is interrupted and the processes that have been started for it are destroyed.
+ * This also applies to {@linkplain CompletableFuture#orTimeout(long, TimeUnit)}, so a timeout can be set for every call:
+ * <pre>
+ * AsyncRegistry registry = new AsyncRegistry();
+ * registry.getKey(Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware")
+ *         .orTimeout(5, TimeUnit.SECONDS)
+ *         .thenAccept(key -&gt; System.out.println(key.getValueByName("MyValue").getValue()));
+ * </pre>
+ * Only the future that is returned by this class stops the operation; futures that are derived from it do not.
+ * Async registries are thread safe.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class AsyncRegistry {
+	
+	private static final ThreadLocal<Call<?>> CALL = new ThreadLocal<>();
+	private static volatile ExecutorService defaultExecutor;
+	
+	private final Executor executor;
+	private final long timeout;
+	
+	/**
+	 * Runs the operations on a shared pool of daemon threads which grows as needed and has no timeout.
+	 * @since 2.1.0
+	 */
+	public AsyncRegistry() {
+		
+		this(AsyncRegistry.getDefaultExecutor(), 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param executor the executor on which the operations are run
+	 * @since 2.1.0
+	 */
+	public AsyncRegistry(Executor executor) {
+		
+		this(executor, 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param executor the executor on which the operations are run
+	 * @param timeout time after which an operation is stopped and its future completed with a {@linkplain java.util.concurrent.TimeoutException}; 0 for no timeout
+	 * @param unit unit of the timeout
+	 * @since 2.1.0
+	 */
+	public AsyncRegistry(Executor executor, long timeout, TimeUnit unit) {
+		
+		if(timeout < 0) {
+			
+			throw new IllegalArgumentException("The timeout must not be negative");
+		}
+		
+		this.executor = executor;
+		this.timeout = unit.toNanos(timeout);
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @return the key with the specified path
+	 * @since 2.1.0
+	 * @see Registry#getKey(String)
+	 */
+	public final CompletableFuture<RegistryKey> getKey(String path) {
+		
+		return this.submit(() -> Registry.getKey(path));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @return the value
+	 * @since 2.1.0
+	 * @see Registry#getValue(String, String)
+	 */
+	public final CompletableFuture<RegistryValue> getValue(String path, String name) {
+		
+		return this.submit(() -> Registry.getValue(path, name));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @return an immutable snapshot of the key
+	 * @since 2.1.0
+	 * @see Registry#snapshot(String)
+	 */
+	public final CompletableFuture<RegistrySnapshot> snapshot(String path) {
+		
+		return this.submit(() -> Registry.snapshot(path));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @return a future that is completed when the key has been added
+	 * @since 2.1.0
+	 * @see Registry#setKey(String)
+	 */
+	public final CompletableFuture<Void> setKey(String path) {
+		
+		return this.run(() -> Registry.setKey(path));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @return a future that is completed when the key has been deleted
+	 * @since 2.1.0
+	 * @see Registry#deleteKey(String)
+	 */
+	public final CompletableFuture<Void> deleteKey(String path) {
+		
+		return this.run(() -> Registry.deleteKey(path));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return a future that is completed when the value has been set
+	 * @since 2.1.0
+	 * @see Registry#setValue(String, String, RegistryValue.Type, char, String)
+	 */
+	public final CompletableFuture<Void> setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		return this.run(() -> Registry.setValue(path, name, type, seperator, rawValue));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return a future that is completed when the default value has been set
+	 * @since 2.1.0
+	 * @see Registry#setDeafultValue(String, RegistryValue.Type, char, String)
+	 */
+	public final CompletableFuture<Void> setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		return this.run(() -> Registry.setDeafultValue(path, type, seperator, rawValue));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @param name name of the value that should be deleted
+	 * @return a future that is completed when the value has been deleted
+	 * @since 2.1.0
+	 * @see Registry#deleteValue(String, String)
+	 */
+	public final CompletableFuture<Void> deleteValue(String path, String name) {
+		
+		return this.run(() -> Registry.deleteValue(path, name));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @return a future that is completed when the default value has been deleted
+	 * @since 2.1.0
+	 * @see Registry#deleteDefaultValue(String)
+	 */
+	public final CompletableFuture<Void> deleteDefaultValue(String path) {
+		
+		return this.run(() -> Registry.deleteDefaultValue(path));
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @return a future that is completed when the values have been deleted
+	 * @since 2.1.0
+	 * @see Registry#deleteAllValues(String)
+	 */
+	public final CompletableFuture<Void> deleteAllValues(String path) {
+		
+		return this.run(() -> Registry.deleteAllValues(path));
+	}
+	
+	/**
+	 * @param file file containing the data to import
+	 * @return a future that is completed when the file has been imported
+	 * @since 2.1.0
+	 * @see Registry#importFile(File)
+	 */
+	public final CompletableFuture<Void> importFile(File file) {
+		
+		return this.run(() -> Registry.importFile(file));
+	}
+	
+	/**
+	 * @param path the key that should be exported
+	 * @param exportFile the export target
+	 * @return a future that is completed when the key has been exported
+	 * @since 2.1.0
+	 * @see Registry#exportKey(String, File)
+	 */
+	public final CompletableFuture<Void> exportKey(String path, File exportFile) {
+		
+		return this.run(() -> Registry.exportKey(path, exportFile));
+	}
+	
+	/**
+	 * Makes a process stoppable by the operation that is running on the current thread.
+	 * Does nothing if the current thread is not running an operation of an async registry.
+	 * If the operation has already been stopped, the process is destroyed immediately.
+	 * @param process the process
+	 */
+	static final void attach(Process process) {
+		
+		Call<?> call = CALL.get();
+		
+		if(call != null) {
+			
+			call.processes.add(process);
+			
+			if(call.isDone()) {
+				
+				AsyncRegistry.destroy(process);
+			}
+		}
+	}
+	
+	/**
+	 * Must be called when a process that has been attached is no longer used for the operation.
+	 * @param process the process
+	 */
+	static final void detach(Process process) {
+		
+		Call<?> call = CALL.get();
+		
+		if(call != null) {
+			
+			call.processes.remove(process);
+		}
+	}
+	
+	private final CompletableFuture<Void> run(Action action) {
+		
+		return this.submit(() -> {
+			
+			action.run();
+			return null;
+		});
+	}
+	
+	private final <T>CompletableFuture<T> submit(Operation<T> operation) {
+		
+		Call<T> call = new Call<>(operation);
+		
+		// whatever completes the future first stops the operation if it is still running
+		call.whenComplete((result, exception) -> call.stop());
+		
+		if(this.timeout > 0) {
+			
+			call.orTimeout(this.timeout, TimeUnit.NANOSECONDS);
+		}
+		
+		try {
+			
+			this.executor.execute(call);
+			
+		} catch(RuntimeException exception) {
+			
+			call.completeExceptionally(exception);
+		}
+		
+		return call;
+	}
+	
+	private static final void destroy(Process process) {
+		
+		// the command runs in a child of the shell, which would otherwise keep the output open
+		process.descendants().forEach(ProcessHandle::destroyForcibly);
+		process.destroyForcibly();
+	}
+	
+	private static final ExecutorService getDefaultExecutor() {
+		
+		if(defaultExecutor == null) {
+			
+			synchronized(AsyncRegistry.class) {
+				
+				if(defaultExecutor == null) {
+					
+					AtomicInteger count = new AtomicInteger();
+					defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+						
+						Thread thread = new Thread(runnable, "SimpleRegistry-Async-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+			}
+		}
+		
+		return defaultExecutor;
+	}
+	
+	@FunctionalInterface
+	private static interface Operation<T> {
+		
+		T run() throws IOException;
+	}
+	
+	@FunctionalInterface
+	private static interface Action {
+		
+		void run() throws IOException;
+	}
+	
+	private static final class Call<T> extends CompletableFuture<T> implements Runnable {
+		
+		private final Operation<T> operation;
+		private final Set<Process> processes;
+		private Thread thread;
+		private boolean finished;
+		
+		private Call(Operation<T> operation) {
+			
+			this.operation = operation;
+			this.processes = ConcurrentHashMap.newKeySet();
+		}
+		
+		@Override
+		public final void run() {
+			
+			synchronized(this) {
+				
+				if(this.isDone()) {
+					
+					return;
+				}
+				
+				this.thread = Thread.currentThread();
+			}
+			
+			CALL.set(this);
+			
+			try {
+				
+				this.complete(this.operation.run());
+				
+			} catch(Throwable exception) {
+				
+				this.completeExceptionally(exception);
+				
+			} finally {
+				
+				CALL.remove();
+				
+				synchronized(this) {
+					
+					this.thread = null;
+					this.finished = true;
+				}
+				
+				// the interrupt was meant for the operation and not for the next task of the thread
+				Thread.interrupted();
+			}
+		}
+		
+		private final void stop() {
+			
+			synchronized(this) {
+				
+				if(this.finished || this.thread == null) {
+					
+					return;
+				}
+				
+				this.thread.interrupt();
+			}
+			
+			for(Process process : this.processes) {
+				
+				AsyncRegistry.destroy(process);
+			}
+		}
+	}
+}
@@ -0,0 +1,493 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache that sits in front of another engine.
+ * Keys and values that have been read are kept until they expire, are evicted because the cache is full or are changed through this engine.
+ * Writing a key discards the cached data of that key, its subkeys and its parent.
+ * Importing a file discards everything.
+ * Every read returns a copy of the cached data, so reloading a returned key or value never changes what other callers get.
+ * {@linkplain RegistryKey#reload()} and {@linkplain RegistryValue#reload()} always bypass the cache.
+ * <pre>
+ * Registry.setBackend(new CachingRegistry(Registry.getBackend()));
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class CachingRegistry implements RegistryBackend {
+	
+	private static final int DEFAULT_MAXIMUM_SIZE = 256;
+	private static final long DEFAULT_TIME_TO_LIVE = 30;
+	private static final char VALUE_SEPERATOR = '\0';
+	
+	private final RegistryBackend backend;
+	private final int maximumSize;
+	private final long timeToLive;
+	private final LinkedHashMap<String, Entry> entries;
+	private long generation;
+	private long hits;
+	private long misses;
+	private long evictions;
+	
+	/**
+	 * Creates a cache with room for 256 entries that expire after 30 seconds.
+	 * @param backend the engine that is being cached
+	 * @since 2.1.0
+	 */
+	public CachingRegistry(RegistryBackend backend) {
+		
+		this(backend, DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * @param backend the engine that is being cached
+	 * @param maximumSize maximum number of keys and values in the cache; the least recently used entry is evicted first
+	 * @param timeToLive how long an entry stays valid after it has been read; {@code 0} if entries should never expire
+	 * @param unit unit of {@code timeToLive}
+	 * @since 2.1.0
+	 */
+	public CachingRegistry(RegistryBackend backend, int maximumSize, long timeToLive, TimeUnit unit) {
+		
+		if(backend == null) {
+			
+			throw new NullPointerException("backend");
+		}
+		
+		if(maximumSize < 1) {
+			
+			throw new IllegalArgumentException("maximumSize < 1");
+		}
+		
+		if(timeToLive < 0) {
+			
+			throw new IllegalArgumentException("timeToLive < 0");
+		}
+		
+		this.backend = backend;
+		this.maximumSize = maximumSize;
+		this.timeToLive = unit.toNanos(timeToLive);
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75F, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected final boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				
+				if(this.size() > CachingRegistry.this.maximumSize) {
+					
+					CachingRegistry.this.evictions++;
+					return true;
+				}
+				
+				return false;
+			}
+		};
+	}
+	
+	@Override
+	public final boolean isSupported() {
+		
+		return this.backend.isSupported();
+	}
+	
+	@Override
+	public final RegistryKey getKey(String path) throws IOException {
+		
+		String cacheKey = Registry.toLookupKey(path);
+		Object cached;
+		long generation;
+		
+		synchronized(this.entries) {
+			
+			cached = this.lookup(cacheKey);
+			generation = this.generation;
+		}
+		
+		CachingRegistry.recordCacheAccess(path, cached != null);
+		
+		if(cached != null) {
+			
+			return ((RegistryKey)cached).copy();
+		}
+		
+		RegistryKey key = this.backend.getKey(path);
+		
+		if(key != null) {
+			
+			key.setBackend(this);
+			this.store(cacheKey, key.copy(), generation);
+		}
+		
+		return key;
+	}
+	
+	@Override
+	public final RegistryValue getValue(String path, String name) throws IOException {
+		
+		String keyCacheKey = Registry.toLookupKey(path);
+		String cacheKey = keyCacheKey + VALUE_SEPERATOR + NameIndex.fold(name);
+		Object cached = null;
+		long generation;
+		
+		synchronized(this.entries) {
+			
+			Entry keyEntry = this.entries.get(keyCacheKey);
+			
+			if(keyEntry != null && !this.isExpired(keyEntry)) {
+				
+				cached = ((RegistryKey)keyEntry.data).getValueByName(name);
+				
+				if(cached != null) {
+					
+					this.hits++;
+				}
+			}
+			
+			if(cached == null) {
+				
+				cached = this.lookup(cacheKey);
+			}
+			
+			generation = this.generation;
+		}
+		
+		CachingRegistry.recordCacheAccess(path, cached != null);
+		
+		if(cached != null) {
+			
+			return ((RegistryValue)cached).copy();
+		}
+		
+		RegistryValue value = this.backend.getValue(path, name);
+		
+		if(value != null) {
+			
+			value.setBackend(this);
+			this.store(cacheKey, value.copy(), generation);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public final RegistrySnapshot snapshot(String path) throws IOException {
+		
+		// a snapshot is a copy anyway
+		return this.backend.snapshot(path);
+	}
+	
+	@Override
+	public final void setKey(String path) throws IOException {
+		
+		try {
+			
+			this.backend.setKey(path);
+			
+		} finally {
+			
+			this.invalidateWithParent(path);
+		}
+	}
+	
+	@Override
+	public final void deleteKey(String path) throws IOException {
+		
+		try {
+			
+			this.backend.deleteKey(path);
+			
+		} finally {
+			
+			this.invalidateWithParent(path);
+		}
+	}
+	
+	@Override
+	public final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		try {
+			
+			this.backend.setValue(path, name, type, seperator, rawValue);
+			
+		} finally {
+			
+			// the key is created if it does not exist
+			this.invalidateWithParent(path);
+		}
+	}
+	
+	@Override
+	public final void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		try {
+			
+			this.backend.setDefaultValue(path, type, seperator, rawValue);
+			
+		} finally {
+			
+			this.invalidateWithParent(path);
+		}
+	}
+	
+	@Override
+	public final void deleteValue(String path, String name) throws IOException {
+		
+		try {
+			
+			this.backend.deleteValue(path, name);
+			
+		} finally {
+			
+			this.invalidate(path);
+		}
+	}
+	
+	@Override
+	public final void deleteDefaultValue(String path) throws IOException {
+		
+		try {
+			
+			this.backend.deleteDefaultValue(path);
+			
+		} finally {
+			
+			this.invalidate(path);
+		}
+	}
+	
+	@Override
+	public final void deleteAllValues(String path) throws IOException {
+		
+		try {
+			
+			this.backend.deleteAllValues(path);
+			
+		} finally {
+			
+			this.invalidate(path);
+		}
+	}
+	
+	@Override
+	public final void importFile(File file) throws IOException {
+		
+		try {
+			
+			this.backend.importFile(file);
+			
+		} finally {
+			
+			// there is no way to know which keys were affected without parsing the file
+			this.invalidateAll();
+		}
+	}
+	
+	@Override
+	public final void exportKey(String path, File exportFile) throws IOException {
+		
+		this.backend.exportKey(path, exportFile);
+	}
+	
+	/**
+	 * Discards the cached data of a key, its values and all of its subkeys.
+	 * @param path path of the key
+	 * @since 2.1.0
+	 */
+	@Override
+	public final void invalidate(String path) {
+		
+		String cacheKey = Registry.toLookupKey(path);
+		String subkeyPrefix = cacheKey + '\\';
+		String valuePrefix = cacheKey + VALUE_SEPERATOR;
+		
+		synchronized(this.entries) {
+			
+			this.generation++;
+			Iterator<String> iterator = this.entries.keySet().iterator();
+			
+			while(iterator.hasNext()) {
+				
+				String key = iterator.next();
+				
+				if(key.equals(cacheKey) || key.startsWith(subkeyPrefix) || key.startsWith(valuePrefix)) {
+					
+					iterator.remove();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Discards everything in the cache.
+	 * @since 2.1.0
+	 */
+	public final void invalidateAll() {
+		
+		synchronized(this.entries) {
+			
+			this.generation++;
+			this.entries.clear();
+		}
+	}
+	
+	/**
+	 * @return the engine that is being cached
+	 * @since 2.1.0
+	 */
+	public final RegistryBackend getBackend() {
+		
+		return this.backend;
+	}
+	
+	/**
+	 * @return number of keys and values that are currently in the cache, including expired ones that have not been evicted yet
+	 * @since 2.1.0
+	 */
+	public final int getSize() {
+		
+		synchronized(this.entries) {
+			
+			return this.entries.size();
+		}
+	}
+	
+	/**
+	 * @return how often a key or value was found in the cache
+	 * @since 2.1.0
+	 */
+	public final long getHitCount() {
+		
+		synchronized(this.entries) {
+			
+			return this.hits;
+		}
+	}
+	
+	/**
+	 * @return how often a key or value had to be read from the cached engine
+	 * @since 2.1.0
+	 */
+	public final long getMissCount() {
+		
+		synchronized(this.entries) {
+			
+			return this.misses;
+		}
+	}
+	
+	/**
+	 * @return how often an entry was removed because the cache was full or because it expired; invalidated entries are not counted
+	 * @since 2.1.0
+	 */
+	public final long getEvictionCount() {
+		
+		synchronized(this.entries) {
+			
+			return this.evictions;
+		}
+	}
+	
+	private static final void recordCacheAccess(String path, boolean hit) {
+		
+		RegistryMetrics metrics = Registry.getMetrics();
+		
+		if(metrics != RegistryMetrics.NONE) {
+			
+			metrics.recordCacheAccess(RegistryMetrics.Operation.QUERY, Registry.getHive(path), hit);
+		}
+	}
+	
+	private final Object lookup(String cacheKey) {
+		
+		Entry entry = this.entries.get(cacheKey);
+		
+		if(entry != null) {
+			
+			if(!this.isExpired(entry)) {
+				
+				this.hits++;
+				return entry.data;
+			}
+			
+			this.entries.remove(cacheKey);
+			this.evictions++;
+		}
+		
+		this.misses++;
+		return null;
+	}
+	
+	private final void store(String cacheKey, Object data, long generation) {
+		
+		synchronized(this.entries) {
+			
+			// something was written while the data was loaded; it might already be outdated
+			if(this.generation == generation) {
+				
+				this.entries.put(cacheKey, new Entry(data, this.timeToLive == 0 ? Long.MAX_VALUE : System.nanoTime() + this.timeToLive));
+			}
+		}
+	}
+	
+	private final boolean isExpired(Entry entry) {
+		
+		return entry.expires != Long.MAX_VALUE && System.nanoTime() - entry.expires >= 0;
+	}
+	
+	private final void invalidateWithParent(String path) {
+		
+		this.invalidate(path);
+		String cacheKey = Registry.toLookupKey(path);
+		int index = cacheKey.lastIndexOf('\\');
+		
+		if(index != -1) {
+			
+			synchronized(this.entries) {
+				
+				this.entries.remove(cacheKey.substring(0, index));
+			}
+		}
+	}
+	
+	private static final class Entry {
+		
+		private final Object data;
+		private final long expires;
+		
+		private Entry(Object data, long expires) {
+			
+			this.data = data;
+			this.expires = expires;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Executes the "reg" console commands for the {@linkplain ProcessRegistryBackend}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@FunctionalInterface
+public interface CommandExecutor {
+	
+	/**
+	 * Executes a command and waits for it to finish.
+	 * @param command the command
+	 * @return everything the command has written to the standard output
+	 * @throws IOException if the command could not be executed or returned an exit code other than 0; the message is the first line of the error output
+	 * @since 2.1.0
+	 */
+	public String execute(String command) throws IOException;
+	
+	/**
+	 * Executes a command and hands its standard output to a handler while the command is still running.
+	 * Executors that can stream the output should override this method; by default the output is read completely first.
+	 * @param <T> type of the result
+	 * @param command the command
+	 * @param handler reads the standard output; the reader must not be closed by the handler
+	 * @return the result of the handler
+	 * @throws IOException if the command could not be executed, returned an exit code other than 0 or the handler failed
+	 * @since 2.1.0
+	 */
+	public default <T> T execute(String command, OutputHandler<T> handler) throws IOException {
+		
+		try(Reader reader = new StringReader(this.execute(command))) {
+			
+			return handler.handle(reader);
+		}
+	}
+	
+	/**
+	 * Reads the output of a command.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @param <T> type of the result
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	@FunctionalInterface
+	public static interface OutputHandler<T> {
+		
+		/**
+		 * @param output the standard output of the command
+		 * @return the result
+		 * @throws IOException if an error occurs
+		 * @since 2.1.0
+		 */
+		public T handle(Reader output) throws IOException;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Carries the operation and hive of the command that is executed on the current thread,
+ * so that executors can report what they measure without knowing anything about the operation.
+ * Nothing of this is used while {@linkplain RegistryMetrics#NONE} is set.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class CommandMetrics {
+	
+	private static final ThreadLocal<CommandMetrics> CURRENT = new ThreadLocal<>();
+	
+	private final RegistryMetrics metrics;
+	private final RegistryMetrics.Operation operation;
+	private final String hive;
+	private final CommandMetrics previous;
+	private long waited;
+	private boolean waitMeasured;
+	
+	private CommandMetrics(RegistryMetrics metrics, RegistryMetrics.Operation operation, String hive, CommandMetrics previous) {
+		
+		this.metrics = metrics;
+		this.operation = operation;
+		this.hive = hive;
+		this.previous = previous;
+	}
+	
+	/**
+	 * Starts measuring a command on the current thread.
+	 * @param metrics the listener
+	 * @param operation the operation
+	 * @param path path of the key, or {@code null} if the command is not bound to a key
+	 * @return the context, which has to be ended when the command has finished
+	 */
+	static final CommandMetrics begin(RegistryMetrics metrics, RegistryMetrics.Operation operation, String path) {
+		
+		CommandMetrics context = new CommandMetrics(metrics, operation, path != null ? Registry.getHive(path) : null, CURRENT.get());
+		CURRENT.set(context);
+		return context;
+	}
+	
+	/**
+	 * @return {@code true} if a command is measured on the current thread, else {@code false}
+	 */
+	static final boolean isActive() {
+		
+		return CURRENT.get() != null;
+	}
+	
+	/**
+	 * @param nanos time it took to start a process
+	 */
+	static final void spawned(long nanos) {
+		
+		CommandMetrics context = CURRENT.get();
+		
+		if(context != null) {
+			
+			context.metrics.recordTime(context.operation, context.hive, RegistryMetrics.Phase.SPAWN, nanos);
+		}
+	}
+	
+	/**
+	 * The time is added up and recorded once when the command has finished.
+	 * @param nanos time that was spent waiting for a command
+	 */
+	static final void waited(long nanos) {
+		
+		CommandMetrics context = CURRENT.get();
+		
+		if(context != null) {
+			
+			context.waited += nanos;
+			context.waitMeasured = true;
+		}
+	}
+	
+	/**
+	 * @param exitCode exit code of a command
+	 */
+	static final void exited(int exitCode) {
+		
+		CommandMetrics context = CURRENT.get();
+		
+		if(context != null) {
+			
+			context.metrics.recordProcess(context.operation, context.hive, exitCode);
+		}
+	}
+	
+	/**
+	 * @param exception the error with which the command failed
+	 */
+	final void failed(IOException exception) {
+		
+		this.metrics.recordError(this.operation, this.hive, exception);
+	}
+	
+	/**
+	 * Ends the measurement of the command.
+	 */
+	final void end() {
+		
+		if(this.waitMeasured) {
+			
+			this.metrics.recordTime(this.operation, this.hive, RegistryMetrics.Phase.WAIT, this.waited);
+		}
+		
+		if(this.previous != null) {
+			
+			CURRENT.set(this.previous);
+			
+		} else {
+			
+			CURRENT.remove();
+		}
+	}
+	
+	/**
+	 * Wraps an output handler so that the time spent on parsing is separated from the time spent on waiting for the output.
+	 * @param <T> type of the result
+	 * @param handler the handler
+	 * @return the wrapped handler
+	 */
+	final <T>CommandExecutor.OutputHandler<T> measure(CommandExecutor.OutputHandler<T> handler) {
+		
+		return output -> {
+			
+			MeteredReader reader = new MeteredReader(output);
+			long start = System.nanoTime();
+			
+			try {
+				
+				return handler.handle(reader);
+				
+			} finally {
+				
+				long total = System.nanoTime() - start;
+				this.waited += reader.waited;
+				this.waitMeasured = true;
+				this.metrics.recordTime(this.operation, this.hive, RegistryMetrics.Phase.PARSE, Math.max(0, total - reader.waited));
+				this.metrics.recordOutput(this.operation, this.hive, reader.characters);
+			}
+		};
+	}
+	
+	private static final class MeteredReader extends FilterReader {
+		
+		private long waited;
+		private long characters;
+		
+		private MeteredReader(Reader reader) {
+			
+			super(reader);
+		}
+		
+		@Override
+		public final int read() throws IOException {
+			
+			long start = System.nanoTime();
+			int character = super.read();
+			this.waited += System.nanoTime() - start;
+			this.characters += character != -1 ? 1 : 0;
+			return character;
+		}
+		
+		@Override
+		public final int read(char[] buffer, int offset, int length) throws IOException {
+			
+			long start = System.nanoTime();
+			int read = super.read(buffer, offset, length);
+			this.waited += System.nanoTime() - start;
+			this.characters += Math.max(0, read);
+			return read;
+		}
+	}
+}
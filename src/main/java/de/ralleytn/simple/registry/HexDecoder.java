@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes hexadecimal data, like the data of {@linkplain RegistryValue.Type#REG_BINARY} values, into bytes.
+ * The digits are looked up in a table and the bytes are written straight into a {@linkplain ByteBuffer}, which may also be a direct buffer.
+ * Besides decoding a whole string at once, an instance of this class can decode data that arrives in chunks.
+ * A byte may be split across two chunks and the separators of hex lists in .reg files ({@code ','}, {@code '\\'} and whitespace) are skipped,
+ * so that data can be decoded while it is being read without creating the whole hexadecimal string first.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class HexDecoder {
+	
+	private static final byte INVALID = -1;
+	private static final byte SEPERATOR = -2;
+	private static final byte[] DIGITS = new byte[128];
+	
+	static {
+		
+		for(int index = 0; index < DIGITS.length; index++) {
+			
+			DIGITS[index] = INVALID;
+		}
+		
+		for(int index = 0; index < 10; index++) {
+			
+			DIGITS['0' + index] = (byte)index;
+		}
+		
+		for(int index = 0; index < 6; index++) {
+			
+			DIGITS['a' + index] = (byte)(10 + index);
+			DIGITS['A' + index] = (byte)(10 + index);
+		}
+		
+		DIGITS[','] = SEPERATOR;
+		DIGITS['\\'] = SEPERATOR;
+		DIGITS[' '] = SEPERATOR;
+		DIGITS['\t'] = SEPERATOR;
+		DIGITS['\r'] = SEPERATOR;
+		DIGITS['\n'] = SEPERATOR;
+	}
+	
+	private int high = -1;
+	
+	/**
+	 * Decodes a string of hexadecimal digits without separators, like the raw value data of a {@linkplain RegistryValue.Type#REG_BINARY} value.
+	 * The bytes are written at the position of the buffer, which is then advanced by the number of bytes.
+	 * @param hex the hexadecimal digits
+	 * @param buffer the buffer
+	 * @return the number of bytes that have been written
+	 * @throws NumberFormatException if the string contains a character that is not a hexadecimal digit or an odd number of digits
+	 * @throws BufferOverflowException if there is not enough space left in the buffer; nothing is written in that case
+	 * @since 2.1.0
+	 */
+	public static final int decode(CharSequence hex, ByteBuffer buffer) {
+		
+		int length = hex.length();
+		
+		if((length & 1) != 0) {
+			
+			throw new NumberFormatException("Odd number of hexadecimal digits: " + length);
+		}
+		
+		int bytes = length / 2;
+		
+		if(buffer.remaining() < bytes) {
+			
+			throw new BufferOverflowException();
+		}
+		
+		// absolute puts avoid moving the position for every byte
+		int position = buffer.position();
+		
+		for(int index = 0; index < bytes; index++) {
+			
+			buffer.put(position + index, (byte)((HexDecoder.digit(hex, index * 2) << 4) | HexDecoder.digit(hex, index * 2 + 1)));
+		}
+		
+		buffer.position(position + bytes);
+		return bytes;
+	}
+	
+	/**
+	 * Decodes a string of hexadecimal digits without separators.
+	 * @param hex the hexadecimal digits
+	 * @return the bytes
+	 * @throws NumberFormatException if the string contains a character that is not a hexadecimal digit or an odd number of digits
+	 * @since 2.1.0
+	 */
+	public static final byte[] decode(CharSequence hex) {
+		
+		byte[] bytes = new byte[hex.length() / 2];
+		HexDecoder.decode(hex, ByteBuffer.wrap(bytes));
+		return bytes;
+	}
+	
+	/**
+	 * Decodes the next chunk of data.
+	 * If the chunk ends in the middle of a byte, the byte is completed by the next chunk.
+	 * @param chunk the characters
+	 * @param offset index of the first character of the chunk
+	 * @param length number of characters in the chunk
+	 * @param buffer the buffer into which the bytes are written
+	 * @return the number of bytes that have been written
+	 * @throws NumberFormatException if the chunk contains a character that is neither a hexadecimal digit nor a separator
+	 * @throws BufferOverflowException if there is not enough space left in the buffer; nothing is written in that case
+	 * @since 2.1.0
+	 */
+	public final int update(char[] chunk, int offset, int length, ByteBuffer buffer) {
+		
+		int digits = this.high != -1 ? 1 : 0;
+		
+		// counts the digits first, so that nothing is written if the chunk is invalid or does not fit
+		for(int index = offset; index < offset + length; index++) {
+			
+			char character = chunk[index];
+			int digit = character < DIGITS.length ? DIGITS[character] : INVALID;
+			
+			if(digit >= 0) {
+				
+				digits++;
+				
+			} else if(digit == INVALID) {
+				
+				throw new NumberFormatException("Invalid hexadecimal digit: '" + character + "'");
+			}
+		}
+		
+		int bytes = digits / 2;
+		
+		if(buffer.remaining() < bytes) {
+			
+			throw new BufferOverflowException();
+		}
+		
+		int position = buffer.position();
+		int written = 0;
+		int high = this.high;
+		
+		for(int index = offset; index < offset + length; index++) {
+			
+			char character = chunk[index];
+			int digit = character < DIGITS.length ? DIGITS[character] : INVALID;
+			
+			if(digit >= 0) {
+				
+				if(high == -1) {
+					
+					high = digit;
+					
+				} else {
+					
+					buffer.put(position + written++, (byte)((high << 4) | digit));
+					high = -1;
+				}
+			}
+		}
+		
+		buffer.position(position + written);
+		this.high = high;
+		return written;
+	}
+	
+	/**
+	 * Ends the data and resets the decoder so that it can be used again.
+	 * @throws NumberFormatException if the data ended in the middle of a byte
+	 * @since 2.1.0
+	 */
+	public final void finish() {
+		
+		boolean incomplete = this.high != -1;
+		this.high = -1;
+		
+		if(incomplete) {
+			
+			throw new NumberFormatException("Odd number of hexadecimal digits");
+		}
+	}
+	
+	private static final int digit(CharSequence hex, int index) {
+		
+		char character = hex.charAt(index);
+		int digit = character < DIGITS.length ? DIGITS[character] : INVALID;
+		
+		if(digit < 0) {
+			
+			throw new NumberFormatException("Invalid hexadecimal digit: '" + character + "'");
+		}
+		
+		return digit;
+	}
+}
@@ -0,0 +1,495 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a hive file, like {@code NTUSER.DAT} or {@code SOFTWARE}, without Windows.
+ * The file is mapped into memory and a key is only read from it when it is requested, so even large hives need hardly any memory.
+ * A hive file is an engine itself, so its keys and values can be navigated as usual.
+ * All methods that would change the registry throw an {@linkplain UnsupportedOperationException}.
+ * Hive files are thread safe.
+ * <pre>
+ * HiveFile hive = new HiveFile(new File("SOFTWARE"), Registry.HKEY_LOCAL_MACHINE + "\\SOFTWARE");
+ * RegistryKey key = hive.getKey(Registry.HKEY_LOCAL_MACHINE + "\\SOFTWARE\\Microsoft\\Windows NT\\CurrentVersion");
+ * System.out.println(key.getValueByName("ProductName").getValue());
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class HiveFile implements RegistryBackend {
+	
+	private static final String ERROR_CORRUPT = "The hive file is corrupt";
+	private static final int BASE_BLOCK_SIZE = 4096;
+	private static final int BIG_DATA_SEGMENT_SIZE = 16344;
+	private static final int KEY_COMP_NAME = 0x0020;
+	private static final int VALUE_COMP_NAME = 0x0001;
+	private static final int DATA_IN_OFFSET = 0x80000000;
+	
+	private final ByteBuffer buffer;
+	private final RegistryValueDecoder decoder;
+	private final String path;
+	private final int root;
+	
+	/**
+	 * @param file the hive file
+	 * @param path the path under which the root key of the hive is visible, like {@code "HKEY_LOCAL_MACHINE\\SOFTWARE"} for the {@code SOFTWARE} hive
+	 * @throws IOException if the file could not be read or is not a hive file
+	 * @since 2.1.0
+	 */
+	public HiveFile(File file, String path) throws IOException {
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			
+			if(channel.size() > Integer.MAX_VALUE) {
+				
+				throw new IOException("Hive files larger than 2 GB are not supported");
+			}
+			
+			// the mapping stays valid after the channel has been closed
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		
+		if(this.buffer.capacity() < BASE_BLOCK_SIZE || !this.hasSignature(0, "regf")) {
+			
+			throw new IOException("Not a hive file: " + file);
+		}
+		
+		this.decoder = new NativeValueDecoder();
+		this.path = Registry.normalizePath(path);
+		this.root = this.cell(this.getInt(0x24), "nk");
+	}
+	
+	/**
+	 * @return the path under which the root key of the hive is visible
+	 * @since 2.1.0
+	 */
+	public final String getPath() {
+		
+		return this.path;
+	}
+	
+	/**
+	 * @return the root key of the hive
+	 * @since 2.1.0
+	 */
+	public final RegistryKey getRoot() {
+		
+		try {
+			
+			return this.getKey(this.path);
+			
+		} catch(IOException exception) {
+			
+			// the root is always there
+			throw new IllegalStateException(exception);
+		}
+	}
+	
+	@Override
+	public final boolean isSupported() {
+		
+		return true;
+	}
+	
+	@Override
+	public final RegistryKey getKey(String path) throws IOException {
+		
+		String normalized = Registry.normalizePath(path);
+		int key = this.find(normalized);
+		List<RegistryValue> values = new ArrayList<>();
+		RegistryValue defaultValue = null;
+		int count = this.getInt(key + 0x24);
+		
+		if(count > 0) {
+			
+			int list = this.cell(this.getInt(key + 0x28), null);
+			
+			for(int index = 0; index < count; index++) {
+				
+				RegistryValue value = this.readValue(this.cell(this.getInt(list + index * 4), "vk"), normalized);
+				values.add(value);
+				
+				if(defaultValue == null && value.isDefaultValue()) {
+					
+					defaultValue = value;
+				}
+			}
+		}
+		
+		RegistryPath registryPath = RegistryPath.of(normalized);
+		List<RegistryPath> childs = new ArrayList<>();
+		
+		if(this.getInt(key + 0x14) > 0) {
+			
+			this.listSubkeys(this.cell(this.getInt(key + 0x1C), null), (child, hash, hashed) -> {
+				
+				childs.add(registryPath.child(this.readKeyName(child)));
+				return false;
+			});
+		}
+		
+		return new RegistryKey(normalized, registryPath, values, defaultValue, childs, this);
+	}
+	
+	@Override
+	public final RegistryValue getValue(String path, String name) throws IOException {
+		
+		RegistryValue value = this.getKey(path).getValueByName(name);
+		
+		if(value == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public final void setKey(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteKey(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteValue(String path, String name) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteDefaultValue(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteAllValues(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void importFile(File file) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Writes a key of the hive as .reg file.
+	 */
+	@Override
+	public final void exportKey(String path, File exportFile) throws IOException {
+		
+		RegistryKey key = this.getKey(path);
+		
+		try(OutputStream output = new BufferedOutputStream(new FileOutputStream(exportFile))) {
+			
+			RegFile.write(key, output);
+		}
+	}
+	
+	private final int find(String path) throws IOException {
+		
+		String lookupKey = Registry.toLookupKey(path);
+		String root = Registry.toLookupKey(this.path);
+		
+		if(!lookupKey.startsWith(root) || (lookupKey.length() > root.length() && lookupKey.charAt(root.length()) != '\\')) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		int key = this.root;
+		
+		// the names are hashed and compared as they are; the lookup key only has a different root if it was written with a short name like "HKLM"
+		int start = path.length() - (lookupKey.length() - root.length()) + 1;
+		
+		while(start <= path.length()) {
+			
+			int end = path.indexOf('\\', start);
+			end = end == -1 ? path.length() : end;
+			key = this.findSubkey(key, path, start, end);
+			start = end + 1;
+		}
+		
+		return key;
+	}
+	
+	private final int findSubkey(int key, String path, int start, int end) throws IOException {
+		
+		if(this.getInt(key + 0x14) > 0) {
+			
+			int hash = 0;
+			
+			for(int index = start; index < end; index++) {
+				
+				hash = hash * 37 + Character.toUpperCase(path.charAt(index));
+			}
+			
+			int nameHash = hash;
+			
+			// "lh" lists store a hash of the name, so most subkeys do not have to be read at all
+			int found = this.listSubkeys(this.cell(this.getInt(key + 0x1C), null), (child, entryHash, hashed) -> (!hashed || entryHash == nameHash) && NameIndex.equals(this.readKeyName(child), path, start, end));
+			
+			if(found != -1) {
+				
+				return found;
+			}
+		}
+		
+		throw new RegistryNotFoundException();
+	}
+	
+	/**
+	 * @param list position of a subkey list
+	 * @param visitor is called for every subkey
+	 * @return position of the subkey at which the visitor stopped, or {@code -1}
+	 * @throws IOException if the list is corrupt
+	 */
+	private final int listSubkeys(int list, SubkeyVisitor visitor) throws IOException {
+		
+		int count = this.getShort(list + 2) & 0xFFFF;
+		
+		if(this.hasSignature(list, "ri")) {
+			
+			for(int index = 0; index < count; index++) {
+				
+				int found = this.listSubkeys(this.cell(this.getInt(list + 4 + index * 4), null), visitor);
+				
+				if(found != -1) {
+					
+					return found;
+				}
+			}
+			
+		} else if(this.hasSignature(list, "li")) {
+			
+			for(int index = 0; index < count; index++) {
+				
+				int key = this.cell(this.getInt(list + 4 + index * 4), "nk");
+				
+				if(visitor.visit(key, 0, false)) {
+					
+					return key;
+				}
+			}
+			
+		} else if(this.hasSignature(list, "lf") || this.hasSignature(list, "lh")) {
+			
+			boolean hashed = this.hasSignature(list, "lh");
+			
+			for(int index = 0; index < count; index++) {
+				
+				int entry = list + 4 + index * 8;
+				int key = this.cell(this.getInt(entry), "nk");
+				
+				if(visitor.visit(key, this.getInt(entry + 4), hashed)) {
+					
+					return key;
+				}
+			}
+			
+		} else {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		return -1;
+	}
+	
+	private final String readKeyName(int key) throws IOException {
+		
+		int length = this.getShort(key + 0x48) & 0xFFFF;
+		return this.readName(key + 0x4C, length, (this.getShort(key + 0x02) & KEY_COMP_NAME) != 0);
+	}
+	
+	private final RegistryValue readValue(int value, String path) throws IOException {
+		
+		int nameLength = this.getShort(value + 0x02) & 0xFFFF;
+		String name = nameLength == 0 ? RegistryValue.DEFAULT_NAME : this.readName(value + 0x14, nameLength, (this.getShort(value + 0x10) & VALUE_COMP_NAME) != 0);
+		int size = this.getInt(value + 0x04);
+		int type = this.getInt(value + 0x0C);
+		ByteBuffer data = null;
+		
+		if((size & DATA_IN_OFFSET) != 0) {
+			
+			// up to 4 bytes are stored in place of the offset
+			data = this.slice(value + 0x08, Math.min(size & ~DATA_IN_OFFSET, 4));
+			
+		} else if(size == 0) {
+			
+			data = this.slice(value, 0);
+			
+		} else {
+			
+			int cell = this.cell(this.getInt(value + 0x08), null);
+			data = size > BIG_DATA_SEGMENT_SIZE && this.hasSignature(cell, "db") ? this.readBigData(cell, size) : this.slice(cell, size);
+		}
+		
+		RegistryValue decoded = this.decoder.decode(name, type, data, path, this);
+		
+		// the default value is the one without a name
+		return nameLength == 0 ? decoded.markDefaultValue() : decoded;
+	}
+	
+	private final ByteBuffer readBigData(int cell, int size) throws IOException {
+		
+		int count = this.getShort(cell + 2) & 0xFFFF;
+		int list = this.cell(this.getInt(cell + 4), null);
+		ByteBuffer data = ByteBuffer.allocate(size);
+		
+		for(int index = 0; index < count && data.hasRemaining(); index++) {
+			
+			int segment = this.cell(this.getInt(list + index * 4), null);
+			data.put(this.slice(segment, Math.min(BIG_DATA_SEGMENT_SIZE, data.remaining())));
+		}
+		
+		data.flip();
+		return data;
+	}
+	
+	private final String readName(int offset, int length, boolean ascii) throws IOException {
+		
+		return (ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16LE).decode(this.slice(offset, length)).toString();
+	}
+	
+	private final ByteBuffer slice(int offset, int length) throws IOException {
+		
+		this.check(offset, length);
+		ByteBuffer slice = this.buffer.duplicate();
+		slice.limit(offset + length);
+		slice.position(offset);
+		return slice;
+	}
+	
+	/**
+	 * @param offset offset of the cell relative to the first hive bin
+	 * @param signature the expected signature of the cell, or {@code null} if it has none
+	 * @return the position of the cell data in the file
+	 * @throws IOException if there is no such cell
+	 */
+	private final int cell(int offset, String signature) throws IOException {
+		
+		int position = BASE_BLOCK_SIZE + offset;
+		
+		if(offset < 0 || position < 0 || position + 8 > this.buffer.limit()) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		// cells that are in use have a negative size, which includes the size field itself
+		int size = -this.getInt(position);
+		
+		if(size < 8 || size > this.buffer.limit() - position || (signature != null && !this.hasSignature(position + 4, signature))) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		return position + 4;
+	}
+	
+	private final int getInt(int position) throws IOException {
+		
+		this.check(position, 4);
+		return this.buffer.getInt(position);
+	}
+	
+	private final short getShort(int position) throws IOException {
+		
+		this.check(position, 2);
+		return this.buffer.getShort(position);
+	}
+	
+	/**
+	 * @param position position in the file
+	 * @param length number of bytes that are read from there
+	 * @throws IOException if the bytes are not part of the file
+	 */
+	private final void check(int position, int length) throws IOException {
+		
+		if(position < 0 || length < 0 || position > this.buffer.limit() - length) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+	}
+	
+	private final boolean hasSignature(int position, String signature) throws IOException {
+		
+		this.check(position, signature.length());
+		
+		for(int index = 0; index < signature.length(); index++) {
+			
+			if(this.buffer.get(position + index) != signature.charAt(index)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@FunctionalInterface
+	private static interface SubkeyVisitor {
+		
+		/**
+		 * @param key position of the subkey
+		 * @param hash hash of the name of the subkey
+		 * @param hashed {@code true} if the hash is known, else {@code false}
+		 * @return {@code true} to stop, else {@code false}
+		 * @throws IOException if an error occurs
+		 */
+		boolean visit(int key, int hash, boolean hashed) throws IOException;
+	}
+}
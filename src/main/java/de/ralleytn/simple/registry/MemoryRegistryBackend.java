@@ -0,0 +1,361 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps a registry in memory.
+ * It behaves like the Windows registry as seen through the "reg" console commands and works on every operating system.
+ * Used for testing and benchmarking code that uses the registry on systems other than Windows.
+ * Each instance is an independent and initially empty registry that only contains the root keys.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class MemoryRegistryBackend implements RegistryBackend {
+	
+	private static final String ERROR_INVALID_KEY = "ERROR: Invalid key name.";
+	
+	private final Map<String, Node> roots = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	
+	/**
+	 * @since 2.1.0
+	 */
+	public MemoryRegistryBackend() {
+		
+		for(String root : new String[] {Registry.HKEY_CLASSES_ROOT, Registry.HKEY_CURRENT_USER, Registry.HKEY_LOCAL_MACHINE, Registry.HKEY_USERS, Registry.HKEY_CURRENT_CONFIG}) {
+			
+			this.roots.put(root, new Node(root));
+		}
+		
+		this.roots.put("HKCR", this.roots.get(Registry.HKEY_CLASSES_ROOT));
+		this.roots.put("HKCU", this.roots.get(Registry.HKEY_CURRENT_USER));
+		this.roots.put("HKLM", this.roots.get(Registry.HKEY_LOCAL_MACHINE));
+		this.roots.put("HKU", this.roots.get(Registry.HKEY_USERS));
+		this.roots.put("HKCC", this.roots.get(Registry.HKEY_CURRENT_CONFIG));
+	}
+	
+	/**
+	 * Always returns {@code false}, so that this engine is never chosen automatically instead of the real registry.
+	 * It has to be set with {@linkplain Registry#setBackend(RegistryBackend)} or the system property {@code de.ralleytn.simple.registry.backend}.
+	 * @since 2.1.0
+	 */
+	@Override
+	public final boolean isSupported() {
+		
+		return false;
+	}
+	
+	@Override
+	public final synchronized RegistryKey getKey(String path) throws IOException {
+		
+		Node node = this.find(path);
+		List<RegistryValue> values = new ArrayList<>();
+		RegistryPath registryPath = RegistryPath.of(path);
+		List<RegistryPath> childs = new ArrayList<>();
+		RegistryValue defaultValue = null;
+		
+		if(node.defaultValue != null) {
+			
+			defaultValue = node.defaultValue.toRegistryValue(RegistryValue.DEFAULT_NAME, path, this).markDefaultValue();
+			values.add(node.defaultValue.toRegistryValue(RegistryValue.DEFAULT_NAME, path, this).markDefaultValue());
+		}
+		
+		for(Map.Entry<String, Data> entry : node.values.entrySet()) {
+			
+			values.add(entry.getValue().toRegistryValue(entry.getKey(), path, this));
+		}
+		
+		for(Node child : node.childs.values()) {
+			
+			childs.add(registryPath.child(child.name));
+		}
+		
+		return new RegistryKey(path, registryPath, values, defaultValue, childs, this);
+	}
+	
+	@Override
+	public final synchronized RegistryValue getValue(String path, String name) throws IOException {
+		
+		Node node = this.find(path);
+		Data data = name != null ? node.values.get(name) : null;
+		
+		if(data == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		return data.toRegistryValue(node.values.ceilingKey(name), path, this);
+	}
+	
+	@Override
+	public final synchronized void setKey(String path) throws IOException {
+		
+		this.create(path);
+	}
+	
+	@Override
+	public final synchronized void deleteKey(String path) throws IOException {
+		
+		int index = path.lastIndexOf('\\');
+		
+		if(index == -1) {
+			
+			throw new IOException(ERROR_INVALID_KEY);
+		}
+		
+		Node parent = this.find(path.substring(0, index));
+		
+		if(parent.childs.remove(path.substring(index + 1)) == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+	}
+	
+	@Override
+	public final synchronized void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		// invalid data must not remove the old value
+		Data data = new Data(type, seperator, rawValue);
+		Node node = this.create(path);
+		node.values.remove(name);
+		node.values.put(name, data);
+	}
+	
+	@Override
+	public final synchronized void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		this.create(path).defaultValue = new Data(type, seperator, rawValue);
+	}
+	
+	@Override
+	public final synchronized void deleteValue(String path, String name) throws IOException {
+		
+		if(this.find(path).values.remove(name) == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+	}
+	
+	@Override
+	public final synchronized void deleteDefaultValue(String path) throws IOException {
+		
+		Node node = this.find(path);
+		
+		if(node.defaultValue == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		node.defaultValue = null;
+	}
+	
+	@Override
+	public final synchronized void deleteAllValues(String path) throws IOException {
+		
+		Node node = this.find(path);
+		node.values.clear();
+		node.defaultValue = null;
+	}
+	
+	/**
+	 * Imports a .reg file.
+	 * The changes that precede an error in the file stay applied, just like with {@code reg import}.
+	 */
+	@Override
+	public final synchronized void importFile(File file) throws IOException {
+		
+		RegFile.read(file, new RegFile.Handler() {
+			
+			private Node node;
+			
+			@Override
+			public final void key(String path) throws IOException {
+				
+				this.node = MemoryRegistryBackend.this.create(path);
+			}
+			
+			@Override
+			public final void deleteKey(String path) throws IOException {
+				
+				this.node = null;
+				
+				try {
+					
+					MemoryRegistryBackend.this.deleteKey(path);
+					
+				} catch(IOException exception) {
+					
+					// keys that do not exist are ignored when a file is imported
+				}
+			}
+			
+			@Override
+			public final void value(String name, RegistryValue.Type type, String rawValue) throws IOException {
+				
+				Data data = new Data(type, rawValue);
+				
+				if(name == null) {
+					
+					this.getNode().defaultValue = data;
+					
+				} else {
+					
+					Node node = this.getNode();
+					node.values.remove(name);
+					node.values.put(name, data);
+				}
+			}
+			
+			@Override
+			public final void deleteValue(String name) throws IOException {
+				
+				if(name == null) {
+					
+					this.getNode().defaultValue = null;
+					
+				} else {
+					
+					this.getNode().values.remove(name);
+				}
+			}
+			
+			private final Node getNode() throws IOException {
+				
+				if(this.node == null) {
+					
+					throw new IOException("ERROR: Invalid syntax.");
+				}
+				
+				return this.node;
+			}
+		});
+	}
+	
+	@Override
+	public final synchronized void exportKey(String path, File exportFile) throws IOException {
+		
+		RegistryKey key = this.getKey(path);
+		
+		try(OutputStream output = new BufferedOutputStream(new FileOutputStream(exportFile))) {
+			
+			RegFile.write(key, output);
+		}
+	}
+	
+	private final Node find(String path) throws IOException {
+		
+		String[] parts = path.split("\\\\");
+		Node node = this.roots.get(parts[0]);
+		
+		if(node == null) {
+			
+			throw new IOException(ERROR_INVALID_KEY);
+		}
+		
+		for(int index = 1; index < parts.length; index++) {
+			
+			node = node.childs.get(parts[index]);
+			
+			if(node == null) {
+				
+				throw new RegistryNotFoundException();
+			}
+		}
+		
+		return node;
+	}
+	
+	private final Node create(String path) throws IOException {
+		
+		String[] parts = path.split("\\\\");
+		Node node = this.roots.get(parts[0]);
+		
+		if(node == null) {
+			
+			throw new IOException(ERROR_INVALID_KEY);
+		}
+		
+		for(int index = 1; index < parts.length; index++) {
+			
+			Node child = node.childs.get(parts[index]);
+			
+			if(child == null) {
+				
+				child = new Node(parts[index]);
+				node.childs.put(parts[index], child);
+			}
+			
+			node = child;
+		}
+		
+		return node;
+	}
+	
+	private static final class Node {
+		
+		private final String name;
+		private final TreeMap<String, Node> childs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final TreeMap<String, Data> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private Data defaultValue;
+		
+		private Node(String name) {
+			
+			this.name = name;
+		}
+	}
+	
+	private static final class Data {
+		
+		private final RegistryValue.Type type;
+		private final String rawValue;
+		
+		private Data(RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+			
+			this.type = type;
+			this.rawValue = RegistryValue.normalize(type, seperator, rawValue);
+		}
+		
+		private Data(RegistryValue.Type type, String rawValue) {
+			
+			// the data already is in the format of "reg query"
+			this.type = type;
+			this.rawValue = rawValue;
+		}
+		
+		private final RegistryValue toRegistryValue(String name, String path, RegistryBackend backend) {
+			
+			return new RegistryValue(name, this.type, this.rawValue, path, backend);
+		}
+	}
+}
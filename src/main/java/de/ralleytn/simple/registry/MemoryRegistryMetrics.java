@@ -0,0 +1,471 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps everything that is recorded in memory, separated by operation and hive.
+ * Durations are kept in {@linkplain Histogram}s so that percentiles can be read without keeping every single measurement.
+ * <pre>
+ * MemoryRegistryMetrics metrics = new MemoryRegistryMetrics();
+ * Registry.setMetrics(metrics);
+ * // ...
+ * metrics.dump(System.out);
+ * </pre>
+ * Memory metrics are thread safe.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class MemoryRegistryMetrics implements RegistryMetrics {
+	
+	// ConcurrentHashMap does not allow null keys
+	private static final String NO_HIVE = "";
+	
+	private final Map<Operation, Map<String, Stats>> stats;
+	
+	/**
+	 * @since 2.1.0
+	 */
+	public MemoryRegistryMetrics() {
+		
+		this.stats = new EnumMap<>(Operation.class);
+		
+		for(Operation operation : Operation.values()) {
+			
+			this.stats.put(operation, new ConcurrentHashMap<>());
+		}
+	}
+	
+	@Override
+	public final void recordTime(Operation operation, String hive, Phase phase, long nanos) {
+		
+		this.getOrCreateStats(operation, hive).getOrCreateHistogram(phase).record(nanos);
+	}
+	
+	@Override
+	public final void recordOutput(Operation operation, String hive, long characters) {
+		
+		this.getOrCreateStats(operation, hive).output.add(characters);
+	}
+	
+	@Override
+	public final void recordProcess(Operation operation, String hive, int exitCode) {
+		
+		Stats stats = this.getOrCreateStats(operation, hive);
+		stats.processes.increment();
+		stats.exitCodes.computeIfAbsent(exitCode, code -> new LongAdder()).increment();
+	}
+	
+	@Override
+	public final void recordCacheAccess(Operation operation, String hive, boolean hit) {
+		
+		Stats stats = this.getOrCreateStats(operation, hive);
+		(hit ? stats.cacheHits : stats.cacheMisses).increment();
+	}
+	
+	@Override
+	public final void recordError(Operation operation, String hive, IOException exception) {
+		
+		this.getOrCreateStats(operation, hive).errors.increment();
+	}
+	
+	/**
+	 * @param operation the operation
+	 * @param hive the hive, or {@code null} for operations that are not bound to a key
+	 * @return everything that has been recorded for the operation and hive, or {@code null} if nothing has been recorded yet
+	 * @since 2.1.0
+	 */
+	public final Stats getStats(Operation operation, String hive) {
+		
+		return this.stats.get(operation).get(hive != null ? hive : NO_HIVE);
+	}
+	
+	/**
+	 * @return everything that has been recorded, sorted by operation and hive
+	 * @since 2.1.0
+	 */
+	public final List<Stats> getStats() {
+		
+		List<Stats> stats = new ArrayList<>();
+		
+		for(Map<String, Stats> hives : this.stats.values()) {
+			
+			stats.addAll(new TreeMap<>(hives).values());
+		}
+		
+		return stats;
+	}
+	
+	/**
+	 * Forgets everything that has been recorded.
+	 * @since 2.1.0
+	 */
+	public final void reset() {
+		
+		for(Map<String, Stats> hives : this.stats.values()) {
+			
+			hives.clear();
+		}
+	}
+	
+	/**
+	 * Writes everything that has been recorded in a human readable form.
+	 * Durations are written in microseconds.
+	 * @param output the output
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public final void dump(Appendable output) throws IOException {
+		
+		String lineSeparator = System.lineSeparator();
+		
+		for(Stats stats : this.getStats()) {
+			
+			output.append(stats.operation.name()).append(' ').append(stats.hive != null ? stats.hive : "-").append(lineSeparator);
+			output.append(String.format(Locale.ROOT, "    processes=%d exitCodes=%s errors=%d output=%d cacheHits=%d cacheMisses=%d",
+				stats.getProcessCount(), stats.getExitCodes(), stats.getErrorCount(), stats.getOutputCharacters(), stats.getCacheHitCount(), stats.getCacheMissCount()));
+			output.append(lineSeparator);
+			
+			for(Phase phase : Phase.values()) {
+				
+				Histogram histogram = stats.getHistogram(phase);
+				
+				if(histogram != null) {
+					
+					output.append(String.format(Locale.ROOT, "    %-6s count=%d min=%.1f mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+						phase.name(), histogram.getCount(), histogram.getMin() / 1000.0, histogram.getMean() / 1000.0,
+						histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+						histogram.getValueAtPercentile(99) / 1000.0, histogram.getMax() / 1000.0));
+					output.append(lineSeparator);
+				}
+			}
+		}
+	}
+	
+	@Override
+	public final String toString() {
+		
+		StringBuilder builder = new StringBuilder();
+		
+		try {
+			
+			this.dump(builder);
+			
+		} catch(IOException exception) {
+			
+			// a StringBuilder does not throw
+		}
+		
+		return builder.toString();
+	}
+	
+	private final Stats getOrCreateStats(Operation operation, String hive) {
+		
+		return this.stats.get(operation).computeIfAbsent(hive != null ? hive : NO_HIVE, key -> new Stats(operation, hive));
+	}
+	
+	/**
+	 * Everything that has been recorded for an operation on a hive.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static final class Stats {
+		
+		private final Operation operation;
+		private final String hive;
+		private final AtomicReferenceArray<Histogram> histograms;
+		private final LongAdder output;
+		private final LongAdder processes;
+		private final Map<Integer, LongAdder> exitCodes;
+		private final LongAdder cacheHits;
+		private final LongAdder cacheMisses;
+		private final LongAdder errors;
+		
+		private Stats(Operation operation, String hive) {
+			
+			this.operation = operation;
+			this.hive = hive;
+			this.histograms = new AtomicReferenceArray<>(Phase.values().length);
+			this.output = new LongAdder();
+			this.processes = new LongAdder();
+			this.exitCodes = new ConcurrentHashMap<>();
+			this.cacheHits = new LongAdder();
+			this.cacheMisses = new LongAdder();
+			this.errors = new LongAdder();
+		}
+		
+		private final Histogram getOrCreateHistogram(Phase phase) {
+			
+			Histogram histogram = this.histograms.get(phase.ordinal());
+			
+			if(histogram == null) {
+				
+				// histograms are rather large, so they are only created for phases that occur
+				this.histograms.compareAndSet(phase.ordinal(), null, new Histogram());
+				histogram = this.histograms.get(phase.ordinal());
+			}
+			
+			return histogram;
+		}
+		
+		/**
+		 * @return the operation
+		 * @since 2.1.0
+		 */
+		public final Operation getOperation() {
+			
+			return this.operation;
+		}
+		
+		/**
+		 * @return the hive, or {@code null} for operations that are not bound to a key
+		 * @since 2.1.0
+		 */
+		public final String getHive() {
+			
+			return this.hive;
+		}
+		
+		/**
+		 * @param phase the phase
+		 * @return the durations of the phase in nanoseconds, or {@code null} if none have been recorded
+		 * @since 2.1.0
+		 */
+		public final Histogram getHistogram(Phase phase) {
+			
+			return this.histograms.get(phase.ordinal());
+		}
+		
+		/**
+		 * @return number of characters that have been read from the output of commands
+		 * @since 2.1.0
+		 */
+		public final long getOutputCharacters() {
+			
+			return this.output.sum();
+		}
+		
+		/**
+		 * @return number of commands that have been executed by a process
+		 * @since 2.1.0
+		 */
+		public final long getProcessCount() {
+			
+			return this.processes.sum();
+		}
+		
+		/**
+		 * @return how often each exit code occurred, sorted by exit code
+		 * @since 2.1.0
+		 */
+		public final Map<Integer, Long> getExitCodes() {
+			
+			Map<Integer, Long> exitCodes = new TreeMap<>();
+			this.exitCodes.forEach((exitCode, count) -> exitCodes.put(exitCode, count.sum()));
+			return Collections.unmodifiableMap(exitCodes);
+		}
+		
+		/**
+		 * @return number of keys and values that have been found in a cache
+		 * @since 2.1.0
+		 */
+		public final long getCacheHitCount() {
+			
+			return this.cacheHits.sum();
+		}
+		
+		/**
+		 * @return number of keys and values that have not been found in a cache
+		 * @since 2.1.0
+		 */
+		public final long getCacheMissCount() {
+			
+			return this.cacheMisses.sum();
+		}
+		
+		/**
+		 * @return number of failed operations
+		 * @since 2.1.0
+		 */
+		public final long getErrorCount() {
+			
+			return this.errors.sum();
+		}
+	}
+	
+	/**
+	 * Counts values in buckets whose width grows with the values, like an HDR histogram.
+	 * Values below 128 are counted exactly; every larger value is counted in a bucket that is at most 1/64 of the value wide,
+	 * so percentiles are off by less than 1.6 percent.
+	 * Negative values are counted as 0.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static final class Histogram {
+		
+		private static final int SUB_BUCKET_BITS = 6;
+		private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+		private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + 2 * SUB_BUCKET_COUNT;
+		
+		private final AtomicLongArray counts;
+		private final AtomicLong count;
+		private final AtomicLong sum;
+		private final AtomicLong min;
+		private final AtomicLong max;
+		
+		/**
+		 * @since 2.1.0
+		 */
+		public Histogram() {
+			
+			this.counts = new AtomicLongArray(BUCKET_COUNT);
+			this.count = new AtomicLong();
+			this.sum = new AtomicLong();
+			this.min = new AtomicLong(Long.MAX_VALUE);
+			this.max = new AtomicLong();
+		}
+		
+		/**
+		 * @param value the value
+		 * @since 2.1.0
+		 */
+		public final void record(long value) {
+			
+			long positive = Math.max(0, value);
+			this.counts.incrementAndGet(Histogram.indexOf(positive));
+			this.count.incrementAndGet();
+			this.sum.addAndGet(positive);
+			this.min.accumulateAndGet(positive, Math::min);
+			this.max.accumulateAndGet(positive, Math::max);
+		}
+		
+		/**
+		 * @return number of recorded values
+		 * @since 2.1.0
+		 */
+		public final long getCount() {
+			
+			return this.count.get();
+		}
+		
+		/**
+		 * @return the smallest recorded value, or 0 if nothing has been recorded
+		 * @since 2.1.0
+		 */
+		public final long getMin() {
+			
+			long min = this.min.get();
+			return min != Long.MAX_VALUE ? min : 0;
+		}
+		
+		/**
+		 * @return the largest recorded value, or 0 if nothing has been recorded
+		 * @since 2.1.0
+		 */
+		public final long getMax() {
+			
+			return this.max.get();
+		}
+		
+		/**
+		 * @return the exact mean of all recorded values, or 0 if nothing has been recorded
+		 * @since 2.1.0
+		 */
+		public final double getMean() {
+			
+			long count = this.count.get();
+			return count != 0 ? (double)this.sum.get() / count : 0;
+		}
+		
+		/**
+		 * @param percentile the percentile from 0 to 100
+		 * @return the value below or at which the given percentage of the recorded values lies, or 0 if nothing has been recorded
+		 * @since 2.1.0
+		 */
+		public final long getValueAtPercentile(double percentile) {
+			
+			long count = this.count.get();
+			
+			if(count == 0) {
+				
+				return 0;
+			}
+			
+			long target = Math.max(1, (long)Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count));
+			long seen = 0;
+			
+			for(int index = 0; index < BUCKET_COUNT; index++) {
+				
+				seen += this.counts.get(index);
+				
+				if(seen >= target) {
+					
+					return Math.min(Histogram.highestValueOf(index), this.getMax());
+				}
+			}
+			
+			return this.getMax();
+		}
+		
+		private static final int indexOf(long value) {
+			
+			if(value < SUB_BUCKET_COUNT) {
+				
+				return (int)value;
+			}
+			
+			// the highest bits of the value select the bucket, the next ones the sub bucket
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int shift = exponent - SUB_BUCKET_BITS;
+			return (shift << SUB_BUCKET_BITS) + (int)(value >>> shift);
+		}
+		
+		private static final long lowestValueOf(int index) {
+			
+			int bucket = index >>> SUB_BUCKET_BITS;
+			return bucket == 0 ? index : (long)((index & (SUB_BUCKET_COUNT - 1)) | SUB_BUCKET_COUNT) << (bucket - 1);
+		}
+		
+		private static final long highestValueOf(int index) {
+			
+			return index + 1 < BUCKET_COUNT ? Histogram.lowestValueOf(index + 1) - 1 : Long.MAX_VALUE;
+		}
+	}
+}
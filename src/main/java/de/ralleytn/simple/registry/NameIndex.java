@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.util.Arrays;
+
+/**
+ * Immutable hash index over the names of keys or values that compares them the way the registry does:
+ * character by character without regard to case.
+ * Uses open addressing with linear probing, so a lookup does not allocate anything.
+ * If a name occurs more than once, the first occurrence is found.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class NameIndex {
+	
+	private static final int EMPTY = -1;
+	
+	private final String[] names;
+	private final int[] slots;
+	private final int mask;
+	
+	/**
+	 * @param names the names; the index of a name in this array is what {@linkplain #indexOf(String)} returns
+	 */
+	NameIndex(String[] names) {
+		
+		int capacity = 2;
+		
+		// at most half of the slots are used, which keeps the probe sequences short
+		while(capacity < names.length * 2) {
+			
+			capacity <<= 1;
+		}
+		
+		this.names = names;
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		Arrays.fill(this.slots, EMPTY);
+		
+		for(int index = 0; index < names.length; index++) {
+			
+			String name = names[index];
+			int slot = NameIndex.hash(name, 0, name.length()) & this.mask;
+			
+			while(this.slots[slot] != EMPTY) {
+				
+				if(NameIndex.equals(this.names[this.slots[slot]], name, 0, name.length())) {
+					
+					break;
+				}
+				
+				slot = (slot + 1) & this.mask;
+			}
+			
+			if(this.slots[slot] == EMPTY) {
+				
+				this.slots[slot] = index;
+			}
+		}
+	}
+	
+	/**
+	 * @param name the name
+	 * @return the index of the name, or {@code -1} if there is no such name
+	 */
+	final int indexOf(String name) {
+		
+		return this.indexOf(name, 0, name.length());
+	}
+	
+	/**
+	 * @param text text that contains the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the index of the name, or {@code -1} if there is no such name
+	 */
+	final int indexOf(String text, int start, int end) {
+		
+		int slot = NameIndex.hash(text, start, end) & this.mask;
+		int index = 0;
+		
+		while((index = this.slots[slot]) != EMPTY) {
+			
+			if(NameIndex.equals(this.names[index], text, start, end)) {
+				
+				return index;
+			}
+			
+			slot = (slot + 1) & this.mask;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @param name a name
+	 * @param text text that contains another name
+	 * @param start index of the first character of the other name
+	 * @param end index after the last character of the other name
+	 * @return {@code true} if the registry treats both names as the same, else {@code false}
+	 */
+	static final boolean equals(String name, String text, int start, int end) {
+		
+		int length = name.length();
+		
+		if(length != end - start) {
+			
+			return false;
+		}
+		
+		for(int index = 0; index < length; index++) {
+			
+			char character = name.charAt(index);
+			char other = text.charAt(start + index);
+			
+			if(character != other && NameIndex.fold(character) != NameIndex.fold(other)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @param text text that contains the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return a hash code that is the same for all names the registry treats as the same
+	 */
+	static final int hash(String text, int start, int end) {
+		
+		int hash = 0;
+		
+		for(int index = start; index < end; index++) {
+			
+			hash = 31 * hash + NameIndex.fold(text.charAt(index));
+		}
+		
+		// spreads the higher bits, because only the lower ones are used to find the slot
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * @param text a name or a path
+	 * @return the text with every character folded on its own, so that it has the same length and can be compared with {@linkplain String#equals(Object)}
+	 */
+	static final String fold(String text) {
+		
+		char[] characters = text.toCharArray();
+		
+		for(int index = 0; index < characters.length; index++) {
+			
+			characters[index] = NameIndex.fold(characters[index]);
+		}
+		
+		return new String(characters);
+	}
+	
+	private static final char fold(char character) {
+		
+		if(character < 0x80) {
+			
+			return character >= 'a' && character <= 'z' ? (char)(character - ('a' - 'A')) : character;
+		}
+		
+		// the registry converts every character on its own, so there is no locale and no change in length
+		return Character.toUpperCase(character);
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes values in the format that is used by {@code RegQueryValueExW} and in hive files.
+ * Strings are expected to be UTF-16LE and numbers to be little endian.
+ * Numbers and binary data are decoded straight from the buffer without creating a string first.
+ * Data types that are not known to {@linkplain RegistryValue.Type} are decoded as {@linkplain RegistryValue.Type#REG_BINARY}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class NativeValueDecoder implements RegistryValueDecoder {
+	
+	private static final int REG_DWORD_BIG_ENDIAN = 5;
+	private static final int REG_LINK = 6;
+	
+	@Override
+	public final RegistryValue decode(String name, int type, ByteBuffer data, String path, RegistryBackend backend) {
+		
+		ByteBuffer buffer = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+		
+		if(type == REG_DWORD_BIG_ENDIAN) {
+			
+			return new RegistryValue(name, RegistryValue.Type.REG_DWORD, path, backend, (int)NativeValueDecoder.readNumber(buffer.order(ByteOrder.BIG_ENDIAN), 4));
+			
+		} else if(type == REG_LINK) {
+			
+			return NativeValueDecoder.createString(name, RegistryValue.Type.REG_SZ, NativeValueDecoder.readString(buffer), path, backend);
+		}
+		
+		RegistryValue.Type valueType = RegistryValue.Type.getTypeByCode(type);
+		
+		if(valueType == null) {
+			
+			valueType = RegistryValue.Type.REG_BINARY;
+		}
+		
+		switch(valueType) {
+			
+			case REG_SZ:
+			case REG_EXPAND_SZ:
+				return NativeValueDecoder.createString(name, valueType, NativeValueDecoder.readString(buffer), path, backend);
+			
+			case REG_MULTI_SZ:
+				return new RegistryValue(name, valueType, path, backend, NativeValueDecoder.readStrings(buffer));
+			
+			case REG_DWORD:
+				return new RegistryValue(name, valueType, path, backend, (int)NativeValueDecoder.readNumber(buffer, 4));
+			
+			case REG_QWORD:
+				return new RegistryValue(name, valueType, path, backend, NativeValueDecoder.readNumber(buffer, 8));
+			
+			case REG_NONE:
+			case REG_FULL_RESOURCE_DESCRIPTOR:
+				return NativeValueDecoder.createString(name, valueType, RegistryValue.Type.REG_BINARY.formatValue(NativeValueDecoder.readBytes(buffer)), path, backend);
+			
+			default:
+				return new RegistryValue(name, valueType, path, backend, NativeValueDecoder.readBytes(buffer));
+		}
+	}
+	
+	private static final RegistryValue createString(String name, RegistryValue.Type type, String string, String path, RegistryBackend backend) {
+		
+		// "reg query" does not print anything for empty strings
+		return new RegistryValue(name, type, string.isEmpty() ? null : string, path, backend);
+	}
+	
+	private static final long readNumber(ByteBuffer buffer, int size) {
+		
+		if(buffer.remaining() >= size) {
+			
+			return size == 4 ? buffer.getInt(0) & 0xFFFFFFFFL : buffer.getLong(0);
+		}
+		
+		// missing bytes are treated as 0
+		long number = 0;
+		boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+		int length = buffer.remaining();
+		
+		for(int index = 0; index < length; index++) {
+			
+			long value = buffer.get(index) & 0xFFL;
+			number |= littleEndian ? value << (index * 8) : value << ((size - index - 1) * 8);
+		}
+		
+		return number;
+	}
+	
+	private static final byte[] readBytes(ByteBuffer buffer) {
+		
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+	
+	private static final String readString(ByteBuffer buffer) {
+		
+		int length = buffer.remaining() / 2;
+		char[] chars = new char[length];
+		int count = 0;
+		
+		while(count < length) {
+			
+			char character = buffer.getChar(count * 2);
+			
+			if(character == '\0') {
+				
+				break;
+			}
+			
+			chars[count++] = character;
+		}
+		
+		return new String(chars, 0, count);
+	}
+	
+	private static final List<String> readStrings(ByteBuffer buffer) {
+		
+		List<String> strings = new ArrayList<>();
+		int length = buffer.remaining() / 2;
+		char[] chars = new char[length];
+		int count = 0;
+		
+		for(int index = 0; index < length; index++) {
+			
+			char character = buffer.getChar(index * 2);
+			
+			if(character == '\0') {
+				
+				if(count == 0) {
+					
+					break;
+				}
+				
+				strings.add(new String(chars, 0, count));
+				count = 0;
+				
+			} else {
+				
+				chars[count++] = character;
+			}
+		}
+		
+		if(count > 0) {
+			
+			strings.add(new String(chars, 0, count));
+		}
+		
+		return strings;
+	}
+}
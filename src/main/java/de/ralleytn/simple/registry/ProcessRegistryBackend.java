@@ -0,0 +1,533 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accesses the registry by calling the "reg" console commands through {@code cmd.exe}.
+ * By default every operation spawns a new process.
+ * A {@linkplain RegistrySessionPool} can be used instead to reuse long-lived processes.
+ * This is the default engine on Windows.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class ProcessRegistryBackend implements RegistryBackend {
+	
+	private final CommandExecutor executor;
+	
+	// "reg" prints the name of the default value in the language of the system, so it is learned from the first "/ve" query
+	private volatile String defaultValueName;
+	
+	/**
+	 * Creates an engine that spawns a new process for every operation.
+	 * @since 2.1.0
+	 */
+	public ProcessRegistryBackend() {
+		
+		this(new ProcessSpawner());
+	}
+	
+	/**
+	 * @param executor executes the "reg" commands
+	 * @since 2.1.0
+	 */
+	public ProcessRegistryBackend(CommandExecutor executor) {
+		
+		this.executor = executor;
+	}
+	
+	@Override
+	public final boolean isSupported() {
+		
+		return System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+	}
+	
+	@Override
+	public final void deleteAllValues(String path) throws IOException {
+		
+		try {
+			
+			this.execute(RegistryMetrics.Operation.DELETE, path, "reg delete \"" + path + "\" /va /f");
+			
+		} catch(IOException exception) {
+			
+			throw this.translateKeyError(exception, path);
+		}
+	}
+	
+	@Override
+	public final void deleteDefaultValue(String path) throws IOException {
+		
+		try {
+			
+			this.execute(RegistryMetrics.Operation.DELETE, path, "reg delete \"" + path + "\" /ve /f");
+			
+		} catch(IOException exception) {
+			
+			throw this.translateValueError(exception, path, null);
+		}
+	}
+	
+	@Override
+	public final void deleteValue(String path, String name) throws IOException {
+		
+		try {
+			
+			this.execute(RegistryMetrics.Operation.DELETE, path, "reg delete \"" + path + "\" /v " + name + " /f");
+			
+		} catch(IOException exception) {
+			
+			throw this.translateValueError(exception, path, name);
+		}
+	}
+	
+	@Override
+	public final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		this.execute(RegistryMetrics.Operation.ADD, path, "reg add \"" + path + "\" /v " + name + " /t " + type.name() + (type == RegistryValue.Type.REG_MULTI_SZ ? " /s " + seperator : "") + " /d \"" + rawValue + "\" /f");
+	}
+	
+	@Override
+	public final void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		this.execute(RegistryMetrics.Operation.ADD, path, "reg add \"" + path + "\" /ve /t " + type.name() + (type == RegistryValue.Type.REG_MULTI_SZ ? " /s " + seperator : "") + " /d \"" + rawValue + "\" /f");
+	}
+	
+	@Override
+	public final RegistryValue getValue(String path, String name) throws IOException {
+		
+		try {
+			
+			return this.queryValue("reg query \"" + path + "\" /v " + name, path);
+			
+		} catch(IOException exception) {
+			
+			throw this.translateValueError(exception, path, name);
+		}
+	}
+	
+	@Override
+	public final void importFile(File file) throws IOException {
+		
+		this.execute(RegistryMetrics.Operation.IMPORT, null, "reg import \"" + file.getAbsolutePath() + "\"");
+	}
+	
+	@Override
+	public final void exportKey(String path, File exportFile) throws IOException {
+		
+		this.execute(RegistryMetrics.Operation.EXPORT, path, "reg export \"" + path + "\" \"" + exportFile.getAbsolutePath() + "\" /y");
+	}
+	
+	@Override
+	public final void deleteKey(String path) throws IOException {
+		
+		try {
+			
+			this.execute(RegistryMetrics.Operation.DELETE, path, "reg delete \"" + path + "\" /f");
+			
+		} catch(IOException exception) {
+			
+			throw this.translateKeyError(exception, path);
+		}
+	}
+	
+	@Override
+	public final void setKey(String path) throws IOException {
+		
+		this.execute(RegistryMetrics.Operation.ADD, path, "reg add \"" + path + "\" /f");
+	}
+	
+	@Override
+	public final RegistryKey getKey(String path) throws IOException {
+		
+		return this.getKey(path, true);
+	}
+	
+	@Override
+	public final RegistryKey getKey(String path, boolean loadDefaultValue) throws IOException {
+		
+		List<String> childs = new ArrayList<>();
+		List<RegistryValue> values = new ArrayList<>();
+		
+		try {
+			
+			this.execute(RegistryMetrics.Operation.QUERY, path, "reg query \"" + path + "\"", output -> {
+				
+				RegQueryParser.parse(output, new RegQueryParser.Handler() {
+					
+					private boolean first = true;
+					
+					@Override
+					public final void key(String key) {
+						
+						// the key itself comes first and is followed by its childs
+						if(this.first) {
+							
+							this.first = false;
+							
+						} else {
+							
+							childs.add(key);
+						}
+					}
+					
+					@Override
+					public final void value(String name, RegistryValue.Type type, String rawValue) {
+						
+						values.add(new RegistryValue(name, type, rawValue, path, ProcessRegistryBackend.this));
+					}
+				});
+				
+				return null;
+			});
+			
+		} catch(IOException exception) {
+			
+			throw this.translateKeyError(exception, path);
+		}
+		
+		RegistryValue defaultValue = loadDefaultValue ? this.getDefaultValue(path) : null;
+		String defaultValueName = this.defaultValueName;
+		
+		for(RegistryValue value : values) {
+			
+			if(value.getName().equals(defaultValueName)) {
+				
+				value.markDefaultValue();
+				break;
+			}
+		}
+		
+		RegistryKey key = new RegistryKey(path, values, defaultValue, childs, this);
+		
+		if(!loadDefaultValue) {
+			
+			// the default value is read when it is requested
+			key.deferDefaultValue();
+		}
+		
+		return key;
+	}
+	
+	@Override
+	public final RegistryValue getDefaultValue(String path) throws IOException {
+		
+		try {
+			
+			RegistryValue value = this.queryValue("reg query \"" + path + "\" /ve", path);
+			
+			if(value != null) {
+				
+				this.defaultValueName = value.getName();
+				value.markDefaultValue();
+			}
+			
+			return value;
+			
+		} catch(IOException exception) {
+			
+			throw this.translateKeyError(exception, path);
+		}
+	}
+	
+	@Override
+	public final RegistrySnapshot snapshot(String path) throws IOException {
+		
+		try {
+			
+			if(this.defaultValueName == null) {
+				
+				// without the name the default value could not be told apart from the other values
+				this.getDefaultValue(path);
+			}
+			
+			String defaultValueName = this.defaultValueName;
+			return this.execute(RegistryMetrics.Operation.QUERY, path, "reg query \"" + path + "\" /s", output -> RegistrySnapshot.parse(path, output, defaultValueName));
+			
+		} catch(IOException exception) {
+			
+			throw this.translateKeyError(exception, path);
+		}
+	}
+	
+	/**
+	 * "reg" only tells in its error message whether a key does not exist, and the message is translated on most systems.
+	 * So if a command fails, the parent key is read to find out whether the key is there.
+	 * @param exception the error of the command
+	 * @param path path of the key
+	 * @return a {@linkplain RegistryNotFoundException} if the key does not exist, else the original error
+	 */
+	private final IOException translateKeyError(IOException exception, String path) {
+		
+		if(exception instanceof RegistryNotFoundException || exception instanceof InterruptedIOException) {
+			
+			return exception;
+		}
+		
+		if(RegistryNotFoundException.MESSAGE.equals(exception.getMessage())) {
+			
+			return new RegistryNotFoundException(exception.getMessage(), exception);
+		}
+		
+		try {
+			
+			return this.exists(path) ? exception : new RegistryNotFoundException(exception.getMessage(), exception);
+			
+		} catch(IOException | UncheckedIOException other) {
+			
+			exception.addSuppressed(other);
+			return exception;
+		}
+	}
+	
+	/**
+	 * Like {@linkplain #translateKeyError(IOException, String)}, but for values.
+	 * @param exception the error of the command
+	 * @param path path of the key
+	 * @param name name of the value, or {@code null} for the default value
+	 * @return a {@linkplain RegistryNotFoundException} if the key or the value does not exist, else the original error
+	 */
+	private final IOException translateValueError(IOException exception, String path, String name) {
+		
+		IOException error = this.translateKeyError(exception, path);
+		
+		if(error != exception || exception instanceof InterruptedIOException) {
+			
+			return error;
+		}
+		
+		try {
+			
+			RegistryKey key = this.getKey(path, false);
+			return (name == null ? key.getDefaultValue() : key.getValueByName(name)) == null ? new RegistryNotFoundException(exception.getMessage(), exception) : exception;
+			
+		} catch(IOException | UncheckedIOException other) {
+			
+			exception.addSuppressed(other);
+			return exception;
+		}
+	}
+	
+	private final boolean exists(String path) throws IOException {
+		
+		RegistryPath registryPath = RegistryPath.of(path);
+		
+		if(registryPath.isRoot()) {
+			
+			return true;
+		}
+		
+		try {
+			
+			for(RegistryPath child : this.getKey(registryPath.getParent().toString(), false).getChildPaths()) {
+				
+				if(child.equals(registryPath)) {
+					
+					return true;
+				}
+			}
+			
+			return false;
+			
+		} catch(RegistryNotFoundException exception) {
+			
+			return false;
+		}
+	}
+	
+	private final void execute(RegistryMetrics.Operation operation, String path, String command) throws IOException {
+		
+		RegistryMetrics metrics = Registry.getMetrics();
+		
+		if(metrics == RegistryMetrics.NONE) {
+			
+			this.executor.execute(command);
+			return;
+		}
+		
+		CommandMetrics context = CommandMetrics.begin(metrics, operation, path);
+		
+		try {
+			
+			this.executor.execute(command);
+			
+		} catch(IOException exception) {
+			
+			context.failed(exception);
+			throw exception;
+			
+		} finally {
+			
+			context.end();
+		}
+	}
+	
+	private final <T>T execute(RegistryMetrics.Operation operation, String path, String command, CommandExecutor.OutputHandler<T> handler) throws IOException {
+		
+		RegistryMetrics metrics = Registry.getMetrics();
+		
+		if(metrics == RegistryMetrics.NONE) {
+			
+			return this.executor.execute(command, handler);
+		}
+		
+		CommandMetrics context = CommandMetrics.begin(metrics, operation, path);
+		
+		try {
+			
+			return this.executor.execute(command, context.measure(handler));
+			
+		} catch(IOException exception) {
+			
+			context.failed(exception);
+			throw exception;
+			
+		} finally {
+			
+			context.end();
+		}
+	}
+	
+	private final RegistryValue queryValue(String command, String path) throws IOException {
+		
+		RegistryValue[] value = new RegistryValue[1];
+		
+		this.execute(RegistryMetrics.Operation.QUERY, path, command, output -> {
+			
+			RegQueryParser.parse(output, new RegQueryParser.Handler() {
+				
+				@Override
+				public final void key(String key) {}
+				
+				@Override
+				public final void value(String name, RegistryValue.Type type, String rawValue) {
+					
+					if(value[0] == null) {
+						
+						value[0] = new RegistryValue(name, type, rawValue, path, ProcessRegistryBackend.this);
+					}
+				}
+			});
+			
+			return null;
+		});
+		
+		return value[0];
+	}
+	
+	private static final class ProcessSpawner implements CommandExecutor {
+		
+		@Override
+		public final String execute(String command) throws IOException {
+			
+			return this.execute(command, output -> {
+				
+				StringBuilder builder = new StringBuilder();
+				char[] buffer = new char[4096];
+				int read = 0;
+				
+				while((read = output.read(buffer)) != -1) {
+					
+					builder.append(buffer, 0, read);
+				}
+				
+				return builder.toString();
+			});
+		}
+		
+		@Override
+		public final <T> T execute(String command, OutputHandler<T> handler) throws IOException {
+			
+			boolean measured = CommandMetrics.isActive();
+			long start = measured ? System.nanoTime() : 0L;
+			Process process = Runtime.getRuntime().exec("cmd /c " + command);
+			T result = null;
+			
+			if(measured) {
+				
+				CommandMetrics.spawned(System.nanoTime() - start);
+			}
+			
+			// an AsyncRegistry destroys the process if the operation is cancelled
+			AsyncRegistry.attach(process);
+			
+			try {
+				
+				try(Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+					
+					result = handler.handle(reader);
+					
+				} catch(IOException | RuntimeException exception) {
+					
+					process.destroy();
+					throw exception;
+				}
+				
+				try {
+					
+					start = measured ? System.nanoTime() : 0L;
+					process.waitFor();
+					
+					if(measured) {
+						
+						CommandMetrics.waited(System.nanoTime() - start);
+					}
+					
+				} catch(InterruptedException exception) {
+					
+					process.destroy();
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+				
+			} finally {
+				
+				AsyncRegistry.detach(process);
+			}
+			
+			CommandMetrics.exited(process.exitValue());
+			
+			if(process.exitValue() != 0) {
+				
+				try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+					
+					throw new IOException(reader.readLine());
+				}
+			}
+			
+			return result;
+		}
+	}
+}
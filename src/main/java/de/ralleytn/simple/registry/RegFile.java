@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+
+/**
+ * Reads and writes .reg files without the help of {@code reg import}, {@code reg export} or {@code regedit}, so they can also be processed on systems other than Windows.
+ * Files in the formats "Windows Registry Editor Version 5.00" and "REGEDIT4" can be read; files are written in the format "Windows Registry Editor Version 5.00".
+ * Files are read as a stream, so even exports that are hundreds of megabytes large can be processed with little memory.
+ * To navigate the content of a file with {@linkplain RegistryKey} and {@linkplain RegistryValue}, it can be imported into a {@linkplain MemoryRegistryBackend}.
+ * <pre>
+ * RegFile.read(new File("export.reg"), new RegFile.Handler() {
+ * 
+ *     &#64;Override
+ *     public void key(String path) {
+ *         System.out.println(path);
+ *     }
+ * 
+ *     &#64;Override
+ *     public void value(String name, RegistryValue.Type type, String rawValue) {
+ *         System.out.println("    " + name + " = " + rawValue);
+ *     }
+ * });
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegFile {
+	
+	private RegFile() {}
+	
+	/**
+	 * Reads a .reg file.
+	 * The encoding is detected by the byte order mark; files without one are read as UTF-8, or with the ANSI code page if they are in the format "REGEDIT4".
+	 * The file is mapped into memory piece by piece.
+	 * @param file the file
+	 * @param handler receives the keys, values and deletions in the order in which they appear in the file
+	 * @throws IOException if the file could not be read or is not a valid .reg file
+	 * @since 2.1.0
+	 */
+	public static final void read(File file, Handler handler) throws IOException {
+		
+		RegFileReader.read(file, handler);
+	}
+	
+	/**
+	 * Reads a .reg file that has already been decoded.
+	 * @param reader the content of the file; will not be closed
+	 * @param handler receives the keys, values and deletions in the order in which they appear in the file
+	 * @throws IOException if the content could not be read or is not a valid .reg file
+	 * @since 2.1.0
+	 */
+	public static final void read(Reader reader, Handler handler) throws IOException {
+		
+		RegFileReader.read(reader, handler);
+	}
+	
+	/**
+	 * Writes a key with all of its values and subkeys as a .reg file, just like {@code reg export} would.
+	 * The file is encoded in UTF-16LE with a byte order mark.
+	 * @param key the key
+	 * @param output the stream to which the file is written; will not be closed
+	 * @throws IOException if a subkey could not be read or the file could not be written
+	 * @since 2.1.0
+	 */
+	public static final void write(RegistryKey key, OutputStream output) throws IOException {
+		
+		RegFileWriter writer = new RegFileWriter(output);
+		writer.writeTree(key);
+		writer.flush();
+	}
+	
+	/**
+	 * Receives the content of a .reg file.
+	 * Values belong to the key that has been reported last.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static interface Handler {
+		
+		/**
+		 * Is called for every key section. The key should be created if it does not exist.
+		 * @param path path of the key
+		 * @throws IOException if an error occurs
+		 * @since 2.1.0
+		 */
+		public void key(String path) throws IOException;
+		
+		/**
+		 * Is called for every value.
+		 * The data is in the same format in which {@linkplain RegistryValue#getRawValue()} returns it.
+		 * @param name name of the value, or {@code null} for the default value
+		 * @param type data type of the value; unknown types are reported as {@linkplain RegistryValue.Type#REG_BINARY}
+		 * @param rawValue the value data, or {@code null} if it is empty
+		 * @throws IOException if an error occurs
+		 * @since 2.1.0
+		 */
+		public void value(String name, RegistryValue.Type type, String rawValue) throws IOException;
+		
+		/**
+		 * Is called for every key that should be deleted with all of its subkeys; does nothing by default.
+		 * @param path path of the key
+		 * @throws IOException if an error occurs
+		 * @since 2.1.0
+		 */
+		public default void deleteKey(String path) throws IOException {}
+		
+		/**
+		 * Is called for every value that should be deleted from the key that has been reported last; does nothing by default.
+		 * @param name name of the value, or {@code null} for the default value
+		 * @throws IOException if an error occurs
+		 * @since 2.1.0
+		 */
+		public default void deleteValue(String name) throws IOException {}
+	}
+}
@@ -0,0 +1,597 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads .reg files in the formats "Windows Registry Editor Version 5.00" and "REGEDIT4" in a single pass
+ * and reports every key, value and deletion to a {@linkplain RegFile.Handler} as soon as it has been read.
+ * Files are mapped into memory window by window, so the memory that is needed does not depend on the size of the file but only on the longest value.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class RegFileReader {
+	
+	private static final String ERROR_NO_SCRIPT = "ERROR: The specified file is not a registry script.";
+	private static final String ERROR_SYNTAX = "ERROR: Invalid syntax.";
+	private static final String HEADER4 = "REGEDIT4";
+	private static final long WINDOW_SIZE = 16 * 1024 * 1024;
+	
+	// REGEDIT4 files are written with the ANSI code page
+	private static final Charset ANSI = Charset.forName("windows-1252");
+	
+	private final RegFile.Handler handler;
+	private final HexDecoder decoder;
+	private char[] line;
+	private int length;
+	private int lineNumber;
+	private boolean continued;
+	private boolean headerRead;
+	private boolean ansi;
+	private boolean hex;
+	private String hexName;
+	private int hexType;
+	private ByteBuffer bytes;
+	
+	private RegFileReader(RegFile.Handler handler) {
+		
+		this.handler = handler;
+		this.decoder = new HexDecoder();
+		this.line = new char[256];
+		this.bytes = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	/**
+	 * @param file the file
+	 * @param handler receives the keys and values
+	 * @throws IOException if the file could not be read or is not a valid .reg file
+	 */
+	static final void read(File file, RegFile.Handler handler) throws IOException {
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			
+			long size = channel.size();
+			ByteBuffer head = ByteBuffer.allocate(HEADER4.length());
+			channel.read(head, 0);
+			head.flip();
+			
+			long position = 0;
+			Charset charset = StandardCharsets.UTF_8;
+			
+			if(RegFileReader.startsWith(head, 0xFF, 0xFE)) {
+				
+				charset = StandardCharsets.UTF_16LE;
+				position = 2;
+				
+			} else if(RegFileReader.startsWith(head, 0xEF, 0xBB, 0xBF)) {
+				
+				position = 3;
+				
+			} else if(StandardCharsets.US_ASCII.decode(head).toString().equals(HEADER4)) {
+				
+				charset = ANSI;
+			}
+			
+			CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			CharBuffer chars = CharBuffer.allocate(8192);
+			RegFileReader reader = new RegFileReader(handler);
+			
+			while(position < size) {
+				
+				long length = Math.min(WINDOW_SIZE, size - position);
+				boolean last = position + length == size;
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				CoderResult result = null;
+				
+				do {
+					
+					result = decoder.decode(window, chars, last);
+					
+					if(result.isError()) {
+						
+						result.throwException();
+					}
+					
+					chars.flip();
+					reader.read(chars.array(), 0, chars.limit());
+					chars.clear();
+					
+				} while(result.isOverflow());
+				
+				// a character that has been split by the end of the window is decoded with the next window
+				position += window.position();
+				
+				if(last) {
+					
+					break;
+				}
+			}
+			
+			decoder.flush(chars);
+			chars.flip();
+			reader.read(chars.array(), 0, chars.limit());
+			reader.finish();
+		}
+	}
+	
+	/**
+	 * @param input the content of a .reg file; will not be closed
+	 * @param handler receives the keys and values
+	 * @throws IOException if the input could not be read or is not a valid .reg file
+	 */
+	static final void read(Reader input, RegFile.Handler handler) throws IOException {
+		
+		RegFileReader reader = new RegFileReader(handler);
+		char[] buffer = new char[8192];
+		int read = 0;
+		
+		while((read = input.read(buffer)) != -1) {
+			
+			reader.read(buffer, 0, read);
+		}
+		
+		reader.finish();
+	}
+	
+	private static final boolean startsWith(ByteBuffer buffer, int... prefix) {
+		
+		if(buffer.remaining() < prefix.length) {
+			
+			return false;
+		}
+		
+		for(int index = 0; index < prefix.length; index++) {
+			
+			if((buffer.get(index) & 0xFF) != prefix[index]) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private final void read(char[] buffer, int offset, int length) throws IOException {
+		
+		for(int index = offset; index < offset + length; index++) {
+			
+			char character = buffer[index];
+			
+			if(character == '\n') {
+				
+				this.endLine();
+				
+			} else if(character != '\r' && !(this.continued && (character == ' ' || character == '\t'))) {
+				
+				this.continued = false;
+				
+				if(this.length == this.line.length) {
+					
+					this.line = Arrays.copyOf(this.line, this.length * 2);
+				}
+				
+				this.line[this.length++] = character;
+			}
+		}
+	}
+	
+	private final void finish() throws IOException {
+		
+		this.endLine();
+		
+		if(!this.headerRead) {
+			
+			throw new IOException(ERROR_NO_SCRIPT);
+		}
+	}
+	
+	private final void endLine() throws IOException {
+		
+		this.lineNumber++;
+		boolean continues = this.length > 0 && this.line[this.length - 1] == '\\';
+		
+		// hex lists are split into several lines that end with a backslash; every line is decoded as soon as it has been read
+		if(this.hex) {
+			
+			this.decodeHex(0, continues ? this.length - 1 : this.length);
+			this.length = 0;
+			this.continued = continues;
+			
+			if(!continues) {
+				
+				this.hex = false;
+				this.endHex();
+			}
+			
+			return;
+		}
+		
+		if(continues && this.isHexValue()) {
+			
+			this.hex = true;
+			this.parseValue(0, this.length - 1);
+			this.length = 0;
+			this.continued = true;
+			return;
+		}
+		
+		int end = this.length;
+		
+		while(end > 0 && (this.line[end - 1] == ' ' || this.line[end - 1] == '\t')) {
+			
+			end--;
+		}
+		
+		int start = 0;
+		
+		while(start < end && (this.line[start] == ' ' || this.line[start] == '\t' || this.line[start] == '\uFEFF')) {
+			
+			start++;
+		}
+		
+		this.length = 0;
+		this.continued = false;
+		
+		if(start == end || this.line[start] == ';') {
+			
+			return;
+		}
+		
+		if(!this.headerRead) {
+			
+			String header = new String(this.line, start, end - start);
+			
+			if(header.equals(HEADER4)) {
+				
+				this.ansi = true;
+				
+			} else if(!header.equals(RegFileWriter.HEADER)) {
+				
+				throw new IOException(ERROR_NO_SCRIPT);
+			}
+			
+			this.headerRead = true;
+			
+		} else if(this.line[start] == '[') {
+			
+			int close = end - 1;
+			
+			while(close > start && this.line[close] != ']') {
+				
+				close--;
+			}
+			
+			if(close == start) {
+				
+				throw this.syntaxError();
+			}
+			
+			if(this.line[start + 1] == '-') {
+				
+				this.handler.deleteKey(new String(this.line, start + 2, close - start - 2));
+				
+			} else {
+				
+				this.handler.key(new String(this.line, start + 1, close - start - 1));
+			}
+			
+		} else {
+			
+			this.parseValue(start, end);
+		}
+	}
+	
+	private final void parseValue(int start, int end) throws IOException {
+		
+		int equals = this.findEquals(start, end);
+		
+		if(equals == -1) {
+			
+			throw this.syntaxError();
+		}
+		
+		String name = this.line[start] == '@' ? null : this.unescape(start + 1, equals - 1);
+		int data = equals + 1;
+		
+		if(data == end - 1 && this.line[data] == '-') {
+			
+			this.handler.deleteValue(name);
+			
+		} else if(data < end && this.line[data] == '"') {
+			
+			if(end - data < 2 || this.line[end - 1] != '"') {
+				
+				throw this.syntaxError();
+			}
+			
+			String string = this.unescape(data + 1, end - 1);
+			this.handler.value(name, RegistryValue.Type.REG_SZ, string.isEmpty() ? null : string);
+			
+		} else if(this.startsWith(data, end, "dword:")) {
+			
+			try {
+				
+				this.handler.value(name, RegistryValue.Type.REG_DWORD, "0x" + Integer.toHexString(Integer.parseUnsignedInt(new String(this.line, data + 6, end - data - 6), 16)));
+				
+			} catch(NumberFormatException exception) {
+				
+				throw this.syntaxError();
+			}
+			
+		} else if(this.startsWith(data, end, "hex")) {
+			
+			int type = RegistryValue.Type.REG_BINARY.getCode();
+			int colon = data + 3;
+			
+			if(colon < end && this.line[colon] == '(') {
+				
+				int close = colon;
+				
+				while(close < end && this.line[close] != ')') {
+					
+					close++;
+				}
+				
+				try {
+					
+					type = Integer.parseInt(new String(this.line, colon + 1, close - colon - 1), 16);
+					
+				} catch(NumberFormatException exception) {
+					
+					throw this.syntaxError();
+				}
+				
+				colon = close + 1;
+			}
+			
+			if(colon >= end || this.line[colon] != ':') {
+				
+				throw this.syntaxError();
+			}
+			
+			this.parseHex(name, type, colon + 1, end);
+			
+		} else {
+			
+			throw this.syntaxError();
+		}
+	}
+	
+	private final void parseHex(String name, int code, int start, int end) throws IOException {
+		
+		this.hexName = name;
+		this.hexType = code;
+		this.bytes.clear();
+		this.decodeHex(start, end);
+		
+		// otherwise the list is continued on the next line
+		if(!this.hex) {
+			
+			this.endHex();
+		}
+	}
+	
+	private final void decodeHex(int start, int end) throws IOException {
+		
+		// a byte may be split across two lines
+		int needed = (end - start + 1) / 2;
+		
+		if(this.bytes.remaining() < needed) {
+			
+			ByteBuffer bytes = ByteBuffer.allocate(Math.max(this.bytes.capacity() * 2, this.bytes.position() + needed)).order(ByteOrder.LITTLE_ENDIAN);
+			this.bytes.flip();
+			bytes.put(this.bytes);
+			this.bytes = bytes;
+		}
+		
+		try {
+			
+			this.decoder.update(this.line, start, end - start, this.bytes);
+			
+		} catch(NumberFormatException exception) {
+			
+			throw this.syntaxError();
+		}
+	}
+	
+	private final void endHex() throws IOException {
+		
+		try {
+			
+			this.decoder.finish();
+			
+		} catch(NumberFormatException exception) {
+			
+			throw this.syntaxError();
+		}
+		
+		String name = this.hexName;
+		this.hexName = null;
+		this.bytes.flip();
+		RegistryValue.Type type = RegistryValue.Type.getTypeByCode(this.hexType);
+		
+		if(type == null) {
+			
+			type = RegistryValue.Type.REG_BINARY;
+		}
+		
+		switch(type) {
+			
+			case REG_SZ:
+			case REG_EXPAND_SZ:
+				String string = this.decodeString();
+				this.handler.value(name, type, string.isEmpty() ? null : string);
+				break;
+			
+			case REG_MULTI_SZ:
+				
+				StringBuilder builder = new StringBuilder();
+				
+				for(String element : this.decodeString().split("\0")) {
+					
+					if(!element.isEmpty()) {
+						
+						builder.append(builder.length() > 0 ? "\\0" : "").append(element);
+					}
+				}
+				
+				this.handler.value(name, type, builder.length() > 0 ? builder.toString() : null);
+				break;
+			
+			case REG_DWORD:
+				this.handler.value(name, type, "0x" + Integer.toHexString(this.bytes.remaining() >= 4 ? this.bytes.getInt(0) : (int)this.readNumber()));
+				break;
+			
+			case REG_QWORD:
+				this.handler.value(name, type, "0x" + Long.toHexString(this.bytes.remaining() >= 8 ? this.bytes.getLong(0) : this.readNumber()));
+				break;
+			
+			default:
+				
+				byte[] data = new byte[this.bytes.remaining()];
+				this.bytes.get(data);
+				this.handler.value(name, type, data.length > 0 ? RegistryValue.Type.REG_BINARY.formatValue(data) : null);
+				break;
+		}
+	}
+	
+	private final long readNumber() {
+		
+		// missing bytes are treated as 0
+		long number = 0;
+		
+		for(int index = 0; index < this.bytes.remaining(); index++) {
+			
+			number |= (this.bytes.get(index) & 0xFFL) << (index * 8);
+		}
+		
+		return number;
+	}
+	
+	private final String decodeString() {
+		
+		String string = (this.ansi ? ANSI : StandardCharsets.UTF_16LE).decode(this.bytes).toString();
+		int end = string.length();
+		
+		while(end > 0 && string.charAt(end - 1) == '\0') {
+			
+			end--;
+		}
+		
+		return string.substring(0, end);
+	}
+	
+	private final boolean isHexValue() {
+		
+		int equals = this.findEquals(0, this.length);
+		return equals != -1 && this.startsWith(equals + 1, this.length, "hex");
+	}
+	
+	private final int findEquals(int start, int end) {
+		
+		if(this.line[start] == '@') {
+			
+			return start + 1 < end && this.line[start + 1] == '=' ? start + 1 : -1;
+		}
+		
+		if(this.line[start] != '"') {
+			
+			return -1;
+		}
+		
+		for(int index = start + 1; index < end; index++) {
+			
+			char character = this.line[index];
+			
+			if(character == '\\') {
+				
+				index++;
+				
+			} else if(character == '"') {
+				
+				return index + 1 < end && this.line[index + 1] == '=' ? index + 1 : -1;
+			}
+		}
+		
+		return -1;
+	}
+	
+	private final boolean startsWith(int start, int end, String prefix) {
+		
+		if(end - start < prefix.length()) {
+			
+			return false;
+		}
+		
+		for(int index = 0; index < prefix.length(); index++) {
+			
+			if(Character.toLowerCase(this.line[start + index]) != prefix.charAt(index)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private final String unescape(int start, int end) {
+		
+		StringBuilder builder = new StringBuilder(end - start);
+		
+		for(int index = start; index < end; index++) {
+			
+			char character = this.line[index];
+			
+			if(character == '\\' && index + 1 < end) {
+				
+				character = this.line[++index];
+			}
+			
+			builder.append(character);
+		}
+		
+		return builder.toString();
+	}
+	
+	private final IOException syntaxError() {
+		
+		return new IOException(ERROR_SYNTAX + " (line " + this.lineNumber + ")");
+	}
+}
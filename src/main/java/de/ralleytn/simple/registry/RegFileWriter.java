@@ -0,0 +1,297 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes files in the format of "Windows Registry Editor Version 5.00" as they are understood by {@code reg import} and {@code regedit}.
+ * The files are encoded in UTF-16LE with a byte order mark and use CRLF line endings.
+ * Values are passed in the same form in which {@linkplain RegistryValue#getValue()} returns them.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class RegFileWriter implements Closeable, Flushable {
+	
+	static final String HEADER = "Windows Registry Editor Version 5.00";
+	
+	private static final String LINE_SEPERATOR = "\r\n";
+	private static final int MAXIMUM_LINE_LENGTH = 80;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	private final Writer writer;
+	private String currentKey;
+	
+	RegFileWriter(OutputStream output) throws IOException {
+		
+		this.writer = new OutputStreamWriter(output, StandardCharsets.UTF_16LE);
+		this.writer.write('\uFEFF');
+		this.writer.write(HEADER);
+		this.writer.write(LINE_SEPERATOR);
+	}
+	
+	/**
+	 * Starts the section of a key.
+	 * Nothing is written if the last section belongs to the same key.
+	 * @param path path of the key
+	 * @throws IOException if an error occurs
+	 */
+	final void writeKey(String path) throws IOException {
+		
+		if(!path.equals(this.currentKey)) {
+			
+			this.writer.write(LINE_SEPERATOR);
+			this.writer.write('[');
+			this.writer.write(path);
+			this.writer.write(']');
+			this.writer.write(LINE_SEPERATOR);
+			this.currentKey = path;
+		}
+	}
+	
+	/**
+	 * @param path path of the key that should be deleted with all of its subkeys
+	 * @throws IOException if an error occurs
+	 */
+	final void writeDeleteKey(String path) throws IOException {
+		
+		this.writer.write(LINE_SEPERATOR);
+		this.writer.write("[-");
+		this.writer.write(path);
+		this.writer.write(']');
+		this.writer.write(LINE_SEPERATOR);
+		this.currentKey = null;
+	}
+	
+	/**
+	 * @param name name of the value that should be deleted; {@code null} for the default value
+	 * @throws IOException if an error occurs
+	 */
+	final void writeDeleteValue(String name) throws IOException {
+		
+		this.writeName(name);
+		this.writer.write('-');
+		this.writer.write(LINE_SEPERATOR);
+	}
+	
+	/**
+	 * @param name name of the value; {@code null} for the default value
+	 * @param type data type of the value
+	 * @param value the value data
+	 * @throws IOException if an error occurs
+	 */
+	final void writeValue(String name, RegistryValue.Type type, Object value) throws IOException {
+		
+		switch(type) {
+			
+			case REG_SZ:
+				
+				String string = value == null ? "" : (String)value;
+				
+				// line breaks cannot be written as a string
+				if(string.indexOf('\r') == -1 && string.indexOf('\n') == -1) {
+					
+					this.writeName(name);
+					this.writer.write('"');
+					this.writer.write(RegFileWriter.escape(string));
+					this.writer.write('"');
+					this.writer.write(LINE_SEPERATOR);
+					
+				} else {
+					
+					this.writeHex(name, "hex(1):", RegFileWriter.encodeString(string));
+				}
+				
+				break;
+			
+			case REG_EXPAND_SZ:
+				this.writeHex(name, "hex(2):", RegFileWriter.encodeString(value == null ? "" : (String)value));
+				break;
+			
+			case REG_DWORD:
+				this.writeName(name);
+				this.writer.write("dword:");
+				this.writer.write(String.format("%08x", value == null ? 0 : (Integer)value));
+				this.writer.write(LINE_SEPERATOR);
+				break;
+			
+			case REG_QWORD:
+				
+				long number = value == null ? 0L : (Long)value;
+				byte[] bytes = new byte[8];
+				
+				for(int index = 0; index < bytes.length; index++) {
+					
+					bytes[index] = (byte)(number >>> (index * 8));
+				}
+				
+				this.writeHex(name, "hex(b):", bytes);
+				break;
+			
+			case REG_MULTI_SZ:
+				
+				@SuppressWarnings("unchecked")
+				List<String> strings = (List<String>)value;
+				StringBuilder builder = new StringBuilder();
+				
+				if(strings != null) {
+					
+					for(String element : strings) {
+						
+						builder.append(element).append('\0');
+					}
+				}
+				
+				this.writeHex(name, "hex(7):", RegFileWriter.encodeString(builder.toString()));
+				break;
+			
+			case REG_BINARY:
+				this.writeHex(name, "hex:", value == null ? new byte[0] : (byte[])value);
+				break;
+			
+			default:
+				
+				// REG_NONE and REG_FULL_RESOURCE_DESCRIPTOR are represented as hex strings
+				this.writeHex(name, "hex(" + Integer.toHexString(type.getCode()) + "):", value == null ? new byte[0] : HexDecoder.decode((String)value));
+				break;
+		}
+	}
+	
+	/**
+	 * Writes a value that has been read from the registry.
+	 * @param value the value
+	 * @throws IOException if an error occurs
+	 */
+	final void writeValue(RegistryValue value) throws IOException {
+		
+		this.writeValue(value.isDefaultValue() ? null : value.getName(), value);
+	}
+	
+	/**
+	 * Writes a value that has been read from the registry with the given name.
+	 * @param name name of the value, or {@code null} for the default value
+	 * @param value the value
+	 * @throws IOException if an error occurs
+	 */
+	final void writeValue(String name, RegistryValue value) throws IOException {
+		
+		// the variables in REG_EXPAND_SZ values must not be expanded
+		this.writeValue(name, value.getType(), value.getType() == RegistryValue.Type.REG_EXPAND_SZ ? value.getRawValue() : value.getValue());
+	}
+	
+	/**
+	 * Writes a key with all of its values and subkeys.
+	 * @param key the key
+	 * @throws IOException if an error occurs
+	 */
+	final void writeTree(RegistryKey key) throws IOException {
+		
+		this.writeKey(key.getPath());
+		
+		for(RegistryValue value : key.getValues()) {
+			
+			this.writeValue(value);
+		}
+		
+		for(RegistryKey child : key.getChilds()) {
+			
+			this.writeTree(child);
+		}
+	}
+	
+	@Override
+	public final void flush() throws IOException {
+		
+		this.writer.flush();
+	}
+	
+	@Override
+	public final void close() throws IOException {
+		
+		this.writer.close();
+	}
+	
+	private final int writeName(String name) throws IOException {
+		
+		if(name == null) {
+			
+			this.writer.write("@=");
+			return 2;
+		}
+		
+		String escaped = RegFileWriter.escape(name);
+		this.writer.write('"');
+		this.writer.write(escaped);
+		this.writer.write("\"=");
+		return escaped.length() + 3;
+	}
+	
+	private final void writeHex(String name, String prefix, byte[] data) throws IOException {
+		
+		int length = this.writeName(name) + prefix.length();
+		this.writer.write(prefix);
+		
+		for(int index = 0; index < data.length; index++) {
+			
+			this.writer.write(HEX_DIGITS[(data[index] >> 4) & 0xF]);
+			this.writer.write(HEX_DIGITS[data[index] & 0xF]);
+			length += 2;
+			
+			if(index < data.length - 1) {
+				
+				this.writer.write(',');
+				length++;
+				
+				// the next byte, its comma and the backslash have to fit into the line
+				if(length + 4 > MAXIMUM_LINE_LENGTH) {
+					
+					this.writer.write('\\');
+					this.writer.write(LINE_SEPERATOR);
+					this.writer.write("  ");
+					length = 2;
+				}
+			}
+		}
+		
+		this.writer.write(LINE_SEPERATOR);
+	}
+	
+	private static final byte[] encodeString(String string) {
+		
+		return (string + '\0').getBytes(StandardCharsets.UTF_16LE);
+	}
+	
+	private static final String escape(String string) {
+		
+		return string.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads the output of {@code reg query} in a single pass and reports every key and value to a {@linkplain Handler} as soon as it has been read.
+ * Works for the output of a single key as well as for the recursive output with {@code /s}.
+ * The output is scanned character by character in a reusable buffer; only the names, data and paths that are handed to the handler are turned into strings.
+ * The data type is found by looking for a known data type name, so names and data may contain four spaces or any other character.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class RegQueryParser {
+	
+	private static final int INDENT = 4;
+	private static final char[] KEY_PREFIX = "HKEY_".toCharArray();
+	private static final char[] TYPE_PREFIX = "REG_".toCharArray();
+	private static final RegistryValue.Type[] TYPES = RegistryValue.Type.values();
+	private static final char[][] TYPE_NAMES = new char[TYPES.length][];
+	
+	static {
+		
+		for(int index = 0; index < TYPES.length; index++) {
+			
+			TYPE_NAMES[index] = TYPES[index].name().toCharArray();
+		}
+	}
+	
+	private final Handler handler;
+	private final char[] buffer;
+	private char[] line;
+	private int length;
+	
+	private RegQueryParser(Handler handler) {
+		
+		this.handler = handler;
+		this.buffer = new char[8192];
+		this.line = new char[256];
+	}
+	
+	/**
+	 * @param reader the output of {@code reg query}; will not be closed
+	 * @param handler receives the keys and values
+	 * @throws IOException if an error occurs
+	 */
+	static final void parse(Reader reader, Handler handler) throws IOException {
+		
+		new RegQueryParser(handler).read(reader);
+	}
+	
+	private final void read(Reader reader) throws IOException {
+		
+		int read = 0;
+		
+		while((read = reader.read(this.buffer)) != -1) {
+			
+			for(int index = 0; index < read; index++) {
+				
+				char character = this.buffer[index];
+				
+				if(character == '\n') {
+					
+					this.parseLine();
+					this.length = 0;
+					
+				} else if(character != '\r') {
+					
+					if(this.length == this.line.length) {
+						
+						this.line = Arrays.copyOf(this.line, this.length * 2);
+					}
+					
+					this.line[this.length++] = character;
+				}
+			}
+		}
+		
+		this.parseLine();
+	}
+	
+	private final void parseLine() throws IOException {
+		
+		int end = this.length;
+		
+		if(this.startsWith(0, KEY_PREFIX)) {
+			
+			while(end > 0 && this.line[end - 1] == ' ') {
+				
+				end--;
+			}
+			
+			this.handler.key(new String(this.line, 0, end));
+			
+		} else if(end > INDENT && this.isIndent(0)) {
+			
+			// the name needs at least one character
+			for(int index = INDENT + 1; index + INDENT + TYPE_PREFIX.length <= end; index++) {
+				
+				if(this.isIndent(index) && this.startsWith(index + INDENT, TYPE_PREFIX)) {
+					
+					int typeStart = index + INDENT;
+					int typeEnd = typeStart;
+					
+					while(typeEnd < end && this.line[typeEnd] != ' ') {
+						
+						typeEnd++;
+					}
+					
+					RegistryValue.Type type = this.getType(typeStart, typeEnd);
+					
+					if(type != null && (typeEnd == end || (typeEnd + INDENT <= end && this.isIndent(typeEnd)))) {
+						
+						int dataStart = Math.min(typeEnd + INDENT, end);
+						this.handler.value(new String(this.line, INDENT, index - INDENT), type, dataStart == end ? null : new String(this.line, dataStart, end - dataStart));
+						return;
+					}
+				}
+			}
+		}
+		
+		// empty lines and the summary at the end of a search are skipped
+	}
+	
+	private final boolean isIndent(int offset) {
+		
+		return this.line[offset] == ' ' && this.line[offset + 1] == ' ' && this.line[offset + 2] == ' ' && this.line[offset + 3] == ' ';
+	}
+	
+	private final boolean startsWith(int offset, char[] prefix) {
+		
+		if(offset + prefix.length > this.length) {
+			
+			return false;
+		}
+		
+		for(int index = 0; index < prefix.length; index++) {
+			
+			if(this.line[offset + index] != prefix[index]) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private final RegistryValue.Type getType(int start, int end) {
+		
+		for(int index = 0; index < TYPES.length; index++) {
+			
+			char[] name = TYPE_NAMES[index];
+			
+			if(name.length == end - start && this.startsWith(start, name)) {
+				
+				return TYPES[index];
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Receives the keys and values that are read by a {@linkplain RegQueryParser}.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	static interface Handler {
+		
+		/**
+		 * Is called for every key. All values that follow belong to this key.
+		 * @param path path of the key
+		 * @throws IOException if an error occurs
+		 */
+		void key(String path) throws IOException;
+		
+		/**
+		 * @param name name of the value
+		 * @param type data type of the value
+		 * @param rawValue the value data as it was printed, or {@code null} if there is none
+		 * @throws IOException if an error occurs
+		 */
+		void value(String name, RegistryValue.Type type, String rawValue) throws IOException;
+	}
+}
@@ -23,18 +23,23 @@
  */
 package de.ralleytn.simple.registry;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
 
 /**
  * Provides access to the Windows registry file.
+ * The actual work is done by a {@linkplain RegistryBackend}.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 1.1.0
+ * @version 2.1.0
  * @since 1.0.0
  */
 public final class Registry {
@@ -46,8 +51,111 @@ public final class Registry {
 	/** @since 1.0.0 */ public static final String HKEY_CURRENT_CONFIG = "HKEY_CURRENT_CONFIG";
 	/** @since 1.0.0 */ public static final String HKEY_DYN_DATA = "HKEY_DYN_DATA";
 	
+	private static final String[][] ROOT_ALIASES = {
+		
+		{"HKCR", Registry.HKEY_CLASSES_ROOT},
+		{"HKCU", Registry.HKEY_CURRENT_USER},
+		{"HKLM", Registry.HKEY_LOCAL_MACHINE},
+		{"HKU", Registry.HKEY_USERS},
+		{"HKCC", Registry.HKEY_CURRENT_CONFIG}
+	};
+	
+	private static final String BACKEND_PROPERTY = "de.ralleytn.simple.registry.backend";
+	
+	// a recursive query is only used for a key that is neither a root key nor directly below one, like "Software"
+	private static final int MIN_PARENT_DEPTH = 3;
+	
+	private static final SingleFlight<RegistryKey> KEY_CALLS = new SingleFlight<>(RegistryKey::copy);
+	private static final SingleFlight<RegistryValue> VALUE_CALLS = new SingleFlight<>(RegistryValue::copy);
+	
+	private static volatile RegistryBackend backend;
+	private static volatile RegistryMetrics metrics = RegistryMetrics.NONE;
+	
 	private Registry() {}
 	
+	/**
+	 * Sets the engine that is used to access the registry.
+	 * @param backend the engine
+	 * @since 2.1.0
+	 */
+	public static final void setBackend(RegistryBackend backend) {
+		
+		if(backend == null) {
+			
+			throw new NullPointerException("backend");
+		}
+		
+		Registry.backend = backend;
+	}
+	
+	/**
+	 * Forgets the engine that has been set, so that the next access loads the first one that is supported on the current system again.
+	 * Useful for tests that set their own engine.
+	 * @since 2.1.0
+	 */
+	public static final void resetBackend() {
+		
+		Registry.backend = null;
+	}
+	
+	/**
+	 * If no engine has been set, the first one that is supported on the current system is loaded.
+	 * @return the engine that is used to access the registry
+	 * @throws IllegalStateException if no engine has been set and none is supported on the current system
+	 * @since 2.1.0
+	 */
+	public static final RegistryBackend getBackend() {
+		
+		RegistryBackend backend = Registry.backend;
+		
+		if(backend == null) {
+			
+			synchronized(Registry.class) {
+				
+				backend = Registry.backend;
+				
+				if(backend == null) {
+					
+					backend = Registry.loadBackend();
+					Registry.backend = backend;
+				}
+			}
+		}
+		
+		return backend;
+	}
+	
+	/**
+	 * Sets the listener that is told how long the operations take and how they went.
+	 * @param metrics the listener, or {@code null} to stop measuring
+	 * @since 2.1.0
+	 */
+	public static final void setMetrics(RegistryMetrics metrics) {
+		
+		Registry.metrics = metrics != null ? metrics : RegistryMetrics.NONE;
+	}
+	
+	/**
+	 * @return the listener that is told how long the operations take and how they went; {@linkplain RegistryMetrics#NONE} if none has been set
+	 * @since 2.1.0
+	 */
+	public static final RegistryMetrics getMetrics() {
+		
+		return Registry.metrics;
+	}
+	
+	/**
+	 * Sets the environment variables with which the references in {@linkplain RegistryValue.Type#REG_EXPAND_SZ} values are expanded.
+	 * The variables are copied and their names are looked up without regard to case.
+	 * Values that have already been expanded are not affected.
+	 * @param environment the environment variables, or {@code null} to use the environment variables of this process again
+	 * @since 2.1.0
+	 */
+	public static final void setEnvironment(Map<String, String> environment) {
+		
+		RegistryEnvironment.set(environment);
+	}
+	
 	/**
 	 * Deletes all values of a registry key.
 	 * @param path path of the key
@@ -56,7 +164,7 @@ public final class Registry {
 	 */
 	public static final void deleteAllValues(String path) throws IOException {
 		
-		Registry.exec("reg delete \"" + path + "\" /va /f");
+		Registry.getBackend().deleteAllValues(path);
 	}
 	
 	/**
@@ -67,7 +175,7 @@ public final class Registry {
 	 */
 	public static final void deleteDefaultValue(String path) throws IOException {
 		
-		Registry.exec("reg delete \"" + path + "\" /ve /f");
+		Registry.getBackend().deleteDefaultValue(path);
 	}
 	
 	/**
@@ -79,7 +187,7 @@ public final class Registry {
 	 */
 	public static final void deleteValue(String path, String name) throws IOException {
 		
-		Registry.exec("reg delete \"" + path + "\" /v " + name + " /f");
+		Registry.getBackend().deleteValue(path, name);
 	}
 	
 	/**
@@ -94,7 +202,7 @@ public final class Registry {
 	 */
 	public static final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
 		
-		Registry.exec("reg add \"" + path + "\" /v " + name + " /t " + type.name() + (type == RegistryValue.Type.REG_MULTI_SZ ? " /s " + seperator : "") + " /d \"" + rawValue + "\" /f");
+		Registry.getBackend().setValue(path, name, type, seperator, rawValue);
 	}
 	
 	/**
@@ -108,10 +216,11 @@ public final class Registry {
 	 */
 	public static final void setDeafultValue(String path, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
 		
-		Registry.exec("reg add \"" + path + "\" /ve /t " + type.name() + (type == RegistryValue.Type.REG_MULTI_SZ ? " /s " + seperator : "") + " /d \"" + rawValue + "\" /f");
+		Registry.getBackend().setDefaultValue(path, type, seperator, rawValue);
 	}
 
 	/**
+	 * Threads that request the same value at the same time share one call to the backend; each of them gets its own copy of the result.
 	 * @param path path of the key
 	 * @param name name of the value
 	 * @return a value
@@ -120,18 +229,93 @@ public final class Registry {
 	 */
 	public static final RegistryValue getValue(String path, String name) throws IOException {
 		
-		String result = Registry.exec("reg query \"" + path + "\" /v " + name);
-
-		for(String line : result.split("\n")) {
+		String realPath = Registry.normalizePath(path);
+		RegistryBackend backend = Registry.getBackend();
+		return VALUE_CALLS.execute(Arrays.asList(backend, realPath, name), () -> backend.getValue(realPath, name));
+	}
+	
+	/**
+	 * Reads many values of many keys at once.
+	 * Every key is only read once, no matter how many of its values are requested.
+	 * If a key is requested together with most of its subkeys, they are all read with a single recursive query, otherwise every key is read on its own.
+	 * A value name of {@code null} stands for the default value.
+	 * @param request the names of the values that should be read by the path of their key
+	 * @return the values by name by path, in the order of the request; values or keys that do not exist are {@linkplain Optional#empty()}
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public static final Map<String, Map<String, Optional<RegistryValue>>> getValues(Map<String, ? extends Collection<String>> request) throws IOException {
+		
+		RegistryBackend backend = Registry.getBackend();
+		Map<RegistryPath, Boolean> paths = new LinkedHashMap<>();
+		
+		// paths that only differ in the spelling are the same key
+		for(Map.Entry<String, ? extends Collection<String>> entry : request.entrySet()) {
+			
+			boolean defaultValue = false;
 			
-			if(line.startsWith(" >")) {
+			for(String name : entry.getValue()) {
 				
-				String[] valueAttribs = line.substring(2).split("\\|");
-				return new RegistryValue(valueAttribs[0], RegistryValue.Type.getTypeByName(valueAttribs[1]), valueAttribs.length == 2 ? null : valueAttribs[2], path);
+				defaultValue |= name == null;
 			}
+			
+			paths.merge(RegistryPath.of(entry.getKey()), defaultValue, Boolean::logicalOr);
 		}
 		
-		return null;
+		Map<RegistryPath, RegistryKey> keys = new HashMap<>();
+		RegistryPath parentPath = Registry.getRequestedParent(paths.keySet());
+		
+		if(parentPath != null) {
+			
+			RegistryKey parent = Registry.readKey(() -> backend.getKey(parentPath.toString(), paths.get(parentPath)));
+			keys.put(parentPath, parent);
+			
+			if(parent == null) {
+				
+				// the subkeys can not exist either
+				for(RegistryPath path : paths.keySet()) {
+					
+					keys.put(path, null);
+				}
+				
+			} else {
+				
+				RegistrySnapshot snapshot = Registry.snapshotSubkeys(backend, parent, paths.keySet());
+				
+				if(snapshot != null) {
+					
+					for(RegistryPath path : paths.keySet()) {
+						
+						keys.putIfAbsent(path, Registry.readKey(() -> snapshot.getKey(path.toString())));
+					}
+				}
+			}
+		}
+		
+		for(Map.Entry<RegistryPath, Boolean> path : paths.entrySet()) {
+			
+			if(!keys.containsKey(path.getKey())) {
+				
+				keys.put(path.getKey(), Registry.readKey(() -> backend.getKey(path.getKey().toString(), path.getValue())));
+			}
+		}
+		
+		Map<String, Map<String, Optional<RegistryValue>>> result = new LinkedHashMap<>();
+		
+		for(Map.Entry<String, ? extends Collection<String>> entry : request.entrySet()) {
+			
+			RegistryKey key = keys.get(RegistryPath.of(entry.getKey()));
+			Map<String, Optional<RegistryValue>> values = new LinkedHashMap<>();
+			
+			for(String name : entry.getValue()) {
+				
+				values.put(name, key == null ? Optional.empty() : Optional.ofNullable(name == null ? key.getDefaultValue() : key.getValueByName(name)));
+			}
+			
+			result.put(entry.getKey(), values);
+		}
+		
+		return result;
 	}
 	
 	/**
@@ -142,7 +326,7 @@ public final class Registry {
 	 */
 	public static final void importFile(File file) throws IOException {
 		
-		Registry.exec("reg import \"" + file.getAbsolutePath() + "\"");
+		Registry.getBackend().importFile(file);
 	}
 	
 	/**
@@ -154,7 +338,7 @@ public final class Registry {
 	 */
 	public static final void exportKey(String path, File exportFile) throws IOException {
 		
-		Registry.exec("reg export \"" + path + "\" \"" + exportFile.getAbsolutePath() + "\" /y");
+		Registry.getBackend().exportKey(path, exportFile);
 	}
 	
 	/**
@@ -165,7 +349,7 @@ public final class Registry {
 	 */
 	public static final void deleteKey(String path) throws IOException {
 		
-		Registry.exec("reg delete \"" + path + "\" /f");
+		Registry.getBackend().deleteKey(path);
 	}
 	
 	/**
@@ -176,10 +360,11 @@ public final class Registry {
 	 */
 	public static final void setKey(String path) throws IOException {
 		
-		Registry.exec("reg add \"" + path + "\" /f");
+		Registry.getBackend().setKey(path);
 	}
 	
 	/**
+	 * Threads that request the same key at the same time share one call to the backend; each of them gets its own copy of the result.
 	 * @param path path of the key
 	 * @return key with the specified path
 	 * @throws IOException if an error occurs
@@ -187,129 +372,193 @@ public final class Registry {
 	 */
 	public static final RegistryKey getKey(String path) throws IOException {
 		
-		String realPath = path.replace('/', '\\');
+		String realPath = Registry.normalizePath(path);
+		RegistryBackend backend = Registry.getBackend();
+		return KEY_CALLS.execute(Arrays.asList(backend, realPath), () -> backend.getKey(realPath));
+	}
+	
+	/**
+	 * Lazy keys are created without accessing the registry.
+	 * Their values and childs are read the first time one of them is needed and the default value is only read if it is requested.
+	 * Childs and parents of a lazy key are lazy as well.
+	 * If the key does not exist, the error will occur on first access.
+	 * @param path path of the key
+	 * @param lazy {@code true} if the key should be loaded on first access, {@code false} if it should be loaded immediately
+	 * @return key with the specified path
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public static final RegistryKey getKey(String path, boolean lazy) throws IOException {
 		
-		if(realPath.endsWith("\\")) {
+		return lazy ? new RegistryKey(Registry.normalizePath(path), Registry.getBackend()) : Registry.getKey(path);
+	}
+	
+	/**
+	 * Reads a key with all of its subkeys and values at once.
+	 * This is a lot faster than loading every key on its own if a whole subtree is needed.
+	 * @param path path of the key
+	 * @return an immutable snapshot of the key
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public static final RegistrySnapshot snapshot(String path) throws IOException {
+		
+		return Registry.getBackend().snapshot(Registry.normalizePath(path));
+	}
+	
+	private static final RegistryPath getRequestedParent(Collection<RegistryPath> paths) {
+		
+		// the parent is the shortest path, all others have to be its direct subkeys
+		RegistryPath parent = null;
+		
+		for(RegistryPath path : paths) {
 			
-			realPath = realPath.substring(0, realPath.length() - 1);
+			if(parent == null || path.getDepth() < parent.getDepth()) {
+				
+				parent = path;
+			}
 		}
 		
-		String name = null;
-		String parent = null;
-		
-		if(realPath.contains("\\")) {
+		if(paths.size() < 3 || parent.getDepth() < MIN_PARENT_DEPTH) {
 			
-			String[] parts = realPath.split("\\\\");
-			name = parts[parts.length - 1];
+			return null;
+		}
+		
+		for(RegistryPath path : paths) {
 			
-			StringBuilder parentPathBuilder = new StringBuilder();
-			boolean first = true;
+			if(path != parent && !parent.equals(path.getParent())) {
+				
+				return null;
+			}
+		}
+		
+		return parent;
+	}
+	
+	private static final RegistrySnapshot snapshotSubkeys(RegistryBackend backend, RegistryKey parent, Collection<RegistryPath> paths) throws IOException {
+		
+		List<RegistryPath> childs = parent.getChildPaths();
+		int requested = 0;
+		
+		for(RegistryPath child : childs) {
 			
-			for(int index = 0; index < parts.length - 1; index++) {
+			if(paths.contains(child)) {
 				
-				if(first) {
-					
-					first = false;
-					
-				} else {
-					
-					parentPathBuilder.append('\\');
-				}
+				requested++;
+			}
+		}
+		
+		// the recursive query only pays off if it reads little more than what has been requested
+		if(requested < 2 || requested * 2 <= childs.size()) {
+			
+			return null;
+		}
+		
+		try {
+			
+			return backend.snapshot(parent.getPath());
+			
+		} catch(IOException exception) {
+			
+			if(exception instanceof InterruptedIOException) {
 				
-				parentPathBuilder.append(parts[index]);
-				parent = parentPathBuilder.toString();
+				throw exception;
 			}
 			
-		} else {
+			// a single subkey that can not be read must not fail the whole request
+			return null;
+		}
+	}
+	
+	private static final <T> T readKey(SingleFlight.Call<T> call) throws IOException {
+		
+		try {
+			
+			return call.execute();
+			
+		} catch(RegistryNotFoundException exception) {
+			
+			// a key that does not exist has no values
+			return null;
+		}
+	}
+	
+	static final String normalizePath(String path) {
+		
+		String realPath = path.replace('/', '\\');
+		
+		if(realPath.endsWith("\\")) {
 			
-			name = realPath;
+			realPath = realPath.substring(0, realPath.length() - 1);
 		}
 		
-		return Registry.getKey(realPath, parent, name);
+		return realPath;
 	}
 	
-	private static final RegistryKey getKey(String realPath, String parent, String name) throws IOException {
+	static final String getHive(String path) {
+		
+		String lookupKey = Registry.toLookupKey(path);
+		int index = lookupKey.indexOf('\\');
+		return index != -1 ? lookupKey.substring(0, index) : lookupKey;
+	}
 	
-		String result = Registry.exec("reg query \"" + realPath + "\"");
+	static final String expandRoot(String name) {
 		
-		if(result != null) {
-			
-			List<String> childs = new ArrayList<>();
-			List<RegistryValue> values = new ArrayList<>();
-			RegistryValue defaultValue = null;
+		for(String[] alias : ROOT_ALIASES) {
 			
-			for(String line : result.split("\n")) {
-
-				if(line.startsWith(" >")) {
-					
-					String[] valueAttribs = line.substring(2).split("\\|");
-					
-					values.add(new RegistryValue(valueAttribs[0], RegistryValue.Type.getTypeByName(valueAttribs[1]), valueAttribs.length == 2 ? null : valueAttribs[2], realPath));
-					
-				} else if(!line.equals(realPath)){
-					
-					childs.add(line);
-				}
+			if(alias[0].equalsIgnoreCase(name)) {
+				
+				return alias[1];
 			}
+		}
+		
+		return name;
+	}
+	
+	static final String toLookupKey(String path) {
+		
+		// paths are case insensitive and the short names of the root keys are the same as the long ones
+		String lookupKey = NameIndex.fold(Registry.normalizePath(path));
+		
+		for(String[] alias : ROOT_ALIASES) {
 			
-			result = Registry.exec("reg query \"" + realPath + "\" /ve");
+			if(lookupKey.equals(alias[0]) || lookupKey.startsWith(alias[0] + '\\')) {
 				
-			for(String line : result.split("\n")) {
-					
-				if(line.startsWith(" >")) {
-						
-					String[] valueAttribs = line.substring(2).split("\\|");
-					defaultValue = new RegistryValue(valueAttribs[0], RegistryValue.Type.getTypeByName(valueAttribs[1]), valueAttribs.length == 2 ? null : valueAttribs[2], realPath);
-				}
+				return alias[1] + lookupKey.substring(alias[0].length());
 			}
-			
-			return new RegistryKey(realPath, name, values, defaultValue, parent, childs);
 		}
 		
-		return null;
+		return lookupKey;
 	}
 	
-	private static final String exec(String cmd) throws IOException {
+	private static final RegistryBackend loadBackend() {
 		
-		Process process = Runtime.getRuntime().exec("cmd /c " + cmd);
-		StringBuilder builder = new StringBuilder();
-		boolean first = true;
+		String preferred = System.getProperty(BACKEND_PROPERTY);
+		RegistryBackend supported = null;
 		
-		try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+		for(RegistryBackend backend : ServiceLoader.load(RegistryBackend.class)) {
 			
-			String line = null;
+			if(preferred != null && backend.getClass().getName().equals(preferred)) {
+				
+				return backend;
+			}
 			
-			while((line = reader.readLine()) != null) {
+			if(supported == null && backend.isSupported()) {
 				
-				if(!line.trim().isEmpty()) {
-						
-					if(first) {
-							
-						first = false;
-							
-					} else {
-							
-						builder.append('\n');
-					}
-						
-					if(line.startsWith("    ")) {
-							
-						line = " >" + line.substring(4).replace("    ", "|");
-					}
-						
-					builder.append(line);
-				}
+				supported = backend;
 			}
 		}
 		
-		if(process.exitValue() != 0) {
+		if(preferred != null) {
 			
-			try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
-				
-				throw new IOException(reader.readLine());
-			}
+			throw new IllegalStateException("The engine " + preferred + " could not be found");
+		}
+		
+		if(supported == null) {
+			
+			throw new IllegalStateException("No engine is supported on this system; choose one with Registry.setBackend(RegistryBackend) or the system property " + BACKEND_PROPERTY);
 		}
 		
-		return builder.toString();
+		return supported;
 	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Service interface for the engine that does the actual work behind the {@linkplain Registry} class.
+ * The engine is looked up with the {@linkplain java.util.ServiceLoader} the first time the {@linkplain Registry} class is used.
+ * The first engine that is supported on the current system will be chosen.
+ * If the system property {@code de.ralleytn.simple.registry.backend} is set, the engine with that class name will be preferred.
+ * If no engine is supported and none has been set, {@linkplain Registry#getBackend()} throws an {@linkplain IllegalStateException}.
+ * All paths that are given to an engine have already been normalized by the {@linkplain Registry} class.
+ * If a key or value that is read or deleted does not exist, an engine has to throw a {@linkplain RegistryNotFoundException}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public interface RegistryBackend {
+	
+	/**
+	 * @return {@code true} if this engine can be used on the current system, else {@code false}
+	 * @since 2.1.0
+	 */
+	public boolean isSupported();
+	
+	/**
+	 * @param path path of the key
+	 * @return key with the specified path
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public RegistryKey getKey(String path) throws IOException;
+	
+	/**
+	 * Reads a key, optionally without its default value.
+	 * Engines for which reading the default value is an extra operation should override this method.
+	 * @param path path of the key
+	 * @param loadDefaultValue {@code false} if the default value should only be read when it is requested
+	 * @return key with the specified path
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public default RegistryKey getKey(String path, boolean loadDefaultValue) throws IOException {
+		
+		return this.getKey(path);
+	}
+	
+	/**
+	 * Reads only the default value of a key.
+	 * Engines for which reading the default value on its own is cheaper than reading the whole key should override this method.
+	 * @param path path of the key
+	 * @return the default value, or {@code null} if the key has no default value
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public default RegistryValue getDefaultValue(String path) throws IOException {
+		
+		return this.getKey(path).getDefaultValue();
+	}
+	
+	/**
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @return a value
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public RegistryValue getValue(String path, String name) throws IOException;
+	
+	/**
+	 * Reads a key with all of its subkeys and values at once.
+	 * Engines that can read a whole subtree with a single operation should override this method.
+	 * @param path path of the key
+	 * @return an immutable snapshot of the key
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public default RegistrySnapshot snapshot(String path) throws IOException {
+		
+		return RegistrySnapshot.copy(this, path);
+	}
+	
+	/**
+	 * Adds or replaces a key.
+	 * @param path path of the key
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void setKey(String path) throws IOException;
+	
+	/**
+	 * Deletes a key and all of its subkeys.
+	 * @param path path of the key
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void deleteKey(String path) throws IOException;
+	
+	/**
+	 * Sets a value of a registry key.
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException;
+	
+	/**
+	 * Sets the default value of a registry key.
+	 * @param path path of the key
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) throws IOException;
+	
+	/**
+	 * Deletes a value from a registry key.
+	 * @param path path of the key
+	 * @param name name of the value that should be deleted
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void deleteValue(String path, String name) throws IOException;
+	
+	/**
+	 * Deletes the default value of a registry key.
+	 * @param path path of the key
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void deleteDefaultValue(String path) throws IOException;
+	
+	/**
+	 * Deletes all values of a registry key.
+	 * @param path path of the key
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void deleteAllValues(String path) throws IOException;
+	
+	/**
+	 * Imports keys and values from a file.
+	 * @param file file containing the data to import
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void importFile(File file) throws IOException;
+	
+	/**
+	 * Exports a registry key to a specified file.
+	 * @param path the key that should be exported
+	 * @param exportFile the export target
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public void exportKey(String path, File exportFile) throws IOException;
+	
+	/**
+	 * Discards everything this engine remembers about a key and its subkeys so that the next read goes to the registry itself.
+	 * Engines that do not cache anything can ignore this.
+	 * @param path path of the key
+	 * @since 2.1.0
+	 */
+	public default void invalidate(String path) {}
+}
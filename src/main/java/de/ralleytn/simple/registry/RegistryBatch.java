@@ -0,0 +1,533 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects changes and applies all of them with a single {@linkplain Registry#importFile(File)} call instead of one call per change.
+ * The changes are written into a temporary file in the format of "Windows Registry Editor Version 5.00" in the order in which they were added.
+ * Raw value data is expected in the same format as for {@linkplain Registry#setValue(String, String, RegistryValue.Type, char, String)}.
+ * If the import fails, the changes are applied one after another so that the result of every single change is known.
+ * <pre>
+ * List&lt;RegistryBatch.Operation&gt; results = key.edit()
+ *     .setValue("MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!")
+ *     .deleteValue("MyOldValue")
+ *     .apply();
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryBatch {
+	
+	private final RegistryBackend backend;
+	private final String path;
+	private final List<Operation> operations;
+	
+	/**
+	 * Creates a batch for the engine that is currently used by the {@linkplain Registry} class.
+	 * Only the methods that take a path can be used.
+	 * @since 2.1.0
+	 */
+	public RegistryBatch() {
+		
+		this(Registry.getBackend(), null);
+	}
+	
+	RegistryBatch(RegistryBackend backend, String path) {
+		
+		this.backend = backend;
+		this.path = path;
+		this.operations = new ArrayList<>();
+	}
+	
+	/**
+	 * Adds a key.
+	 * @param path path of the key
+	 * @return this batch
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch setKey(String path) {
+		
+		return this.add(new Operation(Operation.Kind.SET_KEY, Registry.normalizePath(path), null, null, '\0', null));
+	}
+	
+	/**
+	 * Deletes a key and all of its subkeys.
+	 * @param path path of the key
+	 * @return this batch
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch deleteKey(String path) {
+		
+		return this.add(new Operation(Operation.Kind.DELETE_KEY, Registry.normalizePath(path), null, null, '\0', null));
+	}
+	
+	/**
+	 * Sets a value of the key on which this batch was created.
+	 * @param name name of the value
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return this batch
+	 * @throws IllegalStateException if this batch was not created with {@linkplain RegistryKey#edit()}
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch setValue(String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		return this.setValue(this.getPath(), name, type, seperator, rawValue);
+	}
+	
+	/**
+	 * Sets a value of a key.
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return this batch
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		return this.add(new Operation(Operation.Kind.SET_VALUE, Registry.normalizePath(path), name, type, seperator, rawValue));
+	}
+	
+	/**
+	 * Sets the default value of the key on which this batch was created.
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return this batch
+	 * @throws IllegalStateException if this batch was not created with {@linkplain RegistryKey#edit()}
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch setDefaultValue(RegistryValue.Type type, char seperator, String rawValue) {
+		
+		return this.setDefaultValue(this.getPath(), type, seperator, rawValue);
+	}
+	
+	/**
+	 * Sets the default value of a key.
+	 * @param path path of the key
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return this batch
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		return this.add(new Operation(Operation.Kind.SET_VALUE, Registry.normalizePath(path), null, type, seperator, rawValue));
+	}
+	
+	/**
+	 * Deletes a value of the key on which this batch was created.
+	 * @param name name of the value
+	 * @return this batch
+	 * @throws IllegalStateException if this batch was not created with {@linkplain RegistryKey#edit()}
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch deleteValue(String name) {
+		
+		return this.deleteValue(this.getPath(), name);
+	}
+	
+	/**
+	 * Deletes a value of a key.
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @return this batch
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch deleteValue(String path, String name) {
+		
+		return this.add(new Operation(Operation.Kind.DELETE_VALUE, Registry.normalizePath(path), name, null, '\0', null));
+	}
+	
+	/**
+	 * Deletes the default value of the key on which this batch was created.
+	 * @return this batch
+	 * @throws IllegalStateException if this batch was not created with {@linkplain RegistryKey#edit()}
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch deleteDefaultValue() {
+		
+		return this.deleteDefaultValue(this.getPath());
+	}
+	
+	/**
+	 * Deletes the default value of a key.
+	 * @param path path of the key
+	 * @return this batch
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch deleteDefaultValue(String path) {
+		
+		return this.add(new Operation(Operation.Kind.DELETE_VALUE, Registry.normalizePath(path), null, null, '\0', null));
+	}
+	
+	/**
+	 * Writes all changes in the format of "Windows Registry Editor Version 5.00".
+	 * Changes with invalid value data are left out and marked as failed.
+	 * The stream will not be closed.
+	 * @param output the stream to which the changes should be written
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public final void write(OutputStream output) throws IOException {
+		
+		RegistryBatch.write(output, this.operations);
+	}
+	
+	/**
+	 * Applies all changes and clears this batch.
+	 * @return all changes with their results in the order in which they were added
+	 * @throws IOException if the temporary file could not be written
+	 * @since 2.1.0
+	 */
+	public final List<Operation> apply() throws IOException {
+		
+		List<Operation> operations = new ArrayList<>(this.operations);
+		this.operations.clear();
+		
+		for(Operation operation : operations) {
+			
+			operation.error = null;
+		}
+		
+		File file = File.createTempFile("SimpleRegistry", ".reg");
+		
+		try {
+			
+			try(OutputStream output = new FileOutputStream(file)) {
+				
+				RegistryBatch.write(output, operations);
+			}
+			
+			try {
+				
+				this.backend.importFile(file);
+				
+				for(Operation operation : operations) {
+					
+					operation.applied = operation.error == null;
+				}
+				
+			} catch(IOException | UnsupportedOperationException exception) {
+				
+				// the error of a single change can not be told apart from the others
+				for(Operation operation : operations) {
+					
+					if(operation.error == null) {
+						
+						this.apply(operation);
+					}
+				}
+			}
+			
+		} finally {
+			
+			file.delete();
+		}
+		
+		return Collections.unmodifiableList(operations);
+	}
+	
+	/**
+	 * @return all changes that have not been applied yet
+	 * @since 2.1.0
+	 */
+	public final List<Operation> getOperations() {
+		
+		return Collections.unmodifiableList(new ArrayList<>(this.operations));
+	}
+	
+	private static final void write(OutputStream output, List<Operation> operations) throws IOException {
+		
+		RegFileWriter writer = new RegFileWriter(output);
+		
+		for(Operation operation : operations) {
+			
+			switch(operation.kind) {
+				
+				case SET_KEY:
+					writer.writeKey(operation.path);
+					break;
+				
+				case DELETE_KEY:
+					writer.writeDeleteKey(operation.path);
+					break;
+				
+				case SET_VALUE:
+					
+					Object value = null;
+					
+					try {
+						
+						value = RegistryBatch.toValue(operation.type, operation.seperator, operation.rawValue);
+						
+					} catch(IOException exception) {
+						
+						operation.error = exception;
+						break;
+					}
+					
+					writer.writeKey(operation.path);
+					writer.writeValue(operation.name, operation.type, value);
+					break;
+				
+				case DELETE_VALUE:
+					writer.writeKey(operation.path);
+					writer.writeDeleteValue(operation.name);
+					break;
+			}
+		}
+		
+		writer.flush();
+	}
+	
+	private final void apply(Operation operation) {
+		
+		try {
+			
+			switch(operation.kind) {
+				
+				case SET_KEY:
+					this.backend.setKey(operation.path);
+					break;
+				
+				case DELETE_KEY:
+					this.backend.deleteKey(operation.path);
+					break;
+				
+				case SET_VALUE:
+					
+					if(operation.name == null) {
+						
+						this.backend.setDefaultValue(operation.path, operation.type, operation.seperator, operation.rawValue);
+						
+					} else {
+						
+						this.backend.setValue(operation.path, operation.name, operation.type, operation.seperator, operation.rawValue);
+					}
+					
+					break;
+				
+				case DELETE_VALUE:
+					
+					if(operation.name == null) {
+						
+						this.backend.deleteDefaultValue(operation.path);
+						
+					} else {
+						
+						this.backend.deleteValue(operation.path, operation.name);
+					}
+					
+					break;
+			}
+			
+			operation.applied = true;
+			
+		} catch(RegistryNotFoundException exception) {
+			
+			// the failed import may already have deleted it, which must not be rolled back as an error
+			if(operation.kind == Operation.Kind.DELETE_KEY || operation.kind == Operation.Kind.DELETE_VALUE) {
+				
+				operation.applied = true;
+				
+			} else {
+				
+				operation.error = exception;
+			}
+			
+		} catch(IOException exception) {
+			
+			operation.error = exception;
+		}
+	}
+	
+	private final RegistryBatch add(Operation operation) {
+		
+		this.operations.add(operation);
+		return this;
+	}
+	
+	private final String getPath() {
+		
+		if(this.path == null) {
+			
+			throw new IllegalStateException("This batch does not belong to a key");
+		}
+		
+		return this.path;
+	}
+	
+	private static final Object toValue(RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+		
+		// the same normalization as the engines, so that the .reg file stores exactly what "reg add" would
+		String value = RegistryValue.normalize(type, seperator, rawValue);
+		
+		switch(type) {
+			
+			case REG_DWORD:
+			case REG_QWORD:
+			case REG_BINARY:
+				return type.parseValue(value);
+			
+			case REG_MULTI_SZ:
+				return value == null ? Collections.emptyList() : type.parseValue(value);
+			
+			default:
+				return value == null ? "" : value;
+		}
+	}
+	
+	/**
+	 * A single change of a {@linkplain RegistryBatch}.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static final class Operation {
+		
+		private final Kind kind;
+		private final String path;
+		private final String name;
+		private final RegistryValue.Type type;
+		private final char seperator;
+		private final String rawValue;
+		private boolean applied;
+		private IOException error;
+		
+		private Operation(Kind kind, String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+			
+			this.kind = kind;
+			this.path = path;
+			this.name = name;
+			this.type = type;
+			this.seperator = seperator;
+			this.rawValue = rawValue;
+		}
+		
+		/**
+		 * @return what this change does
+		 * @since 2.1.0
+		 */
+		public final Kind getKind() {
+			
+			return this.kind;
+		}
+		
+		/**
+		 * @return path of the changed key
+		 * @since 2.1.0
+		 */
+		public final String getPath() {
+			
+			return this.path;
+		}
+		
+		/**
+		 * @return name of the changed value, or {@code null} if the default value or the key itself is changed
+		 * @since 2.1.0
+		 */
+		public final String getName() {
+			
+			return this.name;
+		}
+		
+		/**
+		 * @return data type of the new value, or {@code null} if nothing is set
+		 * @since 2.1.0
+		 */
+		public final RegistryValue.Type getType() {
+			
+			return this.type;
+		}
+		
+		/**
+		 * @return the new raw value data, or {@code null} if nothing is set
+		 * @since 2.1.0
+		 */
+		public final String getRawValue() {
+			
+			return this.rawValue;
+		}
+		
+		/**
+		 * @return {@code true} if the change has been applied successfully, else {@code false}
+		 * @since 2.1.0
+		 */
+		public final boolean isApplied() {
+			
+			return this.applied;
+		}
+		
+		/**
+		 * @return the reason why this change could not be applied, or {@code null} if there was no error
+		 * @since 2.1.0
+		 */
+		public final IOException getError() {
+			
+			return this.error;
+		}
+		
+		@Override
+		public final String toString() {
+			
+			StringBuilder builder = new StringBuilder();
+			builder.append(this.kind).append('|');
+			builder.append(this.path).append('|');
+			builder.append(this.name).append('|');
+			builder.append(this.type).append('|');
+			builder.append(this.rawValue).append('|');
+			builder.append(this.applied ? "applied" : this.error != null ? this.error.getMessage() : "pending");
+			return builder.toString();
+		}
+		
+		/**
+		 * What a {@linkplain Operation} does.
+		 * Changes of the default value have no name.
+		 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+		 * @version 2.1.0
+		 * @since 2.1.0
+		 */
+		public static enum Kind {
+			
+			/** @since 2.1.0 */ SET_KEY,
+			/** @since 2.1.0 */ DELETE_KEY,
+			/** @since 2.1.0 */ SET_VALUE,
+			/** @since 2.1.0 */ DELETE_VALUE;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+/**
+ * Describes a single difference between two states of a key, like a value that has been added or a subkey that has been removed.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryChange {
+	
+	private final Kind kind;
+	private final String path;
+	private final RegistryValue oldValue;
+	private final RegistryValue newValue;
+	private final RegistryKey key;
+	
+	RegistryChange(Kind kind, String path, RegistryValue oldValue, RegistryValue newValue) {
+		
+		this(kind, path, oldValue, newValue, null);
+	}
+	
+	RegistryChange(Kind kind, String path, RegistryValue oldValue, RegistryValue newValue, RegistryKey key) {
+		
+		this.kind = kind;
+		this.path = path;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+		this.key = key;
+	}
+	
+	/**
+	 * @return the key that has been added, so that its subkeys and values can be written to a patch
+	 */
+	final RegistryKey getKey() {
+		
+		return this.key;
+	}
+	
+	/**
+	 * @return what has changed
+	 * @since 2.1.0
+	 */
+	public final Kind getKind() {
+		
+		return this.kind;
+	}
+	
+	/**
+	 * @return path of the key that has been added or removed, or of the key to which the value belongs
+	 * @since 2.1.0
+	 */
+	public final String getPath() {
+		
+		return this.path;
+	}
+	
+	/**
+	 * @return name of the value, or {@code null} if a key has changed
+	 * @since 2.1.0
+	 */
+	public final String getName() {
+		
+		return this.oldValue != null ? this.oldValue.getName() : this.newValue != null ? this.newValue.getName() : null;
+	}
+	
+	/**
+	 * @return the value before the change, or {@code null} if the value has been added or a key has changed
+	 * @since 2.1.0
+	 */
+	public final RegistryValue getOldValue() {
+		
+		return this.oldValue;
+	}
+	
+	/**
+	 * @return the value after the change, or {@code null} if the value has been removed or a key has changed
+	 * @since 2.1.0
+	 */
+	public final RegistryValue getNewValue() {
+		
+		return this.newValue;
+	}
+	
+	@Override
+	public final String toString() {
+		
+		StringBuilder builder = new StringBuilder();
+		builder.append(this.kind.name());
+		builder.append('|');
+		builder.append(this.path);
+		
+		if(this.oldValue != null) {
+			
+			builder.append('|');
+			builder.append(this.oldValue);
+		}
+		
+		if(this.newValue != null) {
+			
+			builder.append('|');
+			builder.append(this.newValue);
+		}
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * The kinds of changes.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static enum Kind {
+		
+		/**
+		 * A key has been added. Its subkeys and values are not reported on their own.
+		 * @since 2.1.0
+		 */
+		KEY_ADDED,
+		
+		/**
+		 * A key has been removed. Its subkeys and values are not reported on their own.
+		 * @since 2.1.0
+		 */
+		KEY_REMOVED,
+		
+		/**
+		 * A value has been added.
+		 * @since 2.1.0
+		 */
+		VALUE_ADDED,
+		
+		/**
+		 * The type or the data of a value has changed.
+		 * @since 2.1.0
+		 */
+		VALUE_CHANGED,
+		
+		/**
+		 * A value has been removed.
+		 * @since 2.1.0
+		 */
+		VALUE_REMOVED;
+	}
+}
@@ -0,0 +1,372 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Compares two keys with all of their subkeys and values, for example the configuration of a machine with a baseline.
+ * Values and subkeys are matched by name in a hash index, so the cost grows linearly with the number of keys and values.
+ * The result is the smallest set of changes that turns the first key into the second one and can be written as a .reg file that applies these changes.
+ * The keys may be read from different engines and may have different paths; if they are {@linkplain RegistrySnapshot snapshots}, no further access to the registry is needed.
+ * <pre>
+ * RegistrySnapshot baseline = Registry.snapshot(Registry.HKEY_LOCAL_MACHINE + "\\SOFTWARE\\Baseline");
+ * RegistrySnapshot current = Registry.snapshot(Registry.HKEY_LOCAL_MACHINE + "\\SOFTWARE\\MyExampleSoftware");
+ * RegistryDiff diff = RegistryDiff.compare(current.getRoot(), baseline.getRoot());
+ * diff.writePatch(new FileOutputStream("restore-baseline.reg"));
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryDiff {
+	
+	private final RegistryKey oldKey;
+	private final RegistryKey newKey;
+	private final List<RegistryChange> changes;
+	
+	private RegistryDiff(RegistryKey oldKey, RegistryKey newKey, List<RegistryChange> changes) {
+		
+		this.oldKey = oldKey;
+		this.newKey = newKey;
+		this.changes = changes;
+	}
+	
+	/**
+	 * Compares two keys with all of their subkeys and values.
+	 * Paths of removed keys and values are those of the old key, all other paths are those of the new key.
+	 * @param oldKey the key as it is
+	 * @param newKey the key as it should be
+	 * @return the changes
+	 * @throws IOException if a subkey could not be read
+	 * @since 2.1.0
+	 */
+	public static final RegistryDiff compare(RegistryKey oldKey, RegistryKey newKey) throws IOException {
+		
+		List<RegistryChange> changes = new ArrayList<>();
+		RegistryDiff.compare(oldKey, newKey, true, changes::add);
+		return new RegistryDiff(oldKey, newKey, Collections.unmodifiableList(changes));
+	}
+	
+	/**
+	 * Compares two keys with all of their subkeys and values without keeping the changes.
+	 * Each change is handed to the consumer as soon as it has been found.
+	 * @param oldKey the key as it is
+	 * @param newKey the key as it should be
+	 * @param consumer receives the changes
+	 * @throws IOException if a subkey could not be read
+	 * @since 2.1.0
+	 */
+	public static final void compare(RegistryKey oldKey, RegistryKey newKey, Consumer<RegistryChange> consumer) throws IOException {
+		
+		RegistryDiff.compare(oldKey, newKey, true, consumer);
+	}
+	
+	/**
+	 * Compares two keys and writes every change to a .reg file as soon as it has been found.
+	 * The file applies the changes to the old key.
+	 * @param oldKey the key as it is
+	 * @param newKey the key as it should be
+	 * @param output the stream to which the file is written; will not be closed
+	 * @return the number of changes
+	 * @throws IOException if a subkey could not be read or the file could not be written
+	 * @since 2.1.0
+	 */
+	public static final int writePatch(RegistryKey oldKey, RegistryKey newKey, OutputStream output) throws IOException {
+		
+		Patch patch = new Patch(oldKey, newKey, output);
+		
+		try {
+			
+			RegistryDiff.compare(oldKey, newKey, true, patch);
+			
+		} catch(UncheckedIOException exception) {
+			
+			throw exception.getCause();
+		}
+		
+		patch.writer.flush();
+		return patch.count;
+	}
+	
+	/**
+	 * @return the changes in the order in which they have been found
+	 * @since 2.1.0
+	 */
+	public final List<RegistryChange> getChanges() {
+		
+		return this.changes;
+	}
+	
+	/**
+	 * @return {@code true} if both keys are the same, else {@code false}
+	 * @since 2.1.0
+	 */
+	public final boolean isEmpty() {
+		
+		return this.changes.isEmpty();
+	}
+	
+	/**
+	 * Writes the changes to a .reg file that applies them to the old key.
+	 * The file can be imported with {@linkplain Registry#importFile(java.io.File)}.
+	 * @param output the stream to which the file is written; will not be closed
+	 * @throws IOException if the file could not be written
+	 * @since 2.1.0
+	 */
+	public final void writePatch(OutputStream output) throws IOException {
+		
+		Patch patch = new Patch(this.oldKey, this.newKey, output);
+		
+		try {
+			
+			this.changes.forEach(patch);
+			
+		} catch(UncheckedIOException exception) {
+			
+			throw exception.getCause();
+		}
+		
+		patch.writer.flush();
+	}
+	
+	/**
+	 * @param oldKey the old state of the key
+	 * @param newKey the new state of the key
+	 * @param recursive {@code true} if the subkeys should be compared too, {@code false} if only their names should be compared
+	 * @param consumer receives the changes
+	 * @throws IOException if a subkey could not be read
+	 */
+	static final void compare(RegistryKey oldKey, RegistryKey newKey, boolean recursive, Consumer<RegistryChange> consumer) throws IOException {
+		
+		List<RegistryValue> oldValues = oldKey.getValues();
+		List<RegistryValue> newValues = newKey.getValues();
+		boolean[] matched = new boolean[newValues.size()];
+		NameIndex index = RegistryDiff.indexValues(newValues);
+		int newDefault = -1;
+		
+		for(int position = 0; position < newValues.size() && newDefault == -1; position++) {
+			
+			if(newValues.get(position).isDefaultValue()) {
+				
+				newDefault = position;
+			}
+		}
+		
+		for(RegistryValue oldValue : oldValues) {
+			
+			// the default values are compared with each other, whatever names they have
+			int position = oldValue.isDefaultValue() ? newDefault : index.indexOf(oldValue.getName());
+			
+			if(position != -1 && position == newDefault && !oldValue.isDefaultValue()) {
+				
+				position = -1;
+			}
+			
+			if(position == -1) {
+				
+				consumer.accept(new RegistryChange(RegistryChange.Kind.VALUE_REMOVED, oldKey.getPath(), oldValue, null));
+				
+			} else if(!matched[position]) {
+				
+				RegistryValue newValue = newValues.get(position);
+				matched[position] = true;
+				
+				if(oldValue.getType() != newValue.getType() || !Objects.equals(oldValue.getRawValue(), newValue.getRawValue())) {
+					
+					consumer.accept(new RegistryChange(RegistryChange.Kind.VALUE_CHANGED, newKey.getPath(), oldValue, newValue));
+				}
+			}
+		}
+		
+		for(int position = 0; position < matched.length; position++) {
+			
+			if(!matched[position]) {
+				
+				consumer.accept(new RegistryChange(RegistryChange.Kind.VALUE_ADDED, newKey.getPath(), null, newValues.get(position)));
+			}
+		}
+		
+		List<RegistryPath> oldChilds = oldKey.getChildPaths();
+		List<RegistryPath> newChilds = newKey.getChildPaths();
+		String[] names = new String[newChilds.size()];
+		matched = new boolean[names.length];
+		
+		for(int position = 0; position < names.length; position++) {
+			
+			names[position] = newChilds.get(position).getName();
+		}
+		
+		index = new NameIndex(names);
+		
+		for(RegistryPath oldChild : oldChilds) {
+			
+			String name = oldChild.getName();
+			int position = index.indexOf(name);
+			
+			if(position == -1) {
+				
+				consumer.accept(new RegistryChange(RegistryChange.Kind.KEY_REMOVED, oldChild.toString(), null, null));
+				
+			} else if(!matched[position]) {
+				
+				matched[position] = true;
+				
+				if(recursive) {
+					
+					RegistryDiff.compare(oldKey.getChild(name), newKey.getChild(names[position]), true, consumer);
+				}
+			}
+		}
+		
+		for(int position = 0; position < matched.length; position++) {
+			
+			if(!matched[position]) {
+				
+				// the added key is only needed to write a patch, which is never done if only the names of the subkeys are compared
+				consumer.accept(new RegistryChange(RegistryChange.Kind.KEY_ADDED, newChilds.get(position).toString(), null, null, recursive ? newKey.getChild(names[position]) : null));
+			}
+		}
+	}
+	
+	private static final NameIndex indexValues(List<RegistryValue> values) {
+		
+		String[] names = new String[values.size()];
+		
+		for(int position = 0; position < names.length; position++) {
+			
+			// only the default value has no name in the registry itself
+			RegistryValue value = values.get(position);
+			names[position] = value.isDefaultValue() ? "" : value.getName();
+		}
+		
+		return new NameIndex(names);
+	}
+	
+	/**
+	 * Writes changes to a .reg file.
+	 * Changes of the new key are written to the path of the old key.
+	 */
+	private static final class Patch implements Consumer<RegistryChange> {
+		
+		private final RegFileWriter writer;
+		private final String oldPath;
+		private final int newDepth;
+		private int count;
+		
+		private Patch(RegistryKey oldKey, RegistryKey newKey, OutputStream output) throws IOException {
+			
+			this.writer = new RegFileWriter(output);
+			this.oldPath = oldKey.getPath();
+			
+			// the root may have been named by an alias, so the paths are compared by the number of keys
+			String newPath = newKey.getPath();
+			int depth = 1;
+			
+			for(int index = 0; index < newPath.length(); index++) {
+				
+				if(newPath.charAt(index) == '\\') {
+					
+					depth++;
+				}
+			}
+			
+			this.newDepth = depth;
+		}
+		
+		@Override
+		public final void accept(RegistryChange change) {
+			
+			try {
+				
+				switch(change.getKind()) {
+					
+					case KEY_ADDED:
+						this.writeKey(change.getKey());
+						break;
+					
+					case KEY_REMOVED:
+						this.writer.writeDeleteKey(change.getPath());
+						break;
+					
+					case VALUE_ADDED:
+					case VALUE_CHANGED:
+						this.writer.writeKey(this.rebase(change.getPath()));
+						this.writer.writeValue(change.getNewValue());
+						break;
+					
+					case VALUE_REMOVED:
+						this.writer.writeKey(change.getPath());
+						this.writer.writeDeleteValue(change.getOldValue().isDefaultValue() ? null : change.getName());
+						break;
+				}
+				
+				this.count++;
+				
+			} catch(IOException exception) {
+				
+				throw new UncheckedIOException(exception);
+			}
+		}
+		
+		private final void writeKey(RegistryKey key) throws IOException {
+			
+			this.writer.writeKey(this.rebase(key.getPath()));
+			
+			for(RegistryValue value : key.getValues()) {
+				
+				this.writer.writeValue(value);
+			}
+			
+			for(RegistryKey child : key.getChilds()) {
+				
+				this.writeKey(child);
+			}
+		}
+		
+		private final String rebase(String path) {
+			
+			int index = -1;
+			
+			for(int depth = 0; depth < this.newDepth; depth++) {
+				
+				index = path.indexOf('\\', index + 1);
+				
+				if(index == -1) {
+					
+					return this.oldPath;
+				}
+			}
+			
+			return this.oldPath + path.substring(index);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.util.Map;
+
+/**
+ * Expands the references to environment variables in {@linkplain RegistryValue.Type#REG_EXPAND_SZ} values.
+ * The names of the variables are looked up without regard to case, just like Windows does.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class RegistryEnvironment {
+	
+	private static volatile RegistryEnvironment environment;
+	
+	private final String[] values;
+	private final NameIndex index;
+	
+	/**
+	 * @param variables the environment variables; the map is copied
+	 */
+	RegistryEnvironment(Map<String, String> variables) {
+		
+		String[] names = new String[variables.size()];
+		String[] values = new String[names.length];
+		int index = 0;
+		
+		for(Map.Entry<String, String> variable : variables.entrySet()) {
+			
+			names[index] = variable.getKey();
+			values[index] = variable.getValue();
+			index++;
+		}
+		
+		this.values = values;
+		this.index = new NameIndex(names);
+	}
+	
+	/**
+	 * @return the environment that is currently used to expand values
+	 */
+	static final RegistryEnvironment get() {
+		
+		RegistryEnvironment environment = RegistryEnvironment.environment;
+		
+		if(environment == null) {
+			
+			// the environment of a process does not change, so the table is only built once
+			environment = new RegistryEnvironment(System.getenv());
+			RegistryEnvironment.environment = environment;
+		}
+		
+		return environment;
+	}
+	
+	/**
+	 * @param variables the environment variables, or {@code null} for the variables of this process
+	 */
+	static final void set(Map<String, String> variables) {
+		
+		RegistryEnvironment.environment = variables != null ? new RegistryEnvironment(variables) : null;
+	}
+	
+	/**
+	 * Replaces every {@code %NAME%} with the value of the environment variable.
+	 * References to variables that do not exist are left as they are.
+	 * @param text the text
+	 * @return the expanded text
+	 */
+	final String expand(String text) {
+		
+		if(text == null) {
+			
+			return null;
+		}
+		
+		int start = text.indexOf('%');
+		
+		if(start == -1) {
+			
+			return text;
+		}
+		
+		StringBuilder builder = new StringBuilder(text.length() + 32);
+		builder.append(text, 0, start);
+		
+		while(start != -1) {
+			
+			int end = text.indexOf('%', start + 1);
+			
+			if(end == -1) {
+				
+				break;
+			}
+			
+			int variable = this.index.indexOf(text, start + 1, end);
+			
+			if(variable != -1) {
+				
+				builder.append(this.values[variable]);
+				start = end + 1;
+				
+			} else {
+				
+				// the closing '%' may be the start of the next reference
+				builder.append(text, start, end);
+				start = end;
+			}
+			
+			int next = start < text.length() ? text.indexOf('%', start) : -1;
+			builder.append(text, start, next != -1 ? next : text.length());
+			
+			if(next == -1) {
+				
+				return builder.toString();
+			}
+			
+			start = next;
+		}
+		
+		builder.append(text, start, text.length());
+		return builder.toString();
+	}
+}
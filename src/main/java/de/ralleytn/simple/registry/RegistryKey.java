@@ -25,32 +25,120 @@ package de.ralleytn.simple.registry;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a key in the registry.
+ * A key is either loaded completely when it is created or, if it was created with {@linkplain Registry#getKey(String, boolean)}, lazily.
+ * A lazy key reads its values and childs the first time one of them is needed and its default value only if {@linkplain #getDefaultValue()} is called.
+ * Errors that occur while a lazy key is loaded are thrown as {@linkplain UncheckedIOException} by the methods that do not declare an {@linkplain IOException}.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.0.0
  */
 public final class RegistryKey {
 
-	private List<String> childs;
-	private String parent;
+	private List<RegistryPath> childs;
 	private List<RegistryValue> values;
 	private RegistryValue defaultValue;
-	private String name;
 	private String path;
+	private RegistryPath registryPath;
+	private RegistryBackend backend;
+	private boolean lazy;
+	private boolean contentsLoaded;
+	private boolean defaultValueLoaded;
+	private NameIndex childIndex;
+	private NameIndex valueIndex;
 	
-	RegistryKey(String path, String name, List<RegistryValue> values, RegistryValue defaultValue, String parent, List<String> childs) {
+	RegistryKey(String path, RegistryPath registryPath, List<RegistryValue> values, RegistryValue defaultValue, List<RegistryPath> childs, RegistryBackend backend) {
 		
 		this.path = path;
-		this.name = name;
+		this.registryPath = registryPath;
 		this.defaultValue = defaultValue;
 		this.values = values;
-		this.parent = parent;
 		this.childs = childs;
+		this.backend = backend;
+		this.contentsLoaded = true;
+		this.defaultValueLoaded = true;
+	}
+	
+	RegistryKey(String path, List<RegistryValue> values, RegistryValue defaultValue, List<String> childs, RegistryBackend backend) {
+		
+		this(path, RegistryPath.of(path), values, defaultValue, null, backend);
+		
+		if(childs != null) {
+			
+			this.childs = RegistryPath.resolveAll(this.registryPath, path, childs);
+		}
+	}
+	
+	RegistryKey(RegistryPath path, List<RegistryValue> values, RegistryValue defaultValue, List<RegistryPath> childs, RegistryBackend backend) {
+		
+		this(path.toString(), path, values, defaultValue, childs, backend);
+	}
+	
+	RegistryKey(String path, RegistryBackend backend) {
+		
+		this(path, null, null, null, backend);
+		
+		this.lazy = true;
+		this.contentsLoaded = false;
+		this.defaultValueLoaded = false;
+	}
+	
+	final void setBackend(RegistryBackend backend) {
+		
+		this.backend = backend;
+		
+		if(this.values != null) {
+			
+			for(RegistryValue value : this.values) {
+				
+				value.setBackend(backend);
+			}
+		}
+		
+		if(this.defaultValue != null) {
+			
+			this.defaultValue.setBackend(backend);
+		}
+	}
+	
+	final RegistryKey copy() {
+		
+		List<RegistryValue> values = null;
+		
+		if(this.values != null) {
+			
+			values = new ArrayList<>(this.values.size());
+			
+			for(RegistryValue value : this.values) {
+				
+				values.add(value.copy());
+			}
+		}
+		
+		// the paths of the subkeys and the name indices are never changed, only replaced
+		RegistryKey copy = new RegistryKey(this.path, this.registryPath, values, this.defaultValue != null ? this.defaultValue.copy() : null, this.childs, this.backend);
+		copy.lazy = this.lazy;
+		copy.contentsLoaded = this.contentsLoaded;
+		copy.defaultValueLoaded = this.defaultValueLoaded;
+		copy.childIndex = this.childIndex;
+		copy.valueIndex = this.valueIndex;
+		return copy;
+	}
+	
+	/**
+	 * Creates a batch with which many changes to this key can be applied at once.
+	 * Nothing happens until {@linkplain RegistryBatch#apply()} is called.
+	 * @return a new batch for this key
+	 * @since 2.1.0
+	 */
+	public final RegistryBatch edit() {
+		
+		return new RegistryBatch(this.backend, this.path);
 	}
 	
 	/**
@@ -61,7 +149,7 @@ public final class RegistryKey {
 	 */
 	public final void deleteValue(String name) throws IOException {
 		
-		Registry.deleteValue(this.path, name);
+		this.backend.deleteValue(this.path, name);
 	}
 	
 	/**
@@ -71,7 +159,7 @@ public final class RegistryKey {
 	 */
 	public final void deleteDefaultValue() throws IOException {
 		
-		Registry.deleteDefaultValue(this.path);
+		this.backend.deleteDefaultValue(this.path);
 	}
 	
 	/**
@@ -81,7 +169,7 @@ public final class RegistryKey {
 	 */
 	public final void deleteAllValues() throws IOException {
 		
-		Registry.deleteAllValues(this.path);
+		this.backend.deleteAllValues(this.path);
 	}
 	
 	/**
@@ -92,7 +180,7 @@ public final class RegistryKey {
 	 */
 	public final void export(File exportFile) throws IOException {
 		
-		Registry.exportKey(this.path, exportFile);
+		this.backend.exportKey(this.path, exportFile);
 	}
 	
 	/**
@@ -102,24 +190,43 @@ public final class RegistryKey {
 	 */
 	public final void delete() throws IOException {
 		
-		Registry.deleteKey(this.path);
+		this.backend.deleteKey(this.path);
 	}
 	
 	/**
 	 * Reloads the key. Should be called after setting or deleting values.
+	 * Always reads from the registry itself, even if the key came from a {@linkplain CachingRegistry}.
 	 * @throws IOException if an error occurs while reloading the key
 	 * @since 1.0.0
 	 */
 	public final void reload() throws IOException {
 		
-		RegistryKey key = Registry.getKey(this.path);
+		this.backend.invalidate(this.path);
 		
-		this.childs = key.childs;
-		this.parent = key.parent;
-		this.values = key.values;
-		this.defaultValue = key.defaultValue;
-		this.name = key.name;
-		this.path = key.path;
+		if(this.lazy) {
+			
+			// everything is loaded again on the next access
+			this.contentsLoaded = false;
+			this.defaultValueLoaded = false;
+			this.values = null;
+			this.childs = null;
+			this.childIndex = null;
+			this.valueIndex = null;
+			this.defaultValue = null;
+			
+		} else {
+			
+			RegistryKey key = this.backend.getKey(this.path);
+			
+			this.childs = key.childs;
+			this.childIndex = null;
+			this.valueIndex = null;
+			this.values = key.values;
+			this.defaultValue = key.defaultValue;
+			this.path = key.path;
+			this.registryPath = key.registryPath;
+			this.backend = key.backend;
+		}
 	}
 	
 	/**
@@ -132,7 +239,7 @@ public final class RegistryKey {
 	 */
 	public final void setDefaultValue(RegistryValue.Type type, char seperator, String rawValue) throws IOException {
 		
-		Registry.setDeafultValue(this.path, type, seperator, rawValue);
+		this.backend.setDefaultValue(this.path, type, seperator, rawValue);
 	}
 	
 	/**
@@ -146,7 +253,7 @@ public final class RegistryKey {
 	 */
 	public final void setValue(String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
 		
-		Registry.setValue(this.path, name, type, seperator, rawValue);
+		this.backend.setValue(this.path, name, type, seperator, rawValue);
 	}
 	
 	/**
@@ -155,6 +262,19 @@ public final class RegistryKey {
 	 */
 	public final RegistryValue getDefaultValue() {
 		
+		if(!this.defaultValueLoaded) {
+			
+			try {
+				
+				this.defaultValue = this.backend.getDefaultValue(this.path);
+				this.defaultValueLoaded = true;
+				
+			} catch(IOException exception) {
+				
+				throw new UncheckedIOException(exception);
+			}
+		}
+		
 		return this.defaultValue;
 	}
 	
@@ -167,13 +287,22 @@ public final class RegistryKey {
 		return this.path;
 	}
 	
+	/**
+	 * @return the path of this key as {@linkplain RegistryPath}
+	 * @since 2.1.0
+	 */
+	public final RegistryPath getRegistryPath() {
+		
+		return this.registryPath;
+	}
+	
 	/**
 	 * @return the name of this key
 	 * @since 1.0.0
 	 */
 	public final String getName() {
 		
-		return this.name;
+		return this.registryPath.getName();
 	}
 	
 	/**
@@ -183,18 +312,28 @@ public final class RegistryKey {
 	 * @since 1.0.0
 	 */
 	public final RegistryKey getChild(String name) throws IOException {
-
-		for(String child : this.childs) {
+		
+		if(name == null) {
+			
+			return null;
+		}
+		
+		this.loadContents();
+		
+		if(this.childIndex == null) {
 			
-			String[] parts = child.split("\\\\");
+			String[] names = new String[this.childs.size()];
 			
-			if(parts[parts.length - 1].equalsIgnoreCase(name)) {
+			for(int index = 0; index < names.length; index++) {
 				
-				return Registry.getKey(child);
+				names[index] = this.childs.get(index).getName();
 			}
+			
+			this.childIndex = new NameIndex(names);
 		}
 		
-		return null;
+		int index = this.childIndex.indexOf(name);
+		return index != -1 ? this.openKey(this.childs.get(index).toString()) : null;
 	}
 	
 	/**
@@ -204,11 +343,12 @@ public final class RegistryKey {
 	 */
 	public final List<RegistryKey> getChilds() throws IOException {
 		
+		this.loadContents();
 		List<RegistryKey> list = new ArrayList<RegistryKey>();
 		
-		for(String child : this.childs) {
+		for(RegistryPath child : this.childs) {
 			
-			list.add(Registry.getKey(child));
+			list.add(this.openKey(child.toString()));
 		}
 		
 		return list;
@@ -221,7 +361,8 @@ public final class RegistryKey {
 	 */
 	public final RegistryKey getParent() throws IOException {
 		
-		return Registry.getKey(this.parent);
+		RegistryPath parent = this.registryPath.getParent();
+		return this.lazy && parent == null ? null : this.openKey(parent != null ? parent.toString() : null);
 	}
 	
 	/**
@@ -230,6 +371,7 @@ public final class RegistryKey {
 	 */
 	public final List<RegistryValue> getValues() {
 		
+		this.loadContentsUnchecked();
 		return RegistryKey.clone(this.values);
 	}
 	
@@ -240,25 +382,47 @@ public final class RegistryKey {
 	 */
 	public final RegistryValue getValueByName(String name) {
 		
-		for(RegistryValue value : values) {
+		if(name == null) {
+			
+			return null;
+		}
+		
+		this.loadContentsUnchecked();
+		
+		if(this.valueIndex == null) {
 			
-			if(value.getName().equalsIgnoreCase(name)) {
+			String[] names = new String[this.values.size()];
+			
+			for(int index = 0; index < names.length; index++) {
 				
-				return value;
+				names[index] = this.values.get(index).getName();
 			}
+			
+			this.valueIndex = new NameIndex(names);
 		}
 		
-		return null;
+		int index = this.valueIndex.indexOf(name);
+		return index != -1 ? this.values.get(index) : null;
+	}
+	
+	/**
+	 * @return {@code true} if this key loads its values, childs and default value on first access, else {@code false}
+	 * @since 2.1.0
+	 */
+	public final boolean isLazy() {
+		
+		return this.lazy;
 	}
 	
 	@Override
 	public final String toString() {
 		
+		this.loadContentsUnchecked();
 		StringBuilder builder = new StringBuilder();
 		builder.append("path=").append(this.path).append(';');
-		builder.append("parent=").append(this.parent).append(';');
-		builder.append("name=").append(this.name).append(';');
-		builder.append("defaultValue=").append(this.defaultValue).append(';');
+		builder.append("parent=").append(this.registryPath.getParent()).append(';');
+		builder.append("name=").append(this.registryPath.getName()).append(';');
+		builder.append("defaultValue=").append(this.getDefaultValue()).append(';');
 		builder.append("values=[");
 		boolean first = true;
 		
@@ -279,7 +443,7 @@ public final class RegistryKey {
 		builder.append("];childs=[");
 		first = true;
 		
-		for(String child : this.childs) {
+		for(RegistryPath child : this.childs) {
 			
 			if(first) {
 				
@@ -297,6 +461,48 @@ public final class RegistryKey {
 		return builder.toString();
 	}
 	
+	final List<RegistryPath> getChildPaths() throws IOException {
+		
+		this.loadContents();
+		return this.childs;
+	}
+	
+	final void deferDefaultValue() {
+		
+		this.defaultValueLoaded = false;
+		this.defaultValue = null;
+	}
+	
+	private final RegistryKey openKey(String path) throws IOException {
+		
+		return this.lazy ? new RegistryKey(path, this.backend) : this.backend.getKey(path);
+	}
+	
+	private final void loadContents() throws IOException {
+		
+		if(!this.contentsLoaded) {
+			
+			RegistryKey key = this.backend.getKey(this.path, false);
+			this.values = key.values;
+			this.childs = key.childs;
+			this.childIndex = null;
+			this.valueIndex = null;
+			this.contentsLoaded = true;
+		}
+	}
+	
+	private final void loadContentsUnchecked() {
+		
+		try {
+			
+			this.loadContents();
+			
+		} catch(IOException exception) {
+			
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
 	private static final <T>List<T> clone(List<T> list) {
 		
 		try {
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+
+/**
+ * Listens to what happens while the registry is accessed, so that it can be found out where the time goes.
+ * All methods do nothing by default, so a listener only has to implement what it is interested in.
+ * The listener is set with {@linkplain Registry#setMetrics(RegistryMetrics)}.
+ * As long as {@linkplain #NONE} is set, nothing is measured at all.
+ * The methods are called from the threads that access the registry and should therefore return quickly and be thread safe.
+ * Every measurement is assigned to an {@linkplain Operation} and a hive, which is the long name of the root key, like {@code "HKEY_CURRENT_USER"},
+ * or {@code null} if the operation is not bound to a key.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public interface RegistryMetrics {
+	
+	/**
+	 * The listener that does nothing.
+	 * @since 2.1.0
+	 */
+	public static final RegistryMetrics NONE = new RegistryMetrics() {};
+	
+	/**
+	 * Records how long a phase of an operation took.
+	 * @param operation the operation
+	 * @param hive the hive, or {@code null}
+	 * @param phase the phase
+	 * @param nanos the duration in nanoseconds
+	 * @since 2.1.0
+	 */
+	public default void recordTime(Operation operation, String hive, Phase phase, long nanos) {}
+	
+	/**
+	 * Records how many characters have been read from the output of a command.
+	 * @param operation the operation
+	 * @param hive the hive, or {@code null}
+	 * @param characters number of characters
+	 * @since 2.1.0
+	 */
+	public default void recordOutput(Operation operation, String hive, long characters) {}
+	
+	/**
+	 * Records that a command has been executed by a process.
+	 * Executors that reuse their processes, like the {@linkplain RegistrySessionPool}, call this for every command.
+	 * @param operation the operation
+	 * @param hive the hive, or {@code null}
+	 * @param exitCode the exit code of the command
+	 * @since 2.1.0
+	 */
+	public default void recordProcess(Operation operation, String hive, int exitCode) {}
+	
+	/**
+	 * Records that a {@linkplain CachingRegistry} has been asked for a key or value.
+	 * @param operation the operation
+	 * @param hive the hive, or {@code null}
+	 * @param hit {@code true} if the cache had the key or value, else {@code false}
+	 * @since 2.1.0
+	 */
+	public default void recordCacheAccess(Operation operation, String hive, boolean hit) {}
+	
+	/**
+	 * Records that an operation failed.
+	 * @param operation the operation
+	 * @param hive the hive, or {@code null}
+	 * @param exception the error
+	 * @since 2.1.0
+	 */
+	public default void recordError(Operation operation, String hive, IOException exception) {}
+	
+	/**
+	 * The kind of access, named after the "reg" command that does it.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static enum Operation {
+		
+		/**
+		 * Reading keys and values.
+		 * @since 2.1.0
+		 */
+		QUERY,
+		
+		/**
+		 * Adding keys and setting values.
+		 * @since 2.1.0
+		 */
+		ADD,
+		
+		/**
+		 * Deleting keys and values.
+		 * @since 2.1.0
+		 */
+		DELETE,
+		
+		/**
+		 * Importing files.
+		 * @since 2.1.0
+		 */
+		IMPORT,
+		
+		/**
+		 * Exporting keys.
+		 * @since 2.1.0
+		 */
+		EXPORT;
+	}
+	
+	/**
+	 * A part of an operation of which the duration is measured.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static enum Phase {
+		
+		/**
+		 * Starting a process.
+		 * @since 2.1.0
+		 */
+		SPAWN,
+		
+		/**
+		 * Waiting for the output of a command and for the command to finish.
+		 * @since 2.1.0
+		 */
+		WAIT,
+		
+		/**
+		 * Parsing the output of a command, without the time that was spent waiting for the output.
+		 * @since 2.1.0
+		 */
+		PARSE,
+		
+		/**
+		 * Decoding the data of a value when it is requested for the first time.
+		 * @since 2.1.0
+		 */
+		DECODE;
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@linkplain RegistryBackend} if a key or value does not exist.
+ * Every engine throws this exception, so that callers do not have to look at the message, which may be translated.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryNotFoundException extends IOException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The message that "reg" prints on an English system.
+	 * @since 2.1.0
+	 */
+	public static final String MESSAGE = "ERROR: The system was unable to find the specified registry key or value.";
+	
+	/**
+	 * Creates an exception with the message that "reg" prints on an English system.
+	 * @since 2.1.0
+	 */
+	public RegistryNotFoundException() {
+		
+		super(MESSAGE);
+	}
+	
+	/**
+	 * @param message the message
+	 * @param cause the original error, for example the one of the "reg" command
+	 * @since 2.1.0
+	 */
+	public RegistryNotFoundException(String message, Throwable cause) {
+		
+		super(message, cause);
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable path of a registry key.
+ * A path is stored as a pointer to the path of the parent key and the name of the key itself, so paths in the same tree share their common part.
+ * Names are interned, and the full path is only turned into a string when {@linkplain #toString()} is called.
+ * Paths are compared the way the registry compares them: without regard to case and with the short names of the root keys being the same as the long ones.
+ * The spelling of the path is kept nevertheless.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryPath {
+	
+	private final RegistryPath parent;
+	private final String name;
+	private final int depth;
+	private final int length;
+	private final int hash;
+	
+	private RegistryPath(RegistryPath parent, String name) {
+		
+		this.parent = parent;
+		this.name = name.intern();
+		
+		if(parent == null) {
+			
+			String root = Registry.expandRoot(name);
+			this.depth = 1;
+			this.length = name.length();
+			this.hash = NameIndex.hash(root, 0, root.length());
+			
+		} else {
+			
+			this.depth = parent.depth + 1;
+			this.length = parent.length + 1 + name.length();
+			this.hash = 31 * parent.hash + NameIndex.hash(name, 0, name.length());
+		}
+	}
+	
+	/**
+	 * Creates a path from a string.
+	 * Slashes are treated as backslashes and a trailing separator is ignored.
+	 * @param path the path, starting with the root key
+	 * @return the path
+	 * @since 2.1.0
+	 */
+	public static final RegistryPath of(String path) {
+		
+		return RegistryPath.resolve(null, Registry.normalizePath(path));
+	}
+	
+	/**
+	 * Creates the path of a subkey.
+	 * @param name the name of the subkey, or a relative path to a key further down
+	 * @return the path of the subkey
+	 * @since 2.1.0
+	 */
+	public final RegistryPath resolve(String name) {
+		
+		return RegistryPath.resolve(this, Registry.normalizePath(name));
+	}
+	
+	/**
+	 * @return the path of the parent key, or {@code null} if this is the path of a root key
+	 * @since 2.1.0
+	 */
+	public final RegistryPath getParent() {
+		
+		return this.parent;
+	}
+	
+	/**
+	 * @return the path of the root key
+	 * @since 2.1.0
+	 */
+	public final RegistryPath getRoot() {
+		
+		RegistryPath root = this;
+		
+		while(root.parent != null) {
+			
+			root = root.parent;
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * @return the name of the key
+	 * @since 2.1.0
+	 */
+	public final String getName() {
+		
+		return this.name;
+	}
+	
+	/**
+	 * @return the number of keys in this path; {@code 1} for a root key
+	 * @since 2.1.0
+	 */
+	public final int getDepth() {
+		
+		return this.depth;
+	}
+	
+	/**
+	 * @return {@code true} if this is the path of a root key, else {@code false}
+	 * @since 2.1.0
+	 */
+	public final boolean isRoot() {
+		
+		return this.parent == null;
+	}
+	
+	/**
+	 * @param path another path
+	 * @return {@code true} if this path is the same as the other path or one of its subkeys, else {@code false}
+	 * @since 2.1.0
+	 */
+	public final boolean startsWith(RegistryPath path) {
+		
+		RegistryPath ancestor = this;
+		
+		while(ancestor != null && ancestor.depth > path.depth) {
+			
+			ancestor = ancestor.parent;
+		}
+		
+		return path.equals(ancestor);
+	}
+	
+	@Override
+	public final boolean equals(Object object) {
+		
+		if(this == object) {
+			
+			return true;
+		}
+		
+		if(!(object instanceof RegistryPath)) {
+			
+			return false;
+		}
+		
+		RegistryPath path = (RegistryPath)object;
+		
+		if(this.hash != path.hash || this.depth != path.depth) {
+			
+			return false;
+		}
+		
+		RegistryPath current = this;
+		
+		// stops as soon as both paths share the rest
+		while(current != path) {
+			
+			if(current.parent == null) {
+				
+				String root = Registry.expandRoot(current.name);
+				String other = Registry.expandRoot(path.name);
+				return NameIndex.equals(root, other, 0, other.length());
+			}
+			
+			if(!NameIndex.equals(current.name, path.name, 0, path.name.length())) {
+				
+				return false;
+			}
+			
+			current = current.parent;
+			path = path.parent;
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public final int hashCode() {
+		
+		return this.hash;
+	}
+	
+	/**
+	 * The string is not cached, so that a path takes up no more memory than its name.
+	 * @return the path as it is used by the {@linkplain Registry} class
+	 */
+	@Override
+	public final String toString() {
+		
+		char[] characters = new char[this.length];
+		int end = this.length;
+		
+		for(RegistryPath path = this; path != null; path = path.parent) {
+			
+			int start = end - path.name.length();
+			path.name.getChars(0, path.name.length(), characters, start);
+			
+			if(start > 0) {
+				
+				characters[start - 1] = '\\';
+			}
+			
+			end = start - 1;
+		}
+		
+		return new String(characters);
+	}
+	
+	/**
+	 * Unlike {@linkplain #resolve(String)}, the name is used as it is.
+	 * @param name the name of a subkey as it is stored
+	 * @return the path of the subkey
+	 */
+	final RegistryPath child(String name) {
+		
+		return new RegistryPath(this, name);
+	}
+	
+	/**
+	 * Turns the paths of the subkeys of a key into {@linkplain RegistryPath} objects.
+	 * As long as the paths are spelled the same way, they all share the path of the key.
+	 * @param parent the path of the key
+	 * @param parentPath the path of the key as string
+	 * @param childs the paths of the subkeys
+	 * @return the paths of the subkeys
+	 */
+	static final List<RegistryPath> resolveAll(RegistryPath parent, String parentPath, List<String> childs) {
+		
+		List<RegistryPath> paths = new ArrayList<>(childs.size());
+		RegistryPath lastParent = parent;
+		String lastParentPath = parentPath;
+		
+		for(String child : childs) {
+			
+			int index = child.lastIndexOf('\\');
+			
+			if(index != lastParentPath.length() || !child.startsWith(lastParentPath)) {
+				
+				// the subkeys are not always spelled like the key itself, for example "HKCU" and "HKEY_CURRENT_USER"
+				lastParentPath = index != -1 ? child.substring(0, index) : "";
+				lastParent = index != -1 ? RegistryPath.of(lastParentPath) : null;
+			}
+			
+			paths.add(new RegistryPath(lastParent, child.substring(index + 1)));
+		}
+		
+		return paths;
+	}
+	
+	private static final RegistryPath resolve(RegistryPath parent, String path) {
+		
+		RegistryPath current = parent;
+		int start = 0;
+		
+		while(start <= path.length()) {
+			
+			int end = path.indexOf('\\', start);
+			
+			if(end == -1) {
+				
+				end = path.length();
+			}
+			
+			current = new RegistryPath(current, path.substring(start, end));
+			start = end + 1;
+		}
+		
+		return current;
+	}
+}
@@ -0,0 +1,432 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a bounded pool of long-lived shell processes and streams the "reg" commands to them over the standard input.
+ * After each command the shell has to print a line with a sentinel marker and the exit code of the command.
+ * Everything that was printed before that line is the output of the command.
+ * Sessions that have not been used for longer than the idle timeout are terminated and all other idle sessions are checked regularly.
+ * <p>Example:</p>
+ * <pre>Registry.setBackend(new ProcessRegistryBackend(new RegistrySessionPool(4, 30, TimeUnit.SECONDS)));</pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistrySessionPool implements CommandExecutor, Closeable {
+	
+	/**
+	 * Starts {@code cmd.exe} with echo and AutoRun commands turned off.
+	 * @since 2.1.0
+	 */
+	public static final List<String> WINDOWS_SHELL = Collections.unmodifiableList(Arrays.asList("cmd", "/q", "/d"));
+	
+	/**
+	 * Appends the sentinel and the exit code to a command for {@code cmd.exe}.
+	 * {@code %^ERRORLEVEL%} is expanded by {@code call} after the command has finished.
+	 * @since 2.1.0
+	 */
+	public static final String WINDOWS_COMMAND_FORMAT = "%1$s 2>&1 & call echo %2$s %%^ERRORLEVEL%%";
+	
+	private static final String PING = "cd .";
+	
+	private final List<String> shell;
+	private final String commandFormat;
+	private final long idleTimeout;
+	private final Semaphore permits;
+	private final Deque<Session> idle = new ArrayDeque<>();
+	private final ScheduledExecutorService maintenance;
+	private final String sentinelPrefix = "__SIMPLE_REGISTRY_" + UUID.randomUUID().toString().replace("-", "") + '_';
+	private final AtomicLong commandCount = new AtomicLong();
+	private volatile boolean closed;
+	
+	/**
+	 * Creates a pool of 4 {@code cmd.exe} sessions with an idle timeout of 60 seconds.
+	 * @since 2.1.0
+	 */
+	public RegistrySessionPool() {
+		
+		this(4, 60, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Creates a pool of {@code cmd.exe} sessions.
+	 * @param size maximum number of sessions
+	 * @param idleTimeout time after which an unused session is terminated
+	 * @param unit unit of the idle timeout
+	 * @since 2.1.0
+	 */
+	public RegistrySessionPool(int size, long idleTimeout, TimeUnit unit) {
+		
+		this(WINDOWS_SHELL, WINDOWS_COMMAND_FORMAT, size, idleTimeout, unit);
+	}
+	
+	/**
+	 * @param shell command line that starts a shell which reads commands from the standard input
+	 * @param commandFormat format string for a single line that is sent to the shell; {@code %1$s} is the command and {@code %2$s} is the sentinel that has to be printed together with the exit code after the command finished
+	 * @param size maximum number of sessions
+	 * @param idleTimeout time after which an unused session is terminated
+	 * @param unit unit of the idle timeout
+	 * @since 2.1.0
+	 */
+	public RegistrySessionPool(List<String> shell, String commandFormat, int size, long idleTimeout, TimeUnit unit) {
+		
+		if(size < 1) {
+			
+			throw new IllegalArgumentException("The pool size has to be at least 1");
+		}
+		
+		this.shell = new ArrayList<>(shell);
+		this.commandFormat = commandFormat;
+		this.idleTimeout = unit.toNanos(idleTimeout);
+		this.permits = new Semaphore(size, true);
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			
+			Thread thread = new Thread(runnable, "SimpleRegistry-SessionPool");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		long interval = Math.max(TimeUnit.MILLISECONDS.toNanos(10), this.idleTimeout / 2);
+		this.maintenance.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public final String execute(String command) throws IOException {
+		
+		if(this.closed) {
+			
+			throw new IOException("The session pool has been closed");
+		}
+		
+		try {
+			
+			this.permits.acquire();
+			
+		} catch(InterruptedException exception) {
+			
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		
+		try {
+			
+			Session session = this.checkout();
+			boolean healthy = false;
+			
+			// an AsyncRegistry destroys the session if the operation is cancelled, which makes it unhealthy
+			AsyncRegistry.attach(session.process);
+			
+			try {
+				
+				boolean measured = CommandMetrics.isActive();
+				long start = measured ? System.nanoTime() : 0L;
+				String output = session.execute(command);
+				
+				// the command can still finish after its children were killed, while the shell is about to be destroyed
+				healthy = !Thread.currentThread().isInterrupted();
+				
+				if(measured) {
+					
+					CommandMetrics.waited(System.nanoTime() - start);
+					CommandMetrics.exited(session.exitCode);
+				}
+				
+				if(session.exitCode != 0) {
+					
+					throw new IOException(RegistrySessionPool.getFirstLine(output));
+				}
+				
+				return output;
+				
+			} finally {
+				
+				AsyncRegistry.detach(session.process);
+				
+				if(healthy) {
+					
+					this.checkin(session);
+					
+				} else {
+					
+					session.destroy();
+				}
+			}
+			
+		} finally {
+			
+			this.permits.release();
+		}
+	}
+	
+	/**
+	 * Terminates all idle sessions that have exceeded the idle timeout or do not respond anymore.
+	 * This is done automatically in regular intervals.
+	 * Sessions that are currently in use are not checked.
+	 * @since 2.1.0
+	 */
+	public final void checkHealth() {
+		
+		int count;
+		
+		synchronized(this.idle) {
+			
+			count = this.idle.size();
+		}
+		
+		for(int index = 0; index < count && this.permits.tryAcquire(); index++) {
+			
+			try {
+				
+				Session session;
+				
+				synchronized(this.idle) {
+					
+					session = this.idle.pollLast();
+				}
+				
+				if(session == null) {
+					
+					break;
+				}
+				
+				if(System.nanoTime() - session.lastUsed > this.idleTimeout || !session.isHealthy()) {
+					
+					session.destroy();
+					
+				} else {
+					
+					this.checkin(session, session.lastUsed);
+				}
+				
+			} finally {
+				
+				this.permits.release();
+			}
+		}
+	}
+	
+	/**
+	 * Terminates all sessions.
+	 * Sessions that are currently in use are terminated as soon as their command has finished.
+	 * @since 2.1.0
+	 */
+	@Override
+	public final void close() {
+		
+		this.closed = true;
+		this.maintenance.shutdownNow();
+		
+		synchronized(this.idle) {
+			
+			for(Session session : this.idle) {
+				
+				session.destroy();
+			}
+			
+			this.idle.clear();
+		}
+	}
+	
+	private final Session checkout() throws IOException {
+		
+		synchronized(this.idle) {
+			
+			Session session;
+			
+			while((session = this.idle.pollFirst()) != null) {
+				
+				if(session.process.isAlive()) {
+					
+					return session;
+				}
+				
+				session.destroy();
+			}
+		}
+		
+		boolean measured = CommandMetrics.isActive();
+		long start = measured ? System.nanoTime() : 0L;
+		Session session = new Session();
+		
+		if(measured) {
+			
+			CommandMetrics.spawned(System.nanoTime() - start);
+		}
+		
+		return session;
+	}
+	
+	private final void checkin(Session session) {
+		
+		this.checkin(session, System.nanoTime());
+	}
+	
+	private final void checkin(Session session, long lastUsed) {
+		
+		session.lastUsed = lastUsed;
+		
+		synchronized(this.idle) {
+			
+			if(!this.closed) {
+				
+				// most recently used sessions are reused first so that the others can time out
+				this.idle.offerFirst(session);
+				return;
+			}
+		}
+		
+		session.destroy();
+	}
+	
+	private static final String getFirstLine(String output) {
+		
+		for(String line : output.split("\r?\n")) {
+			
+			if(!line.trim().isEmpty()) {
+				
+				return line;
+			}
+		}
+		
+		return null;
+	}
+	
+	private final class Session {
+		
+		private final Process process;
+		private final Writer input;
+		private final BufferedReader output;
+		private long lastUsed;
+		private int exitCode;
+		
+		private Session() throws IOException {
+			
+			ProcessBuilder builder = new ProcessBuilder(RegistrySessionPool.this.shell);
+			builder.redirectErrorStream(true);
+			
+			this.process = builder.start();
+			this.input = new BufferedWriter(new OutputStreamWriter(this.process.getOutputStream(), StandardCharsets.UTF_8));
+			this.output = new BufferedReader(new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8));
+			
+			try {
+				
+				// discards everything the shell prints on startup
+				this.execute(PING);
+				
+			} catch(IOException exception) {
+				
+				this.destroy();
+				throw exception;
+			}
+		}
+		
+		private final String execute(String command) throws IOException {
+			
+			String sentinel = RegistrySessionPool.this.sentinelPrefix + RegistrySessionPool.this.commandCount.incrementAndGet();
+			this.input.write(String.format(RegistrySessionPool.this.commandFormat, command, sentinel));
+			this.input.write(System.lineSeparator());
+			this.input.flush();
+			
+			StringBuilder builder = new StringBuilder();
+			String line = null;
+			
+			while((line = this.output.readLine()) != null) {
+				
+				int index = line.indexOf(sentinel);
+				
+				if(index != -1) {
+					
+					builder.append(line, 0, index);
+					
+					try {
+						
+						this.exitCode = Integer.parseInt(line.substring(index + sentinel.length()).trim());
+						
+					} catch(NumberFormatException exception) {
+						
+						throw new IOException("Invalid exit code: " + line, exception);
+					}
+					
+					return builder.toString();
+				}
+				
+				builder.append(line).append('\n');
+			}
+			
+			throw new IOException("The shell terminated unexpectedly");
+		}
+		
+		private final boolean isHealthy() {
+			
+			try {
+				
+				return this.process.isAlive() && this.execute(PING) != null && this.exitCode == 0;
+				
+			} catch(IOException exception) {
+				
+				return false;
+			}
+		}
+		
+		private final void destroy() {
+			
+			this.process.destroy();
+			
+			try {
+				
+				this.input.close();
+				
+			} catch(IOException exception) {}
+			
+			try {
+				
+				this.output.close();
+				
+			} catch(IOException exception) {}
+		}
+	}
+}
@@ -0,0 +1,385 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of a key and all of its subkeys and values that has been read at once.
+ * The snapshot is an engine itself, so keys and values that are read from it can be navigated as usual,
+ * only that every lookup is done in memory and takes constant time.
+ * All methods that would change the registry throw an {@linkplain UnsupportedOperationException}.
+ * Snapshots are thread safe.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistrySnapshot implements RegistryBackend {
+	
+	private final String path;
+	private final Map<RegistryPath, Node> nodes;
+	
+	private RegistrySnapshot(String path) {
+		
+		this.path = path;
+		this.nodes = new HashMap<>();
+	}
+	
+	/**
+	 * Reads a snapshot from the output of {@code reg query /s}.
+	 * @param path path of the key of which the snapshot was taken
+	 * @param output the output of {@code reg query /s}; will not be closed
+	 * @param defaultValueName the name that {@code reg} gives the default value on this system, or {@code null} if it is unknown
+	 * @return the snapshot
+	 * @throws IOException if the key is not part of the output
+	 */
+	static final RegistrySnapshot parse(String path, Reader output, String defaultValueName) throws IOException {
+		
+		RegistrySnapshot snapshot = new RegistrySnapshot(path);
+		
+		RegQueryParser.parse(output, new RegQueryParser.Handler() {
+			
+			private Node node;
+			private String path;
+			
+			@Override
+			public final void key(String path) {
+				
+				this.node = snapshot.addKey(path);
+				this.path = path;
+			}
+			
+			@Override
+			public final void value(String name, RegistryValue.Type type, String rawValue) throws IOException {
+				
+				if(this.node == null) {
+					
+					throw new IOException("Value without a key: " + name);
+				}
+				
+				RegistryValue value = new RegistryValue(name, type, rawValue, this.path, snapshot);
+				
+				// the first value with the name of the default value is the default value
+				if(this.node.defaultValue == null && name.equals(defaultValueName)) {
+					
+					value.markDefaultValue();
+				}
+				
+				snapshot.addValue(this.node, value);
+			}
+		});
+		
+		return snapshot.validate();
+	}
+	
+	/**
+	 * Takes a snapshot by reading every key on its own.
+	 * Used for engines that cannot read a whole subtree at once.
+	 * @param backend the engine from which the keys are read
+	 * @param path path of the root key
+	 * @return the snapshot
+	 * @throws IOException if an error occurs
+	 */
+	static final RegistrySnapshot copy(RegistryBackend backend, String path) throws IOException {
+		
+		RegistrySnapshot snapshot = new RegistrySnapshot(path);
+		List<String> pending = new ArrayList<>();
+		pending.add(path);
+		
+		while(!pending.isEmpty()) {
+			
+			RegistryKey key = backend.getKey(pending.remove(pending.size() - 1));
+			Node node = snapshot.addKey(key.getPath());
+			
+			for(RegistryValue value : key.getValues()) {
+				
+				snapshot.addValue(node, RegistrySnapshot.copy(value, key.getPath(), snapshot));
+			}
+			
+			RegistryValue defaultValue = key.getDefaultValue();
+			
+			if(defaultValue != null && node.defaultValue == null) {
+				
+				node.defaultValue = RegistrySnapshot.copy(defaultValue, key.getPath(), snapshot).markDefaultValue();
+			}
+			
+			List<RegistryPath> childs = key.getChildPaths();
+			
+			for(int index = childs.size() - 1; index >= 0; index--) {
+				
+				pending.add(childs.get(index).toString());
+			}
+		}
+		
+		return snapshot.validate();
+	}
+	
+	/**
+	 * @return the key of which this snapshot was taken
+	 * @since 2.1.0
+	 */
+	public final RegistryKey getRoot() {
+		
+		try {
+			
+			return this.getKey(this.path);
+			
+		} catch(IOException exception) {
+			
+			// the root is always there
+			throw new IllegalStateException(exception);
+		}
+	}
+	
+	/**
+	 * @return path of the key of which this snapshot was taken
+	 * @since 2.1.0
+	 */
+	public final String getPath() {
+		
+		return this.path;
+	}
+	
+	/**
+	 * @return number of keys in this snapshot
+	 * @since 2.1.0
+	 */
+	public final int getSize() {
+		
+		return this.nodes.size();
+	}
+	
+	/**
+	 * @param path path of a key
+	 * @return {@code true} if the key is part of this snapshot, else {@code false}
+	 * @since 2.1.0
+	 */
+	public final boolean containsKey(String path) {
+		
+		return this.nodes.containsKey(RegistryPath.of(path));
+	}
+	
+	/**
+	 * Writes this snapshot in a compact binary format that can be read with {@linkplain SnapshotFile}.
+	 * Names of keys and values are only written once, numbers take as few bytes as possible and the data of a value is written in its binary form.
+	 * @param output the output stream; will not be closed
+	 * @throws IOException if an error occurs
+	 * @since 2.1.0
+	 */
+	public final void write(OutputStream output) throws IOException {
+		
+		SnapshotFile.write(this, this.path, output);
+	}
+	
+	@Override
+	public final boolean isSupported() {
+		
+		return true;
+	}
+	
+	@Override
+	public final RegistryKey getKey(String path) throws IOException {
+		
+		Node node = this.getNode(path);
+		List<RegistryValue> values = new ArrayList<>(node.values.size());
+		
+		for(RegistryValue value : node.values) {
+			
+			values.add(value.copy());
+		}
+		
+		// the snapshot must not be changed through the keys that are read from it
+		return new RegistryKey(node.path, values, RegistrySnapshot.copy(node.defaultValue), new ArrayList<>(node.childs), this);
+	}
+	
+	@Override
+	public final RegistryValue getValue(String path, String name) throws IOException {
+		
+		RegistryValue value = this.getNode(path).valuesByName.get(NameIndex.fold(name));
+		
+		if(value == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		return value.copy();
+	}
+	
+	@Override
+	public final RegistryValue getDefaultValue(String path) throws IOException {
+		
+		return RegistrySnapshot.copy(this.getNode(path).defaultValue);
+	}
+	
+	@Override
+	public final RegistrySnapshot snapshot(String path) throws IOException {
+		
+		return Registry.toLookupKey(path).equals(Registry.toLookupKey(this.path)) ? this : RegistrySnapshot.copy(this, path);
+	}
+	
+	@Override
+	public final void setKey(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteKey(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteValue(String path, String name) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteDefaultValue(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteAllValues(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void importFile(File file) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void exportKey(String path, File exportFile) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	private final Node getNode(String path) throws IOException {
+		
+		Node node = this.nodes.get(RegistryPath.of(path));
+		
+		if(node == null) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		return node;
+	}
+	
+	private final Node addKey(String path) {
+		
+		RegistryPath registryPath = RegistryPath.of(path);
+		Node node = this.nodes.get(registryPath);
+		
+		if(node == null) {
+			
+			Node parent = registryPath.isRoot() ? null : this.nodes.get(registryPath.getParent());
+			
+			if(parent != null) {
+				
+				// all keys of the snapshot share the path of their parent instead of having their own
+				registryPath = parent.path.child(registryPath.getName());
+				parent.childs.add(registryPath);
+			}
+			
+			node = new Node(registryPath);
+			this.nodes.put(registryPath, node);
+		}
+		
+		return node;
+	}
+	
+	private final void addValue(Node node, RegistryValue value) {
+		
+		node.values.add(value);
+		node.valuesByName.putIfAbsent(NameIndex.fold(value.getName()), value);
+		
+		if(value.isDefaultValue() && node.defaultValue == null) {
+			
+			node.defaultValue = value;
+		}
+	}
+	
+	private static final RegistryValue copy(RegistryValue value) {
+		
+		return value != null ? value.copy() : null;
+	}
+	
+	private static final RegistryValue copy(RegistryValue value, String path, RegistrySnapshot snapshot) {
+		
+		RegistryValue copy = new RegistryValue(value.getName(), value.getType(), value.getRawValue(), path, snapshot);
+		return value.isDefaultValue() ? copy.markDefaultValue() : copy;
+	}
+	
+	private final RegistrySnapshot validate() throws IOException {
+		
+		if(!this.nodes.containsKey(RegistryPath.of(this.path))) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		return this;
+	}
+	
+	private static final class Node {
+		
+		private final RegistryPath path;
+		private final List<RegistryValue> values;
+		private final Map<String, RegistryValue> valuesByName;
+		private final List<RegistryPath> childs;
+		private RegistryValue defaultValue;
+		
+		private Node(RegistryPath path) {
+			
+			this.path = path;
+			this.values = new ArrayList<>();
+			this.valuesByName = new HashMap<>();
+			this.childs = new ArrayList<>();
+		}
+	}
+}
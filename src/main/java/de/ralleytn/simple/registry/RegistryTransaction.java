@@ -0,0 +1,432 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies many changes to many keys either completely or not at all.
+ * Before anything is changed, the current state of everything that is going to be changed is written into a journal file on disk.
+ * Then all changes are applied at once with a {@linkplain RegistryBatch}.
+ * If one of the changes fails, the journal is imported, which restores the previous state, and the commit fails.
+ * If the process dies while the changes are applied, the journal is left behind and can be imported on the next start with {@linkplain #recover(File)}.
+ * Only the keys and values that are touched by the transaction are written into the journal, so a recovery is as fast as the transaction itself.
+ * <pre>
+ * File journal = new File("deployment.journal.reg");
+ * RegistryTransaction.recover(journal);
+ * 
+ * new RegistryTransaction(journal)
+ *     .setValue(Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware", "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!")
+ *     .deleteKey(Registry.HKEY_CURRENT_USER + "\\Software\\MyOldSoftware")
+ *     .commit();
+ * </pre>
+ * Changes that have been made by someone else while a transaction is committed may be undone by a roll back.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryTransaction {
+	
+	
+	private final RegistryBackend backend;
+	private final File journal;
+	private final RegistryBatch batch;
+	
+	/**
+	 * Creates a transaction for the engine that is currently used by the {@linkplain Registry} class.
+	 * @param journal the file in which the previous state is kept while the transaction is committed; must not exist
+	 * @since 2.1.0
+	 */
+	public RegistryTransaction(File journal) {
+		
+		this(Registry.getBackend(), journal);
+	}
+	
+	RegistryTransaction(RegistryBackend backend, File journal) {
+		
+		this.backend = backend;
+		this.journal = journal;
+		this.batch = new RegistryBatch(backend, null);
+	}
+	
+	/**
+	 * Imports a journal that has been left behind by a transaction that was interrupted, and deletes it.
+	 * Should be called before the first transaction with the same journal file.
+	 * @param journal the journal file
+	 * @return {@code true} if a transaction has been rolled back, {@code false} if there was no journal
+	 * @throws IOException if the journal could not be imported; it will not be deleted in that case
+	 * @since 2.1.0
+	 */
+	public static final boolean recover(File journal) throws IOException {
+		
+		return RegistryTransaction.recover(Registry.getBackend(), journal);
+	}
+	
+	static final boolean recover(RegistryBackend backend, File journal) throws IOException {
+		
+		if(!journal.exists()) {
+			
+			return false;
+		}
+		
+		backend.importFile(journal);
+		
+		if(!journal.delete()) {
+			
+			throw new IOException("The journal could not be deleted: " + journal);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Adds a key.
+	 * @param path path of the key
+	 * @return this transaction
+	 * @since 2.1.0
+	 */
+	public final RegistryTransaction setKey(String path) {
+		
+		this.batch.setKey(path);
+		return this;
+	}
+	
+	/**
+	 * Deletes a key and all of its subkeys.
+	 * @param path path of the key
+	 * @return this transaction
+	 * @since 2.1.0
+	 */
+	public final RegistryTransaction deleteKey(String path) {
+		
+		this.batch.deleteKey(path);
+		return this;
+	}
+	
+	/**
+	 * Sets a value of a key.
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return this transaction
+	 * @since 2.1.0
+	 */
+	public final RegistryTransaction setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		this.batch.setValue(path, name, type, seperator, rawValue);
+		return this;
+	}
+	
+	/**
+	 * Sets the default value of a key.
+	 * @param path path of the key
+	 * @param type the data type
+	 * @param seperator only important when the data type is {@linkplain RegistryValue.Type#REG_MULTI_SZ}; specifies at which character the string should be split
+	 * @param rawValue the value data
+	 * @return this transaction
+	 * @since 2.1.0
+	 */
+	public final RegistryTransaction setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		this.batch.setDefaultValue(path, type, seperator, rawValue);
+		return this;
+	}
+	
+	/**
+	 * Deletes a value of a key.
+	 * @param path path of the key
+	 * @param name name of the value
+	 * @return this transaction
+	 * @since 2.1.0
+	 */
+	public final RegistryTransaction deleteValue(String path, String name) {
+		
+		this.batch.deleteValue(path, name);
+		return this;
+	}
+	
+	/**
+	 * Deletes the default value of a key.
+	 * @param path path of the key
+	 * @return this transaction
+	 * @since 2.1.0
+	 */
+	public final RegistryTransaction deleteDefaultValue(String path) {
+		
+		this.batch.deleteDefaultValue(path);
+		return this;
+	}
+	
+	/**
+	 * @return all changes that have not been committed yet
+	 * @since 2.1.0
+	 */
+	public final List<RegistryBatch.Operation> getOperations() {
+		
+		return this.batch.getOperations();
+	}
+	
+	/**
+	 * @return the file in which the previous state is kept while the transaction is committed
+	 * @since 2.1.0
+	 */
+	public final File getJournal() {
+		
+		return this.journal;
+	}
+	
+	/**
+	 * Applies all changes and clears this transaction.
+	 * If one of the changes fails, all changes are rolled back.
+	 * @return all changes in the order in which they were added
+	 * @throws IOException if a change failed, in which case everything has been rolled back, or if the previous state could not be read or restored;
+	 * the journal is only left behind if the roll back failed
+	 * @since 2.1.0
+	 */
+	public final List<RegistryBatch.Operation> commit() throws IOException {
+		
+		if(this.journal.exists()) {
+			
+			throw new IOException("The journal of another transaction still exists and has to be recovered first: " + this.journal);
+		}
+		
+		this.writeJournal(this.batch.getOperations());
+		List<RegistryBatch.Operation> operations = null;
+		
+		try {
+			
+			operations = this.batch.apply();
+			
+		} catch(IOException | RuntimeException exception) {
+			
+			this.rollback(exception);
+			throw exception;
+		}
+		
+		for(RegistryBatch.Operation operation : operations) {
+			
+			if(!operation.isApplied()) {
+				
+				IOException exception = new IOException("The transaction has been rolled back because a change failed: " + operation, operation.getError());
+				this.rollback(exception);
+				throw exception;
+			}
+		}
+		
+		if(!this.journal.delete()) {
+			
+			throw new IOException("The journal could not be deleted: " + this.journal);
+		}
+		
+		return operations;
+	}
+	
+	private final void rollback(Exception cause) {
+		
+		try {
+			
+			RegistryTransaction.recover(this.backend, this.journal);
+			
+		} catch(IOException exception) {
+			
+			cause.addSuppressed(exception);
+		}
+	}
+	
+	/**
+	 * Writes everything that is needed to restore the keys and values that are touched by the changes.
+	 * Keys that are deleted are restored with all of their subkeys, keys that are created are deleted again
+	 * and of all other keys only the changed values are restored.
+	 */
+	private final void writeJournal(List<RegistryBatch.Operation> operations) throws IOException {
+		
+		Map<String, RegistrySnapshot> deletedKeys = new LinkedHashMap<>();
+		Map<String, String> createdKeys = new LinkedHashMap<>();
+		Map<String, Map<String, RegistryValue>> changedValues = new LinkedHashMap<>();
+		Map<String, RegistryKey> keys = new HashMap<>();
+		
+		// a deleted key contains everything below it, so it has to be known first
+		for(RegistryBatch.Operation operation : operations) {
+			
+			if(operation.getKind() == RegistryBatch.Operation.Kind.DELETE_KEY && RegistryTransaction.findAncestor(deletedKeys, operation.getPath()) == null) {
+				
+				RegistrySnapshot snapshot = this.snapshot(operation.getPath());
+				
+				if(snapshot != null) {
+					
+					deletedKeys.keySet().removeIf(path -> RegistryTransaction.isAncestor(Registry.toLookupKey(operation.getPath()), path));
+					deletedKeys.put(Registry.toLookupKey(operation.getPath()), snapshot);
+				}
+			}
+		}
+		
+		for(RegistryBatch.Operation operation : operations) {
+			
+			String path = operation.getPath();
+			
+			if(RegistryTransaction.findAncestor(deletedKeys, path) != null || RegistryTransaction.findAncestor(createdKeys, path) != null) {
+				
+				continue;
+			}
+			
+			String lookupKey = Registry.toLookupKey(path);
+			RegistryKey key = keys.containsKey(lookupKey) ? keys.get(lookupKey) : this.getKey(path);
+			keys.put(lookupKey, key);
+			
+			if(key == null) {
+				
+				String created = this.findCreatedKey(path);
+				createdKeys.keySet().removeIf(other -> RegistryTransaction.isAncestor(Registry.toLookupKey(created), other));
+				createdKeys.put(Registry.toLookupKey(created), created);
+				
+			} else if(operation.getKind() == RegistryBatch.Operation.Kind.SET_VALUE || operation.getKind() == RegistryBatch.Operation.Kind.DELETE_VALUE) {
+				
+				Map<String, RegistryValue> values = changedValues.computeIfAbsent(key.getPath(), name -> new LinkedHashMap<>());
+				String name = operation.getName();
+				
+				// only the first state of a value is the previous one; null means that the value did not exist
+				if(!values.containsKey(name)) {
+					
+					values.put(name, name == null ? key.getDefaultValue() : key.getValueByName(name));
+				}
+			}
+		}
+		
+		try(FileOutputStream output = new FileOutputStream(this.journal)) {
+			
+			RegFileWriter writer = new RegFileWriter(output);
+			
+			for(String created : createdKeys.values()) {
+				
+				writer.writeDeleteKey(created);
+			}
+			
+			for(RegistrySnapshot deleted : deletedKeys.values()) {
+				
+				writer.writeDeleteKey(deleted.getPath());
+				writer.writeTree(deleted.getRoot());
+			}
+			
+			for(Map.Entry<String, Map<String, RegistryValue>> entry : changedValues.entrySet()) {
+				
+				writer.writeKey(entry.getKey());
+				
+				for(Map.Entry<String, RegistryValue> value : entry.getValue().entrySet()) {
+					
+					if(value.getValue() != null) {
+						
+						// the name of the change tells whether it is the default value, the name of the old value may be translated
+						writer.writeValue(value.getKey(), value.getValue());
+						
+					} else {
+						
+						writer.writeDeleteValue(value.getKey());
+					}
+				}
+			}
+			
+			// the journal has to be on the disk before anything is changed
+			writer.flush();
+			output.getFD().sync();
+			
+		} catch(IOException | RuntimeException exception) {
+			
+			this.journal.delete();
+			throw exception;
+		}
+	}
+	
+	/**
+	 * @return the key that does not exist yet and is the farthest away from the given key of those that will be created with it
+	 */
+	private final String findCreatedKey(String path) throws IOException {
+		
+		String created = path;
+		int index = path.lastIndexOf('\\');
+		
+		while(index != -1 && this.getKey(path.substring(0, index)) == null) {
+			
+			created = path.substring(0, index);
+			index = created.lastIndexOf('\\');
+		}
+		
+		return created;
+	}
+	
+	private final RegistryKey getKey(String path) throws IOException {
+		
+		try {
+			
+			return this.backend.getKey(path);
+			
+		} catch(RegistryNotFoundException exception) {
+			
+			return null;
+		}
+	}
+	
+	private final RegistrySnapshot snapshot(String path) throws IOException {
+		
+		try {
+			
+			return this.backend.snapshot(path);
+			
+		} catch(RegistryNotFoundException exception) {
+			
+			return null;
+		}
+	}
+	
+	private static final <T>String findAncestor(Map<String, T> paths, String path) {
+		
+		String lookupKey = Registry.toLookupKey(path);
+		
+		for(String other : paths.keySet()) {
+			
+			if(RegistryTransaction.isAncestor(other, lookupKey)) {
+				
+				return other;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return {@code true} if both lookup keys are the same or the first one is an ancestor of the second one
+	 */
+	private static final boolean isAncestor(String ancestor, String lookupKey) {
+		
+		return lookupKey.startsWith(ancestor) && (lookupKey.length() == ancestor.length() || lookupKey.charAt(ancestor.length()) == '\\');
+	}
+}
@@ -23,50 +23,109 @@
  */
 package de.ralleytn.simple.registry;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Locale;
 
 /**
  * Represents a value of a registry key.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.0.0
  */
 public final class RegistryValue {
 
+	private static final Object UNDECODED = new Object();
+	
+	// name of the default value in engines that do not get it from "reg"
+	static final String DEFAULT_NAME = "(Default)";
+	
 	private String name;
 	private String path;
 	private Type type;
 	private String rawValue;
-	private Object value;
+	private volatile Object value;
+	private long number;
+	private volatile boolean numberDecoded;
+	private RegistryBackend backend;
+	private boolean defaultValue;
 	
-	RegistryValue(String name, Type type, String rawValue, String path) {
+	RegistryValue(String name, Type type, String rawValue, String path, RegistryBackend backend) {
 		
 		this.name = name;
 		this.type = type;
 		this.rawValue = rawValue;
-		this.value = type.parseValue(rawValue);
+		
+		// the data is only decoded if someone asks for it
+		this.value = UNDECODED;
+		this.path = path;
+		this.backend = backend;
+	}
+	
+	RegistryValue(String name, Type type, String path, RegistryBackend backend, Object value) {
+		
+		// the raw value is only created if someone asks for it
+		this.name = name;
+		this.type = type;
+		this.value = value;
 		this.path = path;
+		this.backend = backend;
+	}
+	
+	final void setBackend(RegistryBackend backend) {
+		
+		this.backend = backend;
+	}
+	
+	// "reg" gives the default value a translated name, so the engines mark it instead
+	final RegistryValue markDefaultValue() {
+		
+		this.defaultValue = true;
+		return this;
+	}
+	
+	final RegistryValue copy() {
+		
+		RegistryValue copy = new RegistryValue(this.name, this.type, this.path, this.backend, this.value);
+		copy.rawValue = this.rawValue;
+		copy.defaultValue = this.defaultValue;
+		
+		if(this.numberDecoded) {
+			
+			copy.number = this.number;
+			copy.numberDecoded = true;
+		}
+		
+		return copy;
 	}
 	
 	/**
 	 * Reloads the value.
+	 * Always reads from the registry itself, even if the value came from a {@linkplain CachingRegistry}.
 	 * @throws IOException if an error occurred while reloading the value
 	 * @since 1.0.0
 	 */
 	public final void reload() throws IOException {
 		
-		RegistryValue value = Registry.getValue(this.path, this.name);
+		this.backend.invalidate(this.path);
+		RegistryValue value = this.defaultValue ? this.backend.getDefaultValue(this.path) : this.backend.getValue(this.path, this.name);
+		
+		if(value == null) {
+			
+			throw new RegistryNotFoundException();
+		}
 		
 		this.name = value.name;
 		this.path = value.path;
 		this.type = value.type;
 		this.rawValue = value.rawValue;
-		this.value = value;
+		this.value = value.value;
+		this.number = value.number;
+		this.numberDecoded = value.numberDecoded;
+		this.backend = value.backend;
 	}
 	
 	/**
@@ -78,6 +137,16 @@ public final class RegistryValue {
 		return this.name;
 	}
 	
+	/**
+	 * The name of the default value depends on the language of the system and may be the same as the name of another value.
+	 * @return {@code true} if this is the default value of its key, else {@code false}
+	 * @since 2.1.0
+	 */
+	public final boolean isDefaultValue() {
+		
+		return this.defaultValue;
+	}
+	
 	/**
 	 * @return data type of value
 	 * @since 1.0.0
@@ -94,6 +163,13 @@ public final class RegistryValue {
 	 */
 	public final String getRawValue() {
 		
+		Object value = this.value;
+		
+		if(this.rawValue == null && value != null && value != UNDECODED) {
+			
+			this.rawValue = this.type.formatValue(value);
+		}
+		
 		return this.rawValue;
 	}
 	
@@ -113,7 +189,7 @@ public final class RegistryValue {
 	 */
 	public final RegistryKey getKey() throws IOException {
 		
-		return Registry.getKey(this.path);
+		return this.backend.getKey(this.path);
 	}
 	
 	/**
@@ -127,12 +203,213 @@ public final class RegistryValue {
 	 * <li>REG_FULL_RESOURCE_DESCRIPTOR = String</li>
 	 * <li>REG_NONE = String</li>
 	 * </ul>
+	 * The data is decoded when this method is called for the first time.
 	 * @return value data
 	 * @since 1.0.0
 	 */
 	public final Object getValue() {
 		
-		return this.value;
+		Object value = this.value;
+		
+		if(value == UNDECODED) {
+			
+			RegistryMetrics metrics = Registry.getMetrics();
+			
+			if(metrics == RegistryMetrics.NONE) {
+				
+				value = this.type.parseValue(this.rawValue);
+				
+			} else {
+				
+				long start = System.nanoTime();
+				value = this.type.parseValue(this.rawValue);
+				metrics.recordTime(RegistryMetrics.Operation.QUERY, this.path != null ? Registry.getHive(this.path) : null, RegistryMetrics.Phase.DECODE, System.nanoTime() - start);
+			}
+			
+			this.value = value;
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * @return the data of a {@linkplain Type#REG_DWORD} value
+	 * @throws IllegalStateException if the value is not a {@linkplain Type#REG_DWORD}
+	 * @since 2.1.0
+	 */
+	public final int getInt() {
+		
+		if(this.type != Type.REG_DWORD) {
+			
+			throw new IllegalStateException(this.type.name() + " is not a REG_DWORD");
+		}
+		
+		return (int)this.getNumber();
+	}
+	
+	/**
+	 * A {@linkplain Type#REG_DWORD} is treated as an unsigned number, so {@code 0xFFFFFFFF} is returned as {@code 4294967295}.
+	 * @return the data of a {@linkplain Type#REG_QWORD} or {@linkplain Type#REG_DWORD} value
+	 * @throws IllegalStateException if the value is neither a {@linkplain Type#REG_QWORD} nor a {@linkplain Type#REG_DWORD}
+	 * @since 2.1.0
+	 */
+	public final long getLong() {
+		
+		if(this.type == Type.REG_DWORD) {
+			
+			return this.getNumber() & 0xFFFFFFFFL;
+			
+		} else if(this.type != Type.REG_QWORD) {
+			
+			throw new IllegalStateException(this.type.name() + " is neither a REG_QWORD nor a REG_DWORD");
+		}
+		
+		return this.getNumber();
+	}
+	
+	/**
+	 * Writes the data of a binary value into a buffer without creating an array.
+	 * The bytes are written at the position of the buffer, which is then advanced by the number of bytes.
+	 * @param buffer the buffer
+	 * @return the number of bytes that have been written
+	 * @throws IllegalStateException if the value is not a {@linkplain Type#REG_BINARY}, {@linkplain Type#REG_NONE} or {@linkplain Type#REG_FULL_RESOURCE_DESCRIPTOR}
+	 * @throws BufferOverflowException if there is not enough space left in the buffer; nothing is written in that case
+	 * @since 2.1.0
+	 */
+	public final int getBytes(ByteBuffer buffer) {
+		
+		if(this.type != Type.REG_BINARY && this.type != Type.REG_NONE && this.type != Type.REG_FULL_RESOURCE_DESCRIPTOR) {
+			
+			throw new IllegalStateException(this.type.name() + " is not a binary type");
+		}
+		
+		Object value = this.value;
+		
+		if(value instanceof byte[]) {
+			
+			byte[] bytes = (byte[])value;
+			buffer.put(bytes);
+			return bytes.length;
+		}
+		
+		String hex = value instanceof String ? (String)value : this.rawValue;
+		return hex != null ? HexDecoder.decode(hex, buffer) : 0;
+	}
+	
+	/**
+	 * The list should not be modified.
+	 * @return the strings of a {@linkplain Type#REG_MULTI_SZ} value
+	 * @throws IllegalStateException if the value is not a {@linkplain Type#REG_MULTI_SZ}
+	 * @since 2.1.0
+	 */
+	@SuppressWarnings("unchecked")
+	public final List<String> getStrings() {
+		
+		if(this.type != Type.REG_MULTI_SZ) {
+			
+			throw new IllegalStateException(this.type.name() + " is not a REG_MULTI_SZ");
+		}
+		
+		return (List<String>)this.getValue();
+	}
+	
+	/**
+	 * The environment variables in a {@linkplain Type#REG_EXPAND_SZ} are expanded.
+	 * {@linkplain Type#REG_NONE} and {@linkplain Type#REG_FULL_RESOURCE_DESCRIPTOR} values are returned as hexadecimal string.
+	 * @return the data of a {@linkplain Type#REG_SZ}, {@linkplain Type#REG_EXPAND_SZ}, {@linkplain Type#REG_NONE} or {@linkplain Type#REG_FULL_RESOURCE_DESCRIPTOR} value
+	 * @throws IllegalStateException if the value is none of these types
+	 * @since 2.1.0
+	 */
+	public final String getString() {
+		
+		if(this.type != Type.REG_SZ && this.type != Type.REG_EXPAND_SZ && this.type != Type.REG_NONE && this.type != Type.REG_FULL_RESOURCE_DESCRIPTOR) {
+			
+			throw new IllegalStateException(this.type.name() + " is not a string type");
+		}
+		
+		return (String)this.getValue();
+	}
+	
+	private final long getNumber() {
+		
+		if(!this.numberDecoded) {
+			
+			Object value = this.value;
+			long number = 0L;
+			
+			if(value != UNDECODED) {
+				
+				number = value != null ? ((Number)value).longValue() : 0L;
+				
+			} else if(this.rawValue != null) {
+				
+				// parses the number without boxing it and without creating a substring
+				int start = this.rawValue.startsWith("0x") || this.rawValue.startsWith("0X") ? 2 : 0;
+				number = Long.parseUnsignedLong(this.rawValue, start, this.rawValue.length(), 16);
+			}
+			
+			this.number = number;
+			this.numberDecoded = true;
+		}
+		
+		return this.number;
+	}
+	
+	// Reads a number like "reg add" does: hexadecimal with 0x and decimal otherwise, a leading 0 does not make it octal.
+	static final long parseNumber(String value) {
+		
+		if(value.startsWith("0x") || value.startsWith("0X")) {
+			
+			return Long.parseUnsignedLong(value, 2, value.length(), 16);
+		}
+		
+		return Long.parseLong(value);
+	}
+	
+	// Brings data in the format of "reg add" into the format in which "reg query" prints it; null if there is no data.
+	// The engines and the RegistryBatch share it, so that the same data is stored in the same way everywhere.
+	static final String normalize(Type type, char seperator, String rawValue) throws IOException {
+		
+		String value = rawValue == null ? "" : rawValue;
+		
+		try {
+			
+			switch(type) {
+				
+				case REG_DWORD:
+					
+					long dword = value.isEmpty() ? 0 : RegistryValue.parseNumber(value);
+					
+					// "reg add" rejects negative numbers and numbers with more than 32 bit
+					if(dword < 0 || dword > 0xFFFFFFFFL) {
+						
+						throw new NumberFormatException(value);
+					}
+					
+					return "0x" + Integer.toHexString((int)dword);
+				
+				case REG_QWORD:
+					return "0x" + Long.toHexString(value.isEmpty() ? 0 : RegistryValue.parseNumber(value));
+				
+				case REG_MULTI_SZ:
+					return value.isEmpty() ? null : (seperator == '\0' ? value : value.replace(String.valueOf(seperator), "\\0"));
+				
+				case REG_BINARY:
+				case REG_NONE:
+				case REG_FULL_RESOURCE_DESCRIPTOR:
+					
+					// validates the digits
+					HexDecoder.decode(value);
+					return value.isEmpty() ? null : value.toUpperCase(Locale.ROOT);
+				
+				default:
+					return value.isEmpty() ? null : value;
+			}
+			
+		} catch(NumberFormatException exception) {
+			
+			throw new IOException("ERROR: Invalid syntax.", exception);
+		}
 	}
 	
 	@Override
@@ -143,7 +420,7 @@ public final class RegistryValue {
 		builder.append('|');
 		builder.append(this.type.name());
 		builder.append('|');
-		builder.append(this.rawValue);
+		builder.append(this.getRawValue());
 		
 		return builder.toString();
 	}
@@ -151,7 +428,7 @@ public final class RegistryValue {
 	/**
 	 * Represents the data type of a value in a registry key.
 	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
-	 * @version 2.0.0
+	 * @version 2.1.0
 	 * @since 1.0.0
 	 */
 	public static enum Type {
@@ -160,28 +437,27 @@ public final class RegistryValue {
 		 * byte[]
 		 * @since 1.0.0
 		 */
-		REG_BINARY {
+		REG_BINARY(3) {
 
 			@Override
 			protected final Object parseValue(String toParse) {
 				
-				byte[] value = null;
+				return toParse != null ? HexDecoder.decode(toParse) : new byte[0];
+			}
+			
+			@Override
+			protected final String formatValue(Object value) {
 				
-				try(ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-					
-					for(int index = 0; index < toParse.length(); index += 2) {
-						
-						buffer.write(Integer.parseInt(toParse.substring(index, index + 2), 16));
-					}
-					
-					value = buffer.toByteArray();
-					
-				} catch(IOException exception) {
+				byte[] bytes = (byte[])value;
+				char[] hex = new char[bytes.length * 2];
+				
+				for(int index = 0; index < bytes.length; index++) {
 					
-					exception.printStackTrace();
+					hex[index * 2] = Character.toUpperCase(Character.forDigit((bytes[index] >> 4) & 0xF, 16));
+					hex[index * 2 + 1] = Character.toUpperCase(Character.forDigit(bytes[index] & 0xF, 16));
 				}
 				
-				return value;
+				return new String(hex);
 			}
 		},
 		
@@ -189,12 +465,18 @@ public final class RegistryValue {
 		 * int
 		 * @since 1.0.0
 		 */
-		REG_DWORD {
+		REG_DWORD(4) {
 
 			@Override
 			protected final Object parseValue(String toParse) {
 				
-				return Integer.parseInt(toParse.substring(2), 16);
+				return Integer.parseUnsignedInt(toParse.substring(2), 16);
+			}
+			
+			@Override
+			protected final String formatValue(Object value) {
+				
+				return "0x" + Integer.toHexString((Integer)value);
 			}
 		},
 		
@@ -202,12 +484,18 @@ public final class RegistryValue {
 		 * long
 		 * @since 1.0.0
 		 */
-		REG_QWORD {
+		REG_QWORD(11) {
 
 			@Override
 			protected final Object parseValue(String toParse) {
 				
-				return Long.parseLong(toParse.substring(2), 16);
+				return Long.parseUnsignedLong(toParse.substring(2), 16);
+			}
+			
+			@Override
+			protected final String formatValue(Object value) {
+				
+				return "0x" + Long.toHexString((Long)value);
 			}
 		},
 		
@@ -215,25 +503,18 @@ public final class RegistryValue {
 		 * String
 		 * @since 1.0.0
 		 */
-		REG_SZ,
+		REG_SZ(1),
 		
 		/**
 		 * String
 		 * @since 1.0.0
 		 */
-		REG_EXPAND_SZ {
+		REG_EXPAND_SZ(2) {
 			
 			@Override
 			protected final Object parseValue(String toParse) {
 				
-				String value = toParse;
-
-				for(Map.Entry<String, String> entry : System.getenv().entrySet()) {
-					
-					value = Pattern.compile('%' + entry.getKey() + '%', Pattern.CASE_INSENSITIVE).matcher(value).replaceAll(entry.getValue().replace("\\", "\\\\"));
-				}
-				
-				return value;
+				return RegistryEnvironment.get().expand(toParse);
 			}
 		},
 		
@@ -241,7 +522,7 @@ public final class RegistryValue {
 		 * List&lt;String&gt;
 		 * @since 1.0.0
 		 */
-		REG_MULTI_SZ {
+		REG_MULTI_SZ(7) {
 			
 			@Override
 			protected final Object parseValue(String toParse) {
@@ -260,19 +541,34 @@ public final class RegistryValue {
 				
 				return value;
 			}
+			
+			@Override
+			protected final String formatValue(Object value) {
+				
+				@SuppressWarnings("unchecked")
+				List<String> strings = (List<String>)value;
+				return String.join("\\0", strings);
+			}
 		},
 		
 		/**
 		 * String
 		 * @since 1.0.0
 		 */
-		REG_FULL_RESOURCE_DESCRIPTOR,
+		REG_FULL_RESOURCE_DESCRIPTOR(9),
 		
 		/**
 		 * String
 		 * @since 1.0.0
 		 */
-		REG_NONE;
+		REG_NONE(0);
+		
+		private final int code;
+		
+		private Type(int code) {
+			
+			this.code = code;
+		}
 		
 		/**
 		 * Parses a registry value based on the implementing type and returns the result.
@@ -285,6 +581,45 @@ public final class RegistryValue {
 			return toParse;
 		}
 		
+		/**
+		 * Does the opposite of {@link #parseValue(String)}.
+		 * Used for values that have been decoded from their binary representation.
+		 * @param value the value that should be formatted
+		 * @return the value in the same format as the raw value data
+		 * @since 2.1.0
+		 */
+		protected String formatValue(Object value) {
+			
+			return value.toString();
+		}
+		
+		/**
+		 * @return the numeric identifier of this data type as it is used by the Windows API and in hive files
+		 * @since 2.1.0
+		 */
+		public final int getCode() {
+			
+			return this.code;
+		}
+		
+		/**
+		 * @param code numeric identifier of the data type
+		 * @return the data type with the specified numeric identifier, or {@code null} if no such data type exists
+		 * @since 2.1.0
+		 */
+		public static final Type getTypeByCode(int code) {
+			
+			for(Type type : Type.values()) {
+				
+				if(type.code == code) {
+					
+					return type;
+				}
+			}
+			
+			return null;
+		}
+		
 		/**
 		 * @param name data type name
 		 * @return the data type with the specified name, or {@code null} if no such data type exists
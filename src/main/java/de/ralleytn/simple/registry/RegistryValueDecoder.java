@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the binary representation of a value, as it is returned by the Windows API or stored in a hive file, into a {@linkplain RegistryValue}.
+ * Engines that access the registry natively use a decoder so that the marshalling can be tested on its own.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@FunctionalInterface
+public interface RegistryValueDecoder {
+	
+	/**
+	 * Decodes a value.
+	 * The data is read from the position to the limit of the buffer.
+	 * Neither the position nor the limit of the buffer will be changed.
+	 * @param name name of the value
+	 * @param type numeric identifier of the data type; see {@linkplain RegistryValue.Type#getCode()}
+	 * @param data the binary value data
+	 * @param path path of the key to which the value belongs
+	 * @param backend the engine from which the value has been read
+	 * @return the decoded value
+	 * @since 2.1.0
+	 */
+	public RegistryValue decode(String name, int type, ByteBuffer data, String path, RegistryBackend backend);
+}
@@ -0,0 +1,493 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Traverses a key and all of its subkeys.
+ * Keys are loaded in parallel by a {@linkplain ForkJoinPool} if the parallelism is greater than 1, but they are always handed out one after another,
+ * on the calling thread and in the chosen order, so the visitor does not have to be thread safe.
+ * Only a few keys ahead of the current one are loaded at the same time, no matter how large the subtree is.
+ * Default values are not read unless they are requested.
+ * <pre>
+ * new RegistryWalker(Registry.HKEY_LOCAL_MACHINE + "\\SOFTWARE")
+ *     .setParallelism(8)
+ *     .setMaxDepth(2)
+ *     .walk((key, depth) -&gt; {
+ *         System.out.println(key.getPath());
+ *         return true;
+ *     });
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryWalker {
+	
+	private final RegistryBackend backend;
+	private final String path;
+	private int parallelism;
+	private int maxDepth;
+	private Predicate<String> filter;
+	private Order order;
+	private boolean ignoreErrors;
+	private volatile boolean cancelled;
+	
+	/**
+	 * Creates a walker that uses the engine that is currently used by the {@linkplain Registry} class.
+	 * @param path path of the key at which the walk starts
+	 * @since 2.1.0
+	 */
+	public RegistryWalker(String path) {
+		
+		this(Registry.getBackend(), path);
+	}
+	
+	/**
+	 * @param backend the engine from which the keys are read
+	 * @param path path of the key at which the walk starts
+	 * @since 2.1.0
+	 */
+	public RegistryWalker(RegistryBackend backend, String path) {
+		
+		this.backend = backend;
+		this.path = Registry.normalizePath(path);
+		this.parallelism = 1;
+		this.maxDepth = Integer.MAX_VALUE;
+		this.filter = key -> true;
+		this.order = Order.DEPTH_FIRST;
+	}
+	
+	/**
+	 * @param parallelism how many keys may be loaded at the same time; {@code 1} by default
+	 * @return this walker
+	 * @since 2.1.0
+	 */
+	public final RegistryWalker setParallelism(int parallelism) {
+		
+		if(parallelism < 1) {
+			
+			throw new IllegalArgumentException("parallelism < 1");
+		}
+		
+		this.parallelism = parallelism;
+		return this;
+	}
+	
+	/**
+	 * @param maxDepth how deep the walk goes; {@code 0} only visits the key at which the walk starts; unlimited by default
+	 * @return this walker
+	 * @since 2.1.0
+	 */
+	public final RegistryWalker setMaxDepth(int maxDepth) {
+		
+		if(maxDepth < 0) {
+			
+			throw new IllegalArgumentException("maxDepth < 0");
+		}
+		
+		this.maxDepth = maxDepth;
+		return this;
+	}
+	
+	/**
+	 * Keys whose path does not match the filter are neither loaded nor visited and neither are their subkeys.
+	 * @param filter tests the path of every key before it is loaded
+	 * @return this walker
+	 * @since 2.1.0
+	 */
+	public final RegistryWalker setFilter(Predicate<String> filter) {
+		
+		if(filter == null) {
+			
+			throw new NullPointerException("filter");
+		}
+		
+		this.filter = filter;
+		return this;
+	}
+	
+	/**
+	 * @param order the order in which the keys are visited; {@linkplain Order#DEPTH_FIRST} by default
+	 * @return this walker
+	 * @since 2.1.0
+	 */
+	public final RegistryWalker setOrder(Order order) {
+		
+		if(order == null) {
+			
+			throw new NullPointerException("order");
+		}
+		
+		this.order = order;
+		return this;
+	}
+	
+	/**
+	 * @param ignoreErrors {@code true} if keys that cannot be read, for instance because access is denied, should be skipped; {@code false} if the walk should fail
+	 * @return this walker
+	 * @since 2.1.0
+	 */
+	public final RegistryWalker setIgnoreErrors(boolean ignoreErrors) {
+		
+		this.ignoreErrors = ignoreErrors;
+		return this;
+	}
+	
+	/**
+	 * Stops the walk that is currently running.
+	 * No more keys will be visited after the current one.
+	 * May be called from any thread.
+	 * @since 2.1.0
+	 */
+	public final void cancel() {
+		
+		this.cancelled = true;
+	}
+	
+	/**
+	 * Visits all keys.
+	 * @param visitor is called for every key
+	 * @throws IOException if a key could not be read or the visitor fails
+	 * @since 2.1.0
+	 */
+	public final void walk(Visitor visitor) throws IOException {
+		
+		this.cancelled = false;
+		
+		try(Walk walk = new Walk()) {
+			
+			Pending next = null;
+			
+			while((next = walk.next()) != null) {
+				
+				if(visitor.visit(next.key, next.depth)) {
+					
+					walk.expand(next);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The keys are loaded while the stream is consumed.
+	 * Errors are thrown as {@linkplain UncheckedIOException}.
+	 * The stream should be closed if it is not consumed completely.
+	 * @return a sequential stream of all keys
+	 * @since 2.1.0
+	 */
+	public final Stream<RegistryKey> stream() {
+		
+		this.cancelled = false;
+		Walk walk = new Walk();
+		
+		Iterator<RegistryKey> iterator = new Iterator<RegistryKey>() {
+			
+			private Pending next;
+			
+			@Override
+			public final boolean hasNext() {
+				
+				if(this.next == null) {
+					
+					try {
+						
+						this.next = walk.next();
+						
+					} catch(IOException exception) {
+						
+						walk.close();
+						throw new UncheckedIOException(exception);
+					}
+					
+					if(this.next == null) {
+						
+						walk.close();
+						return false;
+					}
+					
+					walk.expand(this.next);
+				}
+				
+				return true;
+			}
+			
+			@Override
+			public final RegistryKey next() {
+				
+				if(!this.hasNext()) {
+					
+					throw new NoSuchElementException();
+				}
+				
+				RegistryKey key = this.next.key;
+				this.next = null;
+				return key;
+			}
+		};
+		
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(walk::close);
+	}
+	
+	/**
+	 * The order in which the keys are visited.
+	 * Parents are always visited before their subkeys.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static enum Order {
+		
+		/**
+		 * All subkeys of a key are visited before its next sibling.
+		 * @since 2.1.0
+		 */
+		DEPTH_FIRST,
+		
+		/**
+		 * All keys of one level are visited before the next level.
+		 * @since 2.1.0
+		 */
+		BREADTH_FIRST;
+	}
+	
+	/**
+	 * Is called for every key that is visited by a {@linkplain RegistryWalker}.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	@FunctionalInterface
+	public static interface Visitor {
+		
+		/**
+		 * @param key the key
+		 * @param depth distance to the key at which the walk started
+		 * @return {@code true} if the subkeys should be visited, else {@code false}
+		 * @throws IOException if an error occurs; the walk will be stopped
+		 * @since 2.1.0
+		 */
+		public boolean visit(RegistryKey key, int depth) throws IOException;
+	}
+	
+	private final class Walk implements Closeable {
+		
+		private final Deque<Pending> pending;
+		private final ExecutorService executor;
+		private final int window;
+		
+		private Walk() {
+			
+			this.pending = new ArrayDeque<>();
+			this.executor = RegistryWalker.this.parallelism > 1 ? new ForkJoinPool(RegistryWalker.this.parallelism) : null;
+			this.window = RegistryWalker.this.parallelism * 2;
+			
+			if(RegistryWalker.this.filter.test(RegistryWalker.this.path)) {
+				
+				this.pending.add(new Pending(RegistryWalker.this.path, 0));
+			}
+		}
+		
+		private final Pending next() throws IOException {
+			
+			while(!this.pending.isEmpty()) {
+				
+				if(RegistryWalker.this.cancelled) {
+					
+					return null;
+				}
+				
+				this.prefetch();
+				Pending next = this.pending.pollFirst();
+				
+				try {
+					
+					next.key = this.load(next);
+					
+					if(next.key != null) {
+						
+						return next;
+					}
+					
+				} catch(IOException exception) {
+					
+					if(!RegistryWalker.this.ignoreErrors || exception instanceof InterruptedIOException) {
+						
+						throw exception;
+					}
+				}
+			}
+			
+			return null;
+		}
+		
+		private final void expand(Pending parent) {
+			
+			if(parent.depth < RegistryWalker.this.maxDepth) {
+				
+				List<RegistryPath> childPaths = null;
+				
+				try {
+					
+					childPaths = parent.key.getChildPaths();
+					
+				} catch(IOException exception) {
+					
+					// the childs are always loaded at this point
+					throw new UncheckedIOException(exception);
+				}
+				
+				List<Pending> childs = new ArrayList<>(childPaths.size());
+				
+				for(RegistryPath childPath : childPaths) {
+					
+					String path = childPath.toString();
+					
+					if(RegistryWalker.this.filter.test(path)) {
+						
+						childs.add(new Pending(path, parent.depth + 1));
+					}
+				}
+				
+				if(RegistryWalker.this.order == Order.DEPTH_FIRST) {
+					
+					for(int index = childs.size() - 1; index >= 0; index--) {
+						
+						this.pending.addFirst(childs.get(index));
+					}
+					
+				} else {
+					
+					this.pending.addAll(childs);
+				}
+			}
+		}
+		
+		private final void prefetch() {
+			
+			if(this.executor != null) {
+				
+				int count = 0;
+				
+				for(Pending pending : this.pending) {
+					
+					if(count++ >= this.window) {
+						
+						break;
+					}
+					
+					if(pending.future == null) {
+						
+						pending.future = this.executor.submit(() -> RegistryWalker.this.backend.getKey(pending.path, false));
+					}
+				}
+			}
+		}
+		
+		private final RegistryKey load(Pending pending) throws IOException {
+			
+			if(pending.future == null) {
+				
+				return RegistryWalker.this.backend.getKey(pending.path, false);
+			}
+			
+			try {
+				
+				return pending.future.get();
+				
+			} catch(InterruptedException exception) {
+				
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+				
+			} catch(ExecutionException exception) {
+				
+				Throwable cause = exception.getCause();
+				
+				if(cause instanceof IOException) {
+					
+					throw (IOException)cause;
+					
+				} else if(cause instanceof RuntimeException) {
+					
+					throw (RuntimeException)cause;
+				}
+				
+				throw new IOException(cause);
+			}
+		}
+		
+		@Override
+		public final void close() {
+			
+			if(this.executor != null) {
+				
+				for(Pending pending : this.pending) {
+					
+					if(pending.future != null) {
+						
+						pending.future.cancel(true);
+					}
+				}
+				
+				this.executor.shutdownNow();
+			}
+			
+			this.pending.clear();
+		}
+	}
+	
+	private static final class Pending {
+		
+		private final String path;
+		private final int depth;
+		private Future<RegistryKey> future;
+		private RegistryKey key;
+		
+		private Pending(String path, int depth) {
+			
+			this.path = path;
+			this.depth = depth;
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports changes of keys and their values to listeners.
+ * The watched keys are read periodically and compared with the state that has been read before.
+ * A key that does not change is read less and less often, up to the maximum interval; as soon as it changes, it is read with the minimum interval again.
+ * All changes that happened between two reads are reported at once, and a change that has been undone in the meantime is not reported at all.
+ * If a key is added or removed, its subkeys and values are not reported on their own.
+ * <pre>
+ * RegistryWatcher watcher = new RegistryWatcher();
+ * watcher.watch(Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware", true, changes -&gt; {
+ *     changes.forEach(System.out::println);
+ * });
+ * watcher.start();
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class RegistryWatcher implements Closeable {
+	
+	private final RegistryBackend backend;
+	private final List<Watch> watches;
+	private long minInterval;
+	private long maxInterval;
+	private ScheduledExecutorService executor;
+	private boolean closed;
+	
+	/**
+	 * Creates a watcher that uses the engine that is currently used by the {@linkplain Registry} class.
+	 * @since 2.1.0
+	 */
+	public RegistryWatcher() {
+		
+		this(Registry.getBackend());
+	}
+	
+	/**
+	 * @param backend the engine from which the keys are read
+	 * @since 2.1.0
+	 */
+	public RegistryWatcher(RegistryBackend backend) {
+		
+		this.backend = backend;
+		this.watches = new CopyOnWriteArrayList<>();
+		this.minInterval = TimeUnit.SECONDS.toNanos(1);
+		this.maxInterval = TimeUnit.SECONDS.toNanos(30);
+	}
+	
+	/**
+	 * Sets how often the keys are read.
+	 * Only affects reads that are scheduled after this method has been called.
+	 * @param minInterval the time between two reads after a change; 1 second by default
+	 * @param maxInterval the time between two reads after which the interval will not grow any further; 30 seconds by default
+	 * @param unit unit of both intervals
+	 * @return this watcher
+	 * @since 2.1.0
+	 */
+	public final synchronized RegistryWatcher setInterval(long minInterval, long maxInterval, TimeUnit unit) {
+		
+		if(minInterval <= 0 || maxInterval < minInterval) {
+			
+			throw new IllegalArgumentException("The intervals have to be positive and the maximum must not be smaller than the minimum");
+		}
+		
+		this.minInterval = unit.toNanos(minInterval);
+		this.maxInterval = unit.toNanos(maxInterval);
+		return this;
+	}
+	
+	/**
+	 * Starts to watch a key.
+	 * The current state of the key is read before this method returns; changes are reported relative to it.
+	 * @param path path of the key
+	 * @param subtree {@code true} if the subkeys should be watched too, {@code false} if only the values and the names of the direct subkeys should be watched
+	 * @param listener receives the changes
+	 * @return a handle with which the key can no longer be watched
+	 * @throws IOException if the key could not be read
+	 * @since 2.1.0
+	 */
+	public final synchronized Watch watch(String path, boolean subtree, Listener listener) throws IOException {
+		
+		if(this.closed) {
+			
+			throw new IllegalStateException("The watcher has been closed");
+		}
+		
+		Watch watch = new Watch(Registry.normalizePath(path), subtree, listener);
+		watch.state = this.read(watch);
+		watch.interval = this.minInterval;
+		this.watches.add(watch);
+		
+		if(this.executor != null) {
+			
+			this.schedule(watch);
+		}
+		
+		return watch;
+	}
+	
+	/**
+	 * Reads all watched keys right now and reports their changes.
+	 * Can be used instead of {@linkplain #start()} to decide on your own when to look for changes.
+	 * Errors are reported to the listeners.
+	 * @since 2.1.0
+	 */
+	public final void poll() {
+		
+		for(Watch watch : this.watches) {
+			
+			this.poll(watch);
+		}
+	}
+	
+	/**
+	 * Starts a background thread that reads the watched keys.
+	 * Does nothing if the thread is already running.
+	 * @since 2.1.0
+	 */
+	public final synchronized void start() {
+		
+		if(this.closed) {
+			
+			throw new IllegalStateException("The watcher has been closed");
+		}
+		
+		if(this.executor == null) {
+			
+			this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				
+				Thread thread = new Thread(runnable, "SimpleRegistry-Watcher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			
+			for(Watch watch : this.watches) {
+				
+				this.schedule(watch);
+			}
+		}
+	}
+	
+	/**
+	 * Stops the background thread and stops watching all keys.
+	 * @since 2.1.0
+	 */
+	@Override
+	public final synchronized void close() {
+		
+		this.closed = true;
+		this.watches.clear();
+		
+		if(this.executor != null) {
+			
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+	
+	private final synchronized void schedule(Watch watch) {
+		
+		if(this.executor != null && !watch.cancelled) {
+			
+			this.executor.schedule(() -> {
+				
+				this.poll(watch);
+				this.schedule(watch);
+				
+			}, watch.interval, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	private final void poll(Watch watch) {
+		
+		List<RegistryChange> changes = new ArrayList<>();
+		
+		synchronized(watch) {
+			
+			if(watch.cancelled) {
+				
+				return;
+			}
+			
+			try {
+				
+				RegistryKey state = this.read(watch);
+				
+				if(watch.state == null && state != null) {
+					
+					changes.add(new RegistryChange(RegistryChange.Kind.KEY_ADDED, state.getPath(), null, null, state));
+					
+				} else if(watch.state != null && state == null) {
+					
+					changes.add(new RegistryChange(RegistryChange.Kind.KEY_REMOVED, watch.state.getPath(), null, null));
+					
+				} else if(watch.state != null) {
+					
+					RegistryDiff.compare(watch.state, state, watch.subtree, changes::add);
+				}
+				
+				watch.state = state;
+				
+			} catch(IOException exception) {
+				
+				watch.listener.failed(exception);
+			}
+			
+			synchronized(this) {
+				
+				watch.interval = changes.isEmpty() ? Math.min(watch.interval * 2, this.maxInterval) : this.minInterval;
+			}
+		}
+		
+		if(!changes.isEmpty()) {
+			
+			watch.listener.changed(Collections.unmodifiableList(changes));
+		}
+	}
+	
+	private final RegistryKey read(Watch watch) throws IOException {
+		
+		// caches must not hide any changes
+		this.backend.invalidate(watch.path);
+		
+		try {
+			
+			return watch.subtree ? this.backend.snapshot(watch.path).getRoot() : this.backend.getKey(watch.path, false);
+			
+		} catch(RegistryNotFoundException exception) {
+			
+			// the key is reported as added once it exists again
+			return null;
+		}
+	}
+	
+	/**
+	 * Receives the changes of a watched key.
+	 * Listeners are called on the thread that reads the keys, so they should return quickly.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	@FunctionalInterface
+	public static interface Listener {
+		
+		/**
+		 * @param changes all changes that have been found since the key was read the last time
+		 * @since 2.1.0
+		 */
+		public void changed(List<RegistryChange> changes);
+		
+		/**
+		 * Is called if the key could not be read.
+		 * The key is read again with the next poll; does nothing by default.
+		 * @param exception the error
+		 * @since 2.1.0
+		 */
+		public default void failed(IOException exception) {}
+	}
+	
+	/**
+	 * A watched key.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public final class Watch {
+		
+		private final String path;
+		private final boolean subtree;
+		private final Listener listener;
+		private RegistryKey state;
+		private long interval;
+		private volatile boolean cancelled;
+		
+		private Watch(String path, boolean subtree, Listener listener) {
+			
+			this.path = path;
+			this.subtree = subtree;
+			this.listener = listener;
+		}
+		
+		/**
+		 * Stops watching the key.
+		 * @since 2.1.0
+		 */
+		public final void cancel() {
+			
+			this.cancelled = true;
+			RegistryWatcher.this.watches.remove(this);
+		}
+		
+		/**
+		 * @return path of the watched key
+		 * @since 2.1.0
+		 */
+		public final String getPath() {
+			
+			return this.path;
+		}
+		
+		/**
+		 * @return {@code true} if the subkeys are watched too, else {@code false}
+		 * @since 2.1.0
+		 */
+		public final boolean isSubtree() {
+			
+			return this.subtree;
+		}
+		
+		/**
+		 * @param unit the unit
+		 * @return the time until the key is read again by the background thread
+		 * @since 2.1.0
+		 */
+		public final long getInterval(TimeUnit unit) {
+			
+			synchronized(RegistryWatcher.this) {
+				
+				return unit.convert(this.interval, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lets threads that request the same thing at the same time share one call to the backend.
+ * The first thread does the work while all others wait for its result.
+ * Every waiting thread gets its own copy of the result, so that reloading it does not change the result of the others.
+ * If the first thread has been interrupted, for example because its {@linkplain AsyncRegistry} operation was cancelled,
+ * the waiting threads do not get its error but make the call again.
+ * Nothing is cached; once the call has finished the next request starts a new one.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ * @param <T> type of the result
+ */
+final class SingleFlight<T> {
+	
+	private final ConcurrentHashMap<Object, CompletableFuture<T>> calls = new ConcurrentHashMap<>();
+	private final UnaryOperator<T> copier;
+	
+	/**
+	 * @param copier creates a copy of a result
+	 */
+	SingleFlight(UnaryOperator<T> copier) {
+		
+		this.copier = copier;
+	}
+	
+	/**
+	 * Executes a call or joins the one that is already running for the same key.
+	 * @param key identifies the call
+	 * @param call the call
+	 * @return the result
+	 * @throws IOException if the call failed
+	 */
+	final T execute(Object key, Call<T> call) throws IOException {
+		
+		while(true) {
+			
+			CompletableFuture<T> future = new CompletableFuture<>();
+			CompletableFuture<T> running = this.calls.putIfAbsent(key, future);
+			
+			if(running == null) {
+				
+				try {
+					
+					T result = call.execute();
+					
+					// the waiting threads get copies of a copy that is never handed out, so the caller may change its result in the meantime
+					future.complete(result != null ? this.copier.apply(result) : null);
+					return result;
+					
+				} catch(IOException | RuntimeException | Error exception) {
+					
+					// a cancelled operation destroys the process and interrupts the thread; that is no error of the call itself
+					if(exception instanceof InterruptedIOException || Thread.currentThread().isInterrupted()) {
+						
+						future.cancel(false);
+						
+					} else {
+						
+						future.completeExceptionally(exception);
+					}
+					
+					throw exception;
+					
+				} finally {
+					
+					this.calls.remove(key, future);
+				}
+			}
+			
+			try {
+				
+				T result = running.get();
+				return result != null ? this.copier.apply(result) : null;
+				
+			} catch(CancellationException exception) {
+				
+				continue;
+				
+			} catch(InterruptedException exception) {
+				
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(exception.getMessage());
+				
+			} catch(ExecutionException exception) {
+				
+				Throwable cause = exception.getCause();
+				
+				// a new exception, so that the stack trace shows the thread that waited
+				if(cause instanceof RegistryNotFoundException) {
+					
+					throw new RegistryNotFoundException(cause.getMessage(), cause);
+				}
+				
+				if(cause instanceof IOException) {
+					
+					throw new IOException(cause.getMessage(), cause);
+				}
+				
+				if(cause instanceof Error) {
+					
+					throw (Error)cause;
+				}
+				
+				throw (RuntimeException)cause;
+			}
+		}
+	}
+	
+	/**
+	 * A call to the backend.
+	 * @param <T> type of the result
+	 */
+	@FunctionalInterface
+	static interface Call<T> {
+		
+		T execute() throws IOException;
+	}
+}
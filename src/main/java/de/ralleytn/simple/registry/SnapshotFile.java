@@ -0,0 +1,793 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reads a snapshot that has been written with {@linkplain RegistrySnapshot#write(OutputStream)}.
+ * The file is mapped into memory and a key is only read from it when it is requested for the first time,
+ * so a snapshot with thousands of keys can be opened in a few milliseconds.
+ * This makes it possible to start with a snapshot from the local disk and to refresh it in the background.
+ * A snapshot file is an engine itself, so its keys and values can be navigated as usual.
+ * All methods that would change the registry throw an {@linkplain UnsupportedOperationException}.
+ * Snapshot files are thread safe.
+ * <pre>
+ * try(OutputStream output = new FileOutputStream("settings.snapshot")) {
+ *     Registry.snapshot(Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware").write(output);
+ * }
+ * 
+ * SnapshotFile snapshot = new SnapshotFile(new File("settings.snapshot"));
+ * RegistryKey key = snapshot.getRoot();
+ * </pre>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class SnapshotFile implements RegistryBackend {
+	
+	// File layout, all numbers are big endian:
+	// header:     "SRSN", version, number of keys, number of names, offset of the key table, offset of the name table
+	// key table:  offset of every key, the root is the first one
+	// name table: offset of every name; a name is its length in UTF-8 bytes as varint followed by the bytes
+	// key:        name, number of childs, (hash of the name, key) for every child sorted by hash, number of values, values, default value
+	// default:    marker, followed by the index of the default value in the values or by the default value itself
+	// value:      name, type code, data; numbers are varints, strings and binary data start with their length as varint
+	
+	private static final String ERROR_CORRUPT = "The snapshot file is corrupt";
+	private static final int MAGIC = 0x5352534E;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	private static final int NO_DEFAULT_VALUE = 0;
+	private static final int DEFAULT_VALUE_IN_VALUES = 1;
+	private static final int DEFAULT_VALUE_FOLLOWS = 2;
+	
+	private final ByteBuffer buffer;
+	private final int keyCount;
+	private final int nameCount;
+	private final int keyTable;
+	private final int nameTable;
+	private final String path;
+	private final String[] names;
+	private final AtomicReferenceArray<Node> nodes;
+	
+	/**
+	 * @param file a file that has been written with {@linkplain RegistrySnapshot#write(OutputStream)}
+	 * @throws IOException if the file could not be read or is not a snapshot file
+	 * @since 2.1.0
+	 */
+	public SnapshotFile(File file) throws IOException {
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			
+			if(channel.size() > Integer.MAX_VALUE) {
+				
+				throw new IOException("Snapshot files larger than 2 GB are not supported");
+			}
+			
+			// the mapping stays valid after the channel has been closed
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		if(this.buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+			
+			throw new IOException("Not a snapshot file: " + file);
+		}
+		
+		if(this.buffer.getInt(4) != VERSION) {
+			
+			throw new IOException("Unsupported snapshot file version: " + this.buffer.getInt(4));
+		}
+		
+		this.keyCount = this.buffer.getInt(8);
+		this.nameCount = this.buffer.getInt(12);
+		this.keyTable = this.buffer.getInt(16);
+		this.nameTable = this.buffer.getInt(20);
+		
+		if(this.keyCount < 1 || this.nameCount < 1 || this.keyTable < HEADER_SIZE || this.nameTable < HEADER_SIZE ||
+		   (long)this.keyTable + this.keyCount * 4L > this.buffer.capacity() || (long)this.nameTable + this.nameCount * 4L > this.buffer.capacity()) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		this.names = new String[this.nameCount];
+		this.nodes = new AtomicReferenceArray<>(this.keyCount);
+		this.path = this.getName(this.getKeyName(0));
+	}
+	
+	/**
+	 * Writes a key with all of its subkeys and values.
+	 * @param backend the engine from which the keys are read
+	 * @param path path of the root key
+	 * @param output the output stream; will not be closed
+	 * @throws IOException if an error occurs
+	 */
+	static final void write(RegistryBackend backend, String path, OutputStream output) throws IOException {
+		
+		Map<String, Integer> nameIds = new HashMap<>();
+		List<String> names = new ArrayList<>();
+		List<RegistryPath> paths = new ArrayList<>();
+		List<String> keyNames = new ArrayList<>();
+		ByteArrayOutputStream keyData = new ByteArrayOutputStream();
+		DataOutputStream keys = new DataOutputStream(keyData);
+		int[] keyOffsets = new int[16];
+		paths.add(RegistryPath.of(path));
+		keyNames.add(null);
+		
+		// the keys are numbered in the order in which they are written, so the number of a child is known before it is written
+		for(int id = 0; id < paths.size(); id++) {
+			
+			RegistryKey key = backend.getKey(id == 0 ? path : paths.get(id).toString());
+			String name = id == 0 ? key.getPath() : keyNames.get(id);
+			
+			if(id == keyOffsets.length) {
+				
+				keyOffsets = Arrays.copyOf(keyOffsets, id * 2);
+			}
+			
+			keyOffsets[id] = keys.size();
+			SnapshotFile.writeVarint(keys, SnapshotFile.intern(name, nameIds, names));
+			
+			List<RegistryPath> childPaths = key.getChildPaths();
+			int childCount = childPaths.size();
+			String[] childNames = new String[childCount];
+			long[] childs = new long[childCount];
+			
+			for(int index = 0; index < childCount; index++) {
+				
+				childNames[index] = childPaths.get(index).getName();
+				
+				// hash in the upper bits and index in the lower bits, so sorting the numbers sorts the childs by hash
+				childs[index] = ((long)NameIndex.hash(childNames[index], 0, childNames[index].length()) << 32) | index;
+			}
+			
+			Arrays.sort(childs);
+			SnapshotFile.writeVarint(keys, childCount);
+			
+			for(long child : childs) {
+				
+				int index = (int)child;
+				keys.writeInt((int)(child >> 32));
+				keys.writeInt(paths.size());
+				paths.add(childPaths.get(index));
+				keyNames.add(childNames[index]);
+			}
+			
+			List<RegistryValue> values = key.getValues();
+			RegistryValue defaultValue = key.getDefaultValue();
+			SnapshotFile.writeVarint(keys, values.size());
+			
+			int defaultIndex = -1;
+			
+			for(int index = 0; index < values.size(); index++) {
+				
+				RegistryValue value = values.get(index);
+				SnapshotFile.writeValue(keys, value, nameIds, names);
+				
+				if(defaultIndex == -1 && value.isDefaultValue()) {
+					
+					defaultIndex = index;
+				}
+			}
+			
+			if(defaultValue == null) {
+				
+				keys.writeByte(NO_DEFAULT_VALUE);
+				
+			} else if(defaultIndex != -1) {
+				
+				// the name of the default value is translated, so it cannot be found by its name
+				keys.writeByte(DEFAULT_VALUE_IN_VALUES);
+				SnapshotFile.writeVarint(keys, defaultIndex);
+				
+			} else {
+				
+				keys.writeByte(DEFAULT_VALUE_FOLLOWS);
+				SnapshotFile.writeValue(keys, defaultValue, nameIds, names);
+			}
+		}
+		
+		ByteArrayOutputStream nameData = new ByteArrayOutputStream();
+		DataOutputStream nameOutput = new DataOutputStream(nameData);
+		int[] nameOffsets = new int[names.size()];
+		
+		for(int index = 0; index < nameOffsets.length; index++) {
+			
+			nameOffsets[index] = nameOutput.size();
+			SnapshotFile.writeString(nameOutput, names.get(index));
+		}
+		
+		int keyCount = paths.size();
+		int keyTable = HEADER_SIZE;
+		int nameTable = keyTable + keyCount * 4;
+		int nameStart = nameTable + nameOffsets.length * 4;
+		int keyStart = nameStart + nameData.size();
+		DataOutputStream file = new DataOutputStream(new BufferedOutputStream(output));
+		file.writeInt(MAGIC);
+		file.writeInt(VERSION);
+		file.writeInt(keyCount);
+		file.writeInt(nameOffsets.length);
+		file.writeInt(keyTable);
+		file.writeInt(nameTable);
+		
+		for(int index = 0; index < keyCount; index++) {
+			
+			file.writeInt(keyStart + keyOffsets[index]);
+		}
+		
+		for(int offset : nameOffsets) {
+			
+			file.writeInt(nameStart + offset);
+		}
+		
+		nameData.writeTo(file);
+		keyData.writeTo(file);
+		file.flush();
+	}
+	
+	private static final void writeValue(DataOutputStream output, RegistryValue value, Map<String, Integer> nameIds, List<String> names) throws IOException {
+		
+		RegistryValue.Type type = value.getType();
+		SnapshotFile.writeVarint(output, SnapshotFile.intern(value.getName(), nameIds, names));
+		SnapshotFile.writeVarint(output, type.getCode());
+		
+		switch(type) {
+			
+			case REG_DWORD:
+			case REG_QWORD:
+				SnapshotFile.writeVarint(output, value.getLong());
+				break;
+			
+			case REG_MULTI_SZ:
+				List<String> strings = value.getStrings();
+				
+				// 0 stands for null, so that the value is read back exactly as it was written
+				SnapshotFile.writeVarint(output, strings != null ? strings.size() + 1 : 0);
+				
+				if(strings != null) {
+					
+					for(String string : strings) {
+						
+						SnapshotFile.writeString(output, string);
+					}
+				}
+				
+				break;
+			
+			case REG_BINARY:
+				byte[] bytes = (byte[])value.getValue();
+				SnapshotFile.writeVarint(output, bytes.length);
+				output.write(bytes);
+				break;
+			
+			default:
+				String rawValue = value.getRawValue();
+				SnapshotFile.writeVarint(output, rawValue != null ? 1 : 0);
+				
+				if(rawValue != null) {
+					
+					SnapshotFile.writeString(output, rawValue);
+				}
+		}
+	}
+	
+	private static final int intern(String name, Map<String, Integer> nameIds, List<String> names) {
+		
+		Integer id = nameIds.get(name);
+		
+		if(id == null) {
+			
+			id = names.size();
+			nameIds.put(name, id);
+			names.add(name);
+		}
+		
+		return id;
+	}
+	
+	private static final void writeString(DataOutputStream output, String string) throws IOException {
+		
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		SnapshotFile.writeVarint(output, bytes.length);
+		output.write(bytes);
+	}
+	
+	private static final void writeVarint(DataOutputStream output, long number) throws IOException {
+		
+		// 7 bits per byte, the highest bit is set if another byte follows
+		while((number & ~0x7FL) != 0) {
+			
+			output.writeByte((int)(number & 0x7F) | 0x80);
+			number >>>= 7;
+		}
+		
+		output.writeByte((int)number);
+	}
+	
+	/**
+	 * @return path of the key of which the snapshot was taken
+	 * @since 2.1.0
+	 */
+	public final String getPath() {
+		
+		return this.path;
+	}
+	
+	/**
+	 * @return number of keys in the snapshot
+	 * @since 2.1.0
+	 */
+	public final int getSize() {
+		
+		return this.keyCount;
+	}
+	
+	/**
+	 * @return the key of which the snapshot was taken
+	 * @since 2.1.0
+	 */
+	public final RegistryKey getRoot() {
+		
+		try {
+			
+			return this.getKey(this.path);
+			
+		} catch(IOException exception) {
+			
+			// the root is always there
+			throw new IllegalStateException(exception);
+		}
+	}
+	
+	/**
+	 * @param path path of a key
+	 * @return {@code true} if the key is part of the snapshot, else {@code false}
+	 * @throws IOException if the file is corrupt
+	 * @since 2.1.0
+	 */
+	public final boolean containsKey(String path) throws IOException {
+		
+		return this.find(path, null) != -1;
+	}
+	
+	@Override
+	public final boolean isSupported() {
+		
+		return true;
+	}
+	
+	@Override
+	public final RegistryKey getKey(String path) throws IOException {
+		
+		Node node = this.getNode(path);
+		return new RegistryKey(node.path, node.values, node.defaultValue, node.childs, this);
+	}
+	
+	@Override
+	public final RegistryValue getValue(String path, String name) throws IOException {
+		
+		Node node = this.getNode(path);
+		
+		for(RegistryValue value : node.values) {
+			
+			if(NameIndex.equals(value.getName(), name, 0, name.length())) {
+				
+				return value;
+			}
+		}
+		
+		throw new RegistryNotFoundException();
+	}
+	
+	@Override
+	public final RegistryValue getDefaultValue(String path) throws IOException {
+		
+		return this.getNode(path).defaultValue;
+	}
+	
+	@Override
+	public final void setKey(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteKey(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteValue(String path, String name) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteDefaultValue(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void deleteAllValues(String path) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public final void importFile(File file) {
+		
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Writes a key of the snapshot as .reg file.
+	 */
+	@Override
+	public final void exportKey(String path, File exportFile) throws IOException {
+		
+		RegistryKey key = this.getKey(path);
+		
+		try(OutputStream output = new BufferedOutputStream(new FileOutputStream(exportFile))) {
+			
+			RegFile.write(key, output);
+		}
+	}
+	
+	private final Node getNode(String path) throws IOException {
+		
+		StringBuilder canonicalPath = new StringBuilder();
+		int id = this.find(path, canonicalPath);
+		
+		if(id == -1) {
+			
+			throw new RegistryNotFoundException();
+		}
+		
+		Node node = this.nodes.get(id);
+		
+		if(node == null) {
+			
+			// if two threads read the same key at once, both get the node that was stored first
+			node = this.readNode(id, canonicalPath.toString());
+			
+			if(!this.nodes.compareAndSet(id, null, node)) {
+				
+				node = this.nodes.get(id);
+			}
+		}
+		
+		return node;
+	}
+	
+	/**
+	 * @param path path of a key
+	 * @param canonicalPath receives the path with the names as they are stored in the file; may be {@code null}
+	 * @return the number of the key, or {@code -1} if there is no such key
+	 * @throws IOException if the file is corrupt
+	 */
+	private final int find(String path, StringBuilder canonicalPath) throws IOException {
+		
+		String normalized = Registry.normalizePath(path);
+		String lookupKey = Registry.toLookupKey(normalized);
+		String root = Registry.toLookupKey(this.path);
+		
+		if(!lookupKey.startsWith(root) || (lookupKey.length() > root.length() && lookupKey.charAt(root.length()) != '\\')) {
+			
+			return -1;
+		}
+		
+		if(canonicalPath != null) {
+			
+			canonicalPath.append(this.path);
+		}
+		
+		try {
+			
+			int id = 0;
+			
+			// the names are hashed and compared as they are; the lookup key only has a different root if it was written with a short name like "HKLM"
+			int start = normalized.length() - (lookupKey.length() - root.length()) + 1;
+			
+			while(start <= normalized.length() && id != -1) {
+				
+				int end = normalized.indexOf('\\', start);
+				end = end == -1 ? normalized.length() : end;
+				id = this.findChild(id, normalized, start, end, canonicalPath);
+				start = end + 1;
+			}
+			
+			return id;
+			
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+			
+			throw new IOException(ERROR_CORRUPT, exception);
+		}
+	}
+	
+	private final int findChild(int id, String path, int start, int end, StringBuilder canonicalPath) throws IOException {
+		
+		ByteBuffer key = this.getKeyData(id);
+		SnapshotFile.readVarint(key);
+		int count = SnapshotFile.readCount(key);
+		int childs = key.position();
+		int hash = NameIndex.hash(path, start, end);
+		int low = 0;
+		int high = count;
+		
+		// finds the first child with the hash
+		while(low < high) {
+			
+			int middle = (low + high) >>> 1;
+			
+			if(this.buffer.getInt(childs + middle * 8) < hash) {
+				
+				low = middle + 1;
+				
+			} else {
+				
+				high = middle;
+			}
+		}
+		
+		for(int index = low; index < count && this.buffer.getInt(childs + index * 8) == hash; index++) {
+			
+			int child = this.buffer.getInt(childs + index * 8 + 4);
+			String name = this.getName(this.getKeyName(child));
+			
+			if(NameIndex.equals(name, path, start, end)) {
+				
+				if(canonicalPath != null) {
+					
+					canonicalPath.append('\\').append(name);
+				}
+				
+				return child;
+			}
+		}
+		
+		return -1;
+	}
+	
+	private final Node readNode(int id, String path) throws IOException {
+		
+		try {
+			
+			ByteBuffer key = this.getKeyData(id);
+			SnapshotFile.readVarint(key);
+			int childCount = SnapshotFile.readCount(key);
+			RegistryPath registryPath = RegistryPath.of(path);
+			List<RegistryPath> childs = new ArrayList<>(childCount);
+			
+			for(int index = 0; index < childCount; index++) {
+				
+				key.getInt();
+				childs.add(registryPath.child(this.getName(this.getKeyName(key.getInt()))));
+			}
+			
+			int valueCount = SnapshotFile.readCount(key);
+			List<RegistryValue> values = new ArrayList<>(valueCount);
+			RegistryValue defaultValue = null;
+			
+			for(int index = 0; index < valueCount; index++) {
+				
+				values.add(this.readValue(key, path));
+			}
+			
+			int marker = key.get();
+			
+			if(marker == DEFAULT_VALUE_IN_VALUES) {
+				
+				defaultValue = values.get(SnapshotFile.readCount(key)).markDefaultValue();
+				
+			} else if(marker == DEFAULT_VALUE_FOLLOWS) {
+				
+				defaultValue = this.readValue(key, path).markDefaultValue();
+			}
+			
+			return new Node(registryPath, values, defaultValue, childs);
+			
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+			
+			throw new IOException(ERROR_CORRUPT, exception);
+		}
+	}
+	
+	private final RegistryValue readValue(ByteBuffer data, String path) throws IOException {
+		
+		String name = this.getName(SnapshotFile.readCount(data));
+		RegistryValue.Type type = RegistryValue.Type.getTypeByCode(SnapshotFile.readCount(data));
+		
+		if(type == null) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		switch(type) {
+			
+			case REG_DWORD:
+				return new RegistryValue(name, type, path, this, (int)SnapshotFile.readVarint(data));
+			
+			case REG_QWORD:
+				return new RegistryValue(name, type, path, this, SnapshotFile.readVarint(data));
+			
+			case REG_MULTI_SZ:
+				int count = SnapshotFile.readCount(data);
+				List<String> strings = count > 0 ? new ArrayList<>(count - 1) : null;
+				
+				for(int index = 1; index < count; index++) {
+					
+					strings.add(SnapshotFile.readString(data));
+				}
+				
+				return new RegistryValue(name, type, path, this, strings);
+			
+			case REG_BINARY:
+				byte[] bytes = new byte[SnapshotFile.readCount(data)];
+				data.get(bytes);
+				return new RegistryValue(name, type, path, this, bytes);
+			
+			default:
+				
+				// strings are decoded by the value, so that REG_EXPAND_SZ values are expanded with the current environment
+				return new RegistryValue(name, type, SnapshotFile.readCount(data) != 0 ? SnapshotFile.readString(data) : null, path, this);
+		}
+	}
+	
+	private final ByteBuffer getKeyData(int id) throws IOException {
+		
+		if(id < 0 || id >= this.keyCount) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		return this.getData(this.buffer.getInt(this.keyTable + id * 4));
+	}
+	
+	private final int getKeyName(int id) throws IOException {
+		
+		return SnapshotFile.readCount(this.getKeyData(id));
+	}
+	
+	private final String getName(int id) throws IOException {
+		
+		if(id < 0 || id >= this.nameCount) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		// two threads may decode the same name, which does no harm
+		String name = this.names[id];
+		
+		if(name == null) {
+			
+			name = SnapshotFile.readString(this.getData(this.buffer.getInt(this.nameTable + id * 4)));
+			this.names[id] = name;
+		}
+		
+		return name;
+	}
+	
+	private final ByteBuffer getData(int offset) throws IOException {
+		
+		if(offset < HEADER_SIZE || offset >= this.buffer.capacity()) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		ByteBuffer data = this.buffer.duplicate();
+		data.position(offset);
+		return data;
+	}
+	
+	private static final String readString(ByteBuffer data) throws IOException {
+		
+		int length = SnapshotFile.readCount(data);
+		
+		if(length > data.remaining()) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		byte[] bytes = new byte[length];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static final int readCount(ByteBuffer data) throws IOException {
+		
+		long count = SnapshotFile.readVarint(data);
+		
+		if(count < 0 || count > Integer.MAX_VALUE) {
+			
+			throw new IOException(ERROR_CORRUPT);
+		}
+		
+		return (int)count;
+	}
+	
+	private static final long readVarint(ByteBuffer data) throws IOException {
+		
+		long number = 0;
+		
+		for(int shift = 0; shift < 64; shift += 7) {
+			
+			byte part = data.get();
+			number |= (part & 0x7FL) << shift;
+			
+			if(part >= 0) {
+				
+				return number;
+			}
+		}
+		
+		throw new IOException(ERROR_CORRUPT);
+	}
+	
+	private static final class Node {
+		
+		private final RegistryPath path;
+		private final List<RegistryValue> values;
+		private final RegistryValue defaultValue;
+		private final List<RegistryPath> childs;
+		
+		private Node(RegistryPath path, List<RegistryValue> values, RegistryValue defaultValue, List<RegistryPath> childs) {
+			
+			this.path = path;
+			this.values = values;
+			this.defaultValue = defaultValue;
+			this.childs = childs;
+		}
+	}
+}
@@ -1,4 +1,10 @@
 module de.ralleytn.simple.registry {
 	
 	exports de.ralleytn.simple.registry;
+	
+	uses de.ralleytn.simple.registry.RegistryBackend;
+	
+	provides de.ralleytn.simple.registry.RegistryBackend with
+		de.ralleytn.simple.registry.ProcessRegistryBackend,
+		de.ralleytn.simple.registry.MemoryRegistryBackend;
 }
\ No newline at end of file
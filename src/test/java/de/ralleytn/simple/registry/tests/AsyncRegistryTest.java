@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import de.ralleytn.simple.registry.AsyncRegistry;
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistrySessionPool;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class AsyncRegistryTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testOperations() {
+		
+		try {
+			
+			// SETUP
+			Registry.setBackend(new MemoryRegistryBackend());
+			AsyncRegistry registry = new AsyncRegistry();
+			
+			// DO
+			CompletableFuture<RegistryKey> key = registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!")
+				.thenCompose(result -> registry.setKey(KEY + "\\Child1"))
+				.thenCompose(result -> registry.getKey(KEY));
+			
+			// TEST RESULT
+			assertEquals("Hello World!", key.get(5, TimeUnit.SECONDS).getValueByName("MyValue").getValue());
+			assertEquals(1, key.get().getChilds().size());
+			
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> registry.getValue(KEY, "MyMissingValue").get(5, TimeUnit.SECONDS));
+			assertTrue(exception.getCause() instanceof IOException);
+			
+		} catch(IOException | InterruptedException | ExecutionException | TimeoutException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testTimeout() {
+		
+		try {
+			
+			// SETUP
+			CountDownLatch interrupted = new CountDownLatch(1);
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				try {
+					
+					Thread.sleep(30000);
+					return "";
+					
+				} catch(InterruptedException exception) {
+					
+					interrupted.countDown();
+					throw new IOException(exception);
+				}
+			}));
+			
+			AsyncRegistry registry = new AsyncRegistry(Executors.newSingleThreadExecutor(), 50, TimeUnit.MILLISECONDS);
+			
+			// DO
+			CompletableFuture<RegistryKey> key = registry.getKey(KEY);
+			
+			// TEST RESULT
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> key.get(5, TimeUnit.SECONDS));
+			assertTrue(exception.getCause() instanceof TimeoutException);
+			assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+			
+		} catch(InterruptedException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	@DisabledOnOs(OS.WINDOWS)
+	public void testCancel() {
+		
+		try(RegistrySessionPool pool = new RegistrySessionPool(Arrays.asList("sh", "src/test/resources/fake-reg-shell.sh"), "%1$s 2>&1; echo %2$s $?", 1, 1, TimeUnit.MINUTES)) {
+			
+			// SETUP
+			String pid = pool.execute("echo $$");
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch stopped = new CountDownLatch(1);
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				started.countDown();
+				
+				try {
+					
+					return pool.execute("sleep 30");
+					
+				} finally {
+					
+					stopped.countDown();
+				}
+			}));
+			
+			// DO
+			CompletableFuture<RegistryKey> key = new AsyncRegistry().getKey(KEY);
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Thread.sleep(100);
+			key.cancel(true);
+			
+			// TEST RESULT
+			assertTrue(key.isCancelled());
+			assertTrue(stopped.await(5, TimeUnit.SECONDS));
+			
+			// the session has been destroyed and is replaced
+			assertNotEquals(pid, pool.execute("echo $$"));
+			
+		} catch(IOException | InterruptedException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
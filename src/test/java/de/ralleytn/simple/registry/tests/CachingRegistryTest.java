@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.CachingRegistry;
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class CachingRegistryTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	private static final String CHILD = KEY + "\\Child1";
+	
+	private MemoryRegistryBackend memory;
+	
+	@BeforeEach
+	public void setUp() {
+		
+		try {
+			
+			this.memory = new MemoryRegistryBackend();
+			this.memory.setKey(CHILD);
+			this.memory.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testHitsAndMisses() {
+		
+		try {
+			
+			// SETUP
+			CachingRegistry cache = new CachingRegistry(this.memory);
+			Registry.setBackend(cache);
+			
+			// DO
+			RegistryKey first = Registry.getKey(KEY);
+			RegistryKey second = Registry.getKey("HKCU/software/myexamplesoftware/");
+			RegistryValue value = Registry.getValue(KEY, "myvalue");
+			
+			// TEST RESULT
+			// every caller gets its own copy
+			assertNotSame(first, second);
+			assertEquals(first.getPath(), second.getPath());
+			assertEquals(first.getValues().size(), second.getValues().size());
+			assertNotSame(first.getValueByName("MyValue"), value);
+			assertEquals(first.getValueByName("MyValue").getRawValue(), value.getRawValue());
+			assertEquals(1, cache.getMissCount());
+			assertEquals(2, cache.getHitCount());
+			
+			// childs are read through the cache as well
+			first.getChild("Child1");
+			first.getChild("Child1");
+			assertEquals(2, cache.getMissCount());
+			assertEquals(3, cache.getHitCount());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testEviction() {
+		
+		try {
+			
+			// SETUP
+			CachingRegistry cache = new CachingRegistry(this.memory, 1, 1, TimeUnit.MINUTES);
+			CachingRegistry expiringCache = new CachingRegistry(this.memory, 16, 50, TimeUnit.MILLISECONDS);
+			
+			// DO
+			RegistryKey key = cache.getKey(KEY);
+			cache.getKey(CHILD);
+			
+			// TEST RESULT
+			assertEquals(1, cache.getEvictionCount());
+			assertEquals(1, cache.getSize());
+			assertNotSame(key, cache.getKey(KEY));
+			assertEquals(2, cache.getEvictionCount());
+			assertEquals(0, cache.getHitCount());
+			
+			// DO
+			key = expiringCache.getKey(KEY);
+			Thread.sleep(100);
+			
+			// TEST RESULT
+			assertNotSame(key, expiringCache.getKey(KEY));
+			assertEquals(1, expiringCache.getEvictionCount());
+			assertEquals(2, expiringCache.getMissCount());
+			
+		} catch(IOException | InterruptedException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testInvalidation() {
+		
+		try {
+			
+			// SETUP
+			CachingRegistry cache = new CachingRegistry(this.memory);
+			Registry.setBackend(cache);
+			RegistryKey key = Registry.getKey(KEY);
+			Registry.getKey(CHILD);
+			
+			// DO
+			key.setValue("MyValue", RegistryValue.Type.REG_SZ, '\0', "Changed");
+			
+			// TEST RESULT
+			assertEquals("Changed", Registry.getKey(KEY).getValueByName("MyValue").getValue());
+			assertEquals(0, cache.getHitCount());
+			
+			// DO
+			Registry.deleteKey(CHILD);
+			
+			// TEST RESULT
+			assertEquals(0, Registry.getKey(KEY).getChilds().size());
+			
+			// DO
+			this.memory.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Changed behind the cache");
+			RegistryKey cached = Registry.getKey(KEY);
+			RegistryValue value = cached.getValueByName("MyValue");
+			
+			// TEST RESULT
+			assertEquals("Changed", value.getValue());
+			value.reload();
+			assertEquals("Changed behind the cache", value.getValue());
+			assertNull(cached.getChild("Child1"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.HexDecoder;
+
+class HexDecoderTest {
+	
+	@Test
+	public void testDecode() {
+		
+		// SETUP
+		ByteBuffer buffer = ByteBuffer.allocateDirect(6);
+		buffer.position(1);
+		
+		// DO
+		int length = HexDecoder.decode("007f80FF", buffer);
+		
+		// TEST RESULT
+		assertEquals(4, length);
+		assertEquals(5, buffer.position());
+		assertEquals((byte)0x80, buffer.get(3));
+		assertEquals((byte)0xFF, buffer.get(4));
+		assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF}, HexDecoder.decode("007F80FF"));
+		assertArrayEquals(new byte[0], HexDecoder.decode(""));
+		assertThrows(BufferOverflowException.class, () -> HexDecoder.decode("0102", buffer));
+		assertEquals(5, buffer.position());
+		assertThrows(NumberFormatException.class, () -> HexDecoder.decode("007"));
+		assertThrows(NumberFormatException.class, () -> HexDecoder.decode("0G"));
+	}
+	
+	@Test
+	public void testChunks() {
+		
+		// SETUP
+		HexDecoder decoder = new HexDecoder();
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		char[] first = "00,7f,8".toCharArray();
+		char[] second = "0,\\\r\n  ff".toCharArray();
+		
+		// DO
+		int firstLength = decoder.update(first, 0, first.length, buffer);
+		int secondLength = decoder.update(second, 0, second.length, buffer);
+		decoder.finish();
+		
+		// TEST RESULT
+		assertEquals(2, firstLength);
+		assertEquals(2, secondLength);
+		assertEquals(4, buffer.position());
+		assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF, 0, 0, 0, 0}, buffer.array());
+		
+		// DO
+		decoder.update(new char[] {'a'}, 0, 1, buffer);
+		
+		// TEST RESULT
+		assertThrows(NumberFormatException.class, () -> decoder.finish());
+		assertThrows(NumberFormatException.class, () -> decoder.update(new char[] {'x'}, 0, 1, buffer));
+		assertThrows(BufferOverflowException.class, () -> decoder.update("0102030405".toCharArray(), 0, 10, buffer));
+		assertEquals(4, buffer.position());
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.HiveFile;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class HiveFileTest {
+	
+	private static final String ROOT = Registry.HKEY_LOCAL_MACHINE + "\\SOFTWARE";
+	private static final byte[] BIG_DATA = new byte[20000];
+	
+	static {
+		
+		for(int index = 0; index < BIG_DATA.length; index++) {
+			
+			BIG_DATA[index] = (byte)index;
+		}
+	}
+	
+	/**
+	 * Builds a hive file with a single hive bin.
+	 * Offsets of cells are relative to the first hive bin, just like in real hive files.
+	 */
+	private static final class HiveBuilder {
+		
+		private final ByteBuffer bin = ByteBuffer.allocate(128 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		
+		private HiveBuilder() {
+			
+			this.bin.put("hbin".getBytes(StandardCharsets.US_ASCII));
+			this.bin.position(0x20);
+		}
+		
+		private final int cell(byte[] data) {
+			
+			int offset = this.bin.position();
+			int size = (data.length + 4 + 7) & ~7;
+			this.bin.putInt(-size);
+			this.bin.put(data);
+			this.bin.position(offset + size);
+			return offset;
+		}
+		
+		private final int key(String name, int parent, int subkeyCount, int subkeys, int valueCount, int values) {
+			
+			byte[] nameBytes = name.getBytes(StandardCharsets.ISO_8859_1);
+			ByteBuffer key = ByteBuffer.allocate(0x4C + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+			key.put("nk".getBytes(StandardCharsets.US_ASCII));
+			key.putShort(0x02, (short)0x0020);
+			key.putInt(0x10, parent);
+			key.putInt(0x14, subkeyCount);
+			key.putInt(0x1C, subkeys);
+			key.putInt(0x24, valueCount);
+			key.putInt(0x28, values);
+			key.putShort(0x48, (short)nameBytes.length);
+			key.position(0x4C);
+			key.put(nameBytes);
+			return this.cell(key.array());
+		}
+		
+		private final int value(String name, boolean ascii, int type, byte[] data) {
+			
+			byte[] nameBytes = name.getBytes(ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16LE);
+			ByteBuffer value = ByteBuffer.allocate(0x14 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+			value.put("vk".getBytes(StandardCharsets.US_ASCII));
+			value.putShort(0x02, (short)nameBytes.length);
+			value.putInt(0x0C, type);
+			value.putShort(0x10, (short)(ascii ? 0x0001 : 0x0000));
+			
+			if(data.length <= 4) {
+				
+				value.putInt(0x04, 0x80000000 | data.length);
+				
+				for(int index = 0; index < data.length; index++) {
+					
+					value.put(0x08 + index, data[index]);
+				}
+				
+			} else if(data.length > 16344) {
+				
+				int segments = (data.length + 16343) / 16344;
+				ByteBuffer list = ByteBuffer.allocate(segments * 4).order(ByteOrder.LITTLE_ENDIAN);
+				
+				for(int index = 0; index < segments; index++) {
+					
+					list.putInt(this.cell(Arrays.copyOfRange(data, index * 16344, Math.min(data.length, (index + 1) * 16344))));
+				}
+				
+				ByteBuffer bigData = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				bigData.put("db".getBytes(StandardCharsets.US_ASCII));
+				bigData.putShort((short)segments);
+				bigData.putInt(this.cell(list.array()));
+				value.putInt(0x04, data.length);
+				value.putInt(0x08, this.cell(bigData.array()));
+				
+			} else {
+				
+				value.putInt(0x04, data.length);
+				value.putInt(0x08, this.cell(data));
+			}
+			
+			value.position(0x14);
+			value.put(nameBytes);
+			return this.cell(value.array());
+		}
+		
+		private final int list(int... cells) {
+			
+			ByteBuffer list = ByteBuffer.allocate(cells.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+			
+			for(int cell : cells) {
+				
+				list.putInt(cell);
+			}
+			
+			return this.cell(list.array());
+		}
+		
+		private final int subkeys(String signature, int... keys) {
+			
+			int entrySize = signature.equals("lf") ? 8 : 4;
+			ByteBuffer list = ByteBuffer.allocate(4 + keys.length * entrySize).order(ByteOrder.LITTLE_ENDIAN);
+			list.put(signature.getBytes(StandardCharsets.US_ASCII));
+			list.putShort((short)keys.length);
+			
+			for(int key : keys) {
+				
+				list.putInt(key);
+				
+				if(entrySize == 8) {
+					
+					// the name hint is only used by Windows
+					list.putInt(0);
+				}
+			}
+			
+			return this.cell(list.array());
+		}
+		
+		private final byte[] build(int root) {
+			
+			int size = this.bin.position();
+			this.bin.putInt(0x08, size);
+			ByteBuffer file = ByteBuffer.allocate(4096 + size).order(ByteOrder.LITTLE_ENDIAN);
+			file.put("regf".getBytes(StandardCharsets.US_ASCII));
+			file.putInt(0x24, root);
+			file.putInt(0x28, size);
+			file.position(4096);
+			file.put(this.bin.array(), 0, size);
+			return file.array();
+		}
+	}
+	
+	private static final int hash(String name) {
+		
+		int hash = 0;
+		
+		for(char character : name.toCharArray()) {
+			
+			hash = hash * 37 + Character.toUpperCase(character);
+		}
+		
+		return hash;
+	}
+	
+	private static final File createHive() throws IOException {
+		
+		HiveBuilder builder = new HiveBuilder();
+		int child1 = builder.key("Child1", 0, 0, 0, 1, builder.list(builder.value("MyValue", true, 1, "Child\0".getBytes(StandardCharsets.UTF_16LE))));
+		int child2 = builder.key("Child2", 0, 0, 0, 0, 0);
+		int child3 = builder.key("Child3", 0, 0, 0, 0, 0);
+		int street = builder.key("Straße", 0, 0, 0, 0, 0);
+		int values = builder.list(
+			builder.value("MyValue", true, 1, "Hello World!\0".getBytes(StandardCharsets.UTF_16LE)),
+			builder.value("MyNumber", true, 4, new byte[] {0x2A, 0x00, 0x00, (byte)0x80}),
+			builder.value("MyBigNumber", true, 11, new byte[] {0x10, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00}),
+			builder.value("MyList", true, 7, "A\0BC\0\0".getBytes(StandardCharsets.UTF_16LE)),
+			builder.value("Größe", false, 3, new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF, 0x01}),
+			builder.value("MyBigData", true, 3, BIG_DATA),
+			builder.value("", true, 1, "Default\0".getBytes(StandardCharsets.UTF_16LE))
+		);
+		int software = builder.key("MyExampleSoftware", 0, 4, builder.subkeys("ri", builder.subkeys("li", child1, child2), builder.subkeys("lf", child3, street)), 7, values);
+		ByteBuffer lh = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+		lh.put("lh".getBytes(StandardCharsets.US_ASCII));
+		lh.putShort((short)1);
+		lh.putInt(software);
+		lh.putInt(hash("MyExampleSoftware"));
+		int root = builder.key("ROOT", 0, 1, builder.cell(lh.array()), 0, 0);
+		
+		File file = File.createTempFile("hive", ".dat");
+		file.deleteOnExit();
+		Files.write(file.toPath(), builder.build(root));
+		return file;
+	}
+	
+	@Test
+	public void testKeys() {
+		
+		try {
+			
+			// SETUP
+			HiveFile hive = new HiveFile(createHive(), ROOT);
+			
+			// DO
+			RegistryKey root = hive.getRoot();
+			RegistryKey key = hive.getKey("HKLM\\Software\\myexamplesoftware");
+			
+			// TEST RESULT
+			assertEquals(ROOT, root.getPath());
+			assertEquals(Arrays.asList(ROOT + "\\MyExampleSoftware"), Arrays.asList(root.getChilds().get(0).getPath()));
+			assertEquals(4, key.getChilds().size());
+			assertEquals("HKLM\\Software\\myexamplesoftware\\Child3", key.getChilds().get(2).getPath());
+			assertEquals("HKLM\\Software\\myexamplesoftware\\Straße", key.getChilds().get(3).getPath());
+			assertEquals("Straße", key.getChild("STRAßE").getName());
+			assertEquals("Child", key.getChild("child1").getValueByName("MyValue").getValue());
+			assertEquals("Child", hive.getValue(ROOT + "\\MyExampleSoftware\\Child1", "myvalue").getValue());
+			assertThrows(IOException.class, () -> hive.getKey(ROOT + "\\MyExampleSoftware\\Child4"));
+			assertThrows(IOException.class, () -> hive.getKey(Registry.HKEY_CURRENT_USER + "\\Software"));
+			assertThrows(UnsupportedOperationException.class, () -> hive.setKey(ROOT + "\\MyExampleSoftware\\Child4"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testValues() {
+		
+		try {
+			
+			// SETUP
+			HiveFile hive = new HiveFile(createHive(), ROOT);
+			
+			// DO
+			RegistryKey key = hive.getKey(ROOT + "\\MyExampleSoftware");
+			
+			// TEST RESULT
+			assertEquals(7, key.getValues().size());
+			assertEquals("Hello World!", key.getValueByName("MyValue").getValue());
+			assertEquals(0x8000002A, key.getValueByName("MyNumber").getInt());
+			assertEquals(0x100000010L, key.getValueByName("MyBigNumber").getLong());
+			assertEquals(Arrays.asList("A", "BC"), key.getValueByName("MyList").getStrings());
+			assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF, 0x01}, (byte[])key.getValueByName("GRÖSSE".replace("SS", "ß")).getValue());
+			assertArrayEquals(BIG_DATA, (byte[])key.getValueByName("MyBigData").getValue());
+			assertEquals("Default", key.getDefaultValue().getValue());
+			assertNull(key.getValueByName("MyMissingValue"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testInvalidFile() {
+		
+		assertThrows(IOException.class, () -> {
+			
+			File file = File.createTempFile("hive", ".dat");
+			file.deleteOnExit();
+			Files.write(file.toPath(), new byte[8192]);
+			new HiveFile(file, ROOT);
+		});
+	}
+	
+	@Test
+	public void testTruncatedKey() {
+		
+		assertThrows(IOException.class, () -> {
+			
+			// a key that ends right after its signature, at the end of the file
+			HiveBuilder builder = new HiveBuilder();
+			int root = builder.cell("nk".getBytes(StandardCharsets.US_ASCII));
+			File file = File.createTempFile("hive", ".dat");
+			file.deleteOnExit();
+			Files.write(file.toPath(), builder.build(root));
+			new HiveFile(file, ROOT).getKey(ROOT);
+		});
+	}
+}
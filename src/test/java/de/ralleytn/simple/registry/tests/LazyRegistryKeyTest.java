@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+
+class LazyRegistryKeyTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testCommandCount() {
+		
+		try {
+			
+			// SETUP
+			List<String> commands = new ArrayList<>();
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				commands.add(command);
+				
+				if(command.endsWith("/ve")) {
+					
+					return "\r\n" + KEY + "\r\n    (Default)    REG_SZ    Default\r\n\r\n";
+				}
+				
+				return "\r\n" + KEY + "\r\n    MyValue    REG_SZ    Hello World!\r\n\r\n" + KEY + "\\Child1\r\n";
+			}));
+			
+			// DO
+			RegistryKey key = Registry.getKey(KEY, true);
+			
+			// TEST RESULT
+			assertTrue(key.isLazy());
+			assertEquals("MyExampleSoftware", key.getName());
+			assertEquals(0, commands.size());
+			
+			// DO
+			String value = (String)key.getValueByName("MyValue").getValue();
+			RegistryKey child = key.getChild("Child1");
+			
+			// TEST RESULT
+			assertEquals("Hello World!", value);
+			assertEquals(KEY + "\\Child1", child.getPath());
+			assertTrue(child.isLazy());
+			assertEquals(1, commands.size());
+			
+			// DO
+			key.getDefaultValue();
+			key.getDefaultValue();
+			key.getValues();
+			
+			// TEST RESULT
+			assertEquals("Default", key.getDefaultValue().getValue());
+			assertEquals(2, commands.size());
+			assertTrue(commands.get(1).endsWith("/ve"));
+			
+			// DO
+			key.reload();
+			key.getValues();
+			
+			// TEST RESULT
+			assertEquals(3, commands.size());
+			
+			// DO
+			Registry.getKey(KEY);
+			
+			// TEST RESULT
+			assertEquals(5, commands.size());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testMissingKey() {
+		
+		try {
+			
+			// SETUP
+			Registry.setBackend(new MemoryRegistryBackend());
+			
+			// DO
+			RegistryKey key = Registry.getKey(KEY, true);
+			
+			// TEST RESULT
+			UncheckedIOException exception = assertThrows(UncheckedIOException.class, () -> key.getValues());
+			assertEquals("ERROR: The system was unable to find the specified registry key or value.", exception.getCause().getMessage());
+			assertThrows(IOException.class, () -> key.getChilds());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testLookup() {
+		
+		try {
+			
+			// SETUP
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				StringBuilder output = new StringBuilder("\r\n" + KEY + "\r\n");
+				
+				for(int index = 0; index < 1000; index++) {
+					
+					output.append("    Value").append(index).append("    REG_DWORD    0x").append(Integer.toHexString(index)).append("\r\n");
+				}
+				
+				output.append("    Größe    REG_SZ    First\r\n");
+				output.append("    GRÖßE    REG_SZ    Second\r\n\r\n");
+				output.append(KEY + "\\Ärger\r\n");
+				return output.toString();
+			}));
+			RegistryKey key = Registry.getKey(KEY, true);
+			
+			// DO
+			// TEST RESULT
+			assertEquals(999, key.getValueByName("VALUE999").getValue());
+			assertEquals(0, key.getValueByName("value0").getValue());
+			assertEquals("First", key.getValueByName("größe").getValue());
+			assertNull(key.getValueByName("GROESSE"));
+			assertNull(key.getValueByName("Value1000"));
+			assertEquals(KEY + "\\Ärger", key.getChild("äRGER").getPath());
+			assertNull(key.getChild("Value0"));
+			assertNull(key.getValueByName(null));
+			assertNull(key.getChild(null));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
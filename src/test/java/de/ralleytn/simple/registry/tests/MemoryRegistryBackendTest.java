@@ -0,0 +1,313 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryNotFoundException;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class MemoryRegistryBackendTest {
+	
+	private static final String PARENT = Registry.HKEY_CURRENT_USER + "\\Software";
+	private static final String KEY = PARENT + "\\MyExampleSoftware";
+	private static final String CHILD1 = KEY + "\\Child1";
+	private static final String CHILD2 = KEY + "\\Child2";
+	
+	@BeforeEach
+	public void setUp() {
+		
+		Registry.setBackend(new MemoryRegistryBackend());
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testKeyGetters() {
+		
+		try {
+			
+			// SETUP
+			Registry.setKey(CHILD1);
+			Registry.setKey(CHILD2);
+			Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			Registry.setValue(KEY, "MyNumber", RegistryValue.Type.REG_DWORD, '\0', "42");
+			Registry.setDeafultValue(KEY, RegistryValue.Type.REG_MULTI_SZ, '-', "A-B-C");
+			
+			// DO
+			RegistryKey key = Registry.getKey(KEY.replace('\\', '/') + '/');
+			RegistryKey child = key.getChild("child1");
+			List<RegistryKey> childs = key.getChilds();
+			RegistryKey parent = key.getParent();
+			RegistryValue defaultValue = key.getDefaultValue();
+			
+			// TEST RESULT
+			assertEquals(KEY, key.getPath());
+			assertEquals("MyExampleSoftware", key.getName());
+			assertNotNull(child);
+			assertEquals(CHILD1, child.getPath());
+			assertEquals(2, childs.size());
+			assertEquals(PARENT, parent.getPath());
+			assertEquals(3, key.getValues().size());
+			assertEquals("Hello World!", key.getValueByName("myvalue").getValue());
+			assertEquals("0x2a", key.getValueByName("MyNumber").getRawValue());
+			assertEquals(42, key.getValueByName("MyNumber").getValue());
+			assertNotNull(defaultValue);
+			assertEquals("A\\0B\\0C", defaultValue.getRawValue());
+			assertEquals(Arrays.asList("A", "B", "C"), defaultValue.getValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testNumbers() {
+		
+		try {
+			
+			// SETUP
+			Registry.setValue(KEY, "MyDecimal", RegistryValue.Type.REG_DWORD, '\0', "010");
+			Registry.setValue(KEY, "MyHex", RegistryValue.Type.REG_DWORD, '\0', "0x10");
+			Registry.setValue(KEY, "MyBigNumber", RegistryValue.Type.REG_QWORD, '\0', "0100");
+			
+			// DO
+			RegistryKey key = Registry.getKey(KEY);
+			
+			// TEST RESULT
+			// "reg add" reads a leading 0 as decimal and not as octal
+			assertEquals(10, key.getValueByName("MyDecimal").getValue());
+			assertEquals(16, key.getValueByName("MyHex").getValue());
+			assertEquals(100L, key.getValueByName("MyBigNumber").getValue());
+			
+			// never chosen instead of the real registry
+			assertFalse(new MemoryRegistryBackend().isSupported());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testDeleteValues() {
+		
+		try {
+			
+			// SETUP
+			Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			Registry.setValue(KEY, "MyOtherValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			Registry.setDeafultValue(KEY, RegistryValue.Type.REG_SZ, '\0', "Default");
+			
+			// DO
+			RegistryKey key = Registry.getKey(KEY);
+			key.deleteValue("MyValue");
+			key.deleteDefaultValue();
+			key.reload();
+			
+			// TEST RESULT
+			assertNull(key.getValueByName("MyValue"));
+			assertNull(key.getDefaultValue());
+			assertEquals(1, key.getValues().size());
+			assertThrows(IOException.class, () -> Registry.getValue(KEY, "MyValue"));
+			
+			// DO
+			key.deleteAllValues();
+			key.reload();
+			
+			// TEST RESULT
+			assertTrue(key.getValues().isEmpty());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testDeleteKey() {
+		
+		try {
+			
+			// SETUP
+			Registry.setKey(CHILD1);
+			Registry.setKey(CHILD2);
+			
+			// DO
+			Registry.getKey(CHILD2).delete();
+			Registry.deleteKey(KEY);
+			
+			// TEST RESULT
+			assertThrows(IOException.class, () -> Registry.getKey(KEY));
+			assertThrows(IOException.class, () -> Registry.getKey(CHILD1));
+			assertThrows(IOException.class, () -> Registry.deleteKey(KEY));
+			assertNotNull(Registry.getKey(PARENT));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testValueReload() {
+		
+		try {
+			
+			// SETUP
+			Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			RegistryValue value = Registry.getValue(KEY, "MyValue");
+			
+			// DO
+			Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_QWORD, '\0', "0x10");
+			value.reload();
+			
+			// TEST RESULT
+			assertEquals(RegistryValue.Type.REG_QWORD, value.getType());
+			assertEquals("0x10", value.getRawValue());
+			assertEquals(KEY, value.getKey().getPath());
+			
+			// DO
+			Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_DWORD, '\0', "0xFFFFFFFF");
+			Registry.setValue(KEY, "MyOtherValue", RegistryValue.Type.REG_QWORD, '\0', "-1");
+			value.reload();
+			
+			// TEST RESULT
+			assertEquals(-1, value.getValue());
+			assertEquals(-1L, Registry.getValue(KEY, "MyOtherValue").getValue());
+			assertThrows(RegistryNotFoundException.class, () -> Registry.getBackend().getValue(KEY, null));
+			
+			// a REG_DWORD is not silently cut to 32 bit
+			assertThrows(IOException.class, () -> Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_DWORD, '\0', "0x100000000"));
+			assertThrows(IOException.class, () -> Registry.setValue(KEY, "MyValue", RegistryValue.Type.REG_DWORD, '\0', "-1"));
+			assertEquals(-1, Registry.getValue(KEY, "MyValue").getValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testExpandableValue() {
+		
+		try {
+			
+			// SETUP
+			Map<String, String> environment = new HashMap<>();
+			environment.put("SystemRoot", "C:\\Windows");
+			environment.put("Price", "$5");
+			Registry.setEnvironment(environment);
+			Registry.setValue(KEY, "MyPath", RegistryValue.Type.REG_EXPAND_SZ, '\0', "%SYSTEMROOT%\\System32;%systemroot%%Unknown%PRICE%%");
+			Registry.setValue(KEY, "MyText", RegistryValue.Type.REG_EXPAND_SZ, '\0', "No variables");
+			
+			// DO
+			RegistryValue path = Registry.getValue(KEY, "MyPath");
+			environment.put("SystemRoot", "D:\\Windows");
+			
+			// TEST RESULT
+			assertEquals("%SYSTEMROOT%\\System32;%systemroot%%Unknown%PRICE%%", path.getRawValue());
+			assertEquals("C:\\Windows\\System32;C:\\Windows%Unknown$5%", path.getValue());
+			assertEquals("No variables", Registry.getValue(KEY, "MyText").getValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+			
+		} finally {
+			
+			Registry.setEnvironment(null);
+		}
+	}
+	
+	@Test
+	public void testTypedAccessors() {
+		
+		try {
+			
+			// SETUP
+			Registry.setValue(KEY, "MyNumber", RegistryValue.Type.REG_DWORD, '\0', "0xFFFFFFFF");
+			Registry.setValue(KEY, "MyBigNumber", RegistryValue.Type.REG_QWORD, '\0', "0x100000010");
+			Registry.setValue(KEY, "MyBinary", RegistryValue.Type.REG_BINARY, '\0', "007F80FF");
+			Registry.setValue(KEY, "MyList", RegistryValue.Type.REG_MULTI_SZ, '|', "A|BC");
+			Registry.setValue(KEY, "MyString", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			RegistryKey key = Registry.getKey(KEY);
+			ByteBuffer buffer = ByteBuffer.allocate(6);
+			
+			// DO
+			int length = key.getValueByName("MyBinary").getBytes(buffer);
+			
+			// TEST RESULT
+			assertEquals(-1, key.getValueByName("MyNumber").getInt());
+			assertEquals(0xFFFFFFFFL, key.getValueByName("MyNumber").getLong());
+			assertEquals(0x100000010L, key.getValueByName("MyBigNumber").getLong());
+			assertEquals(4, length);
+			assertEquals(4, buffer.position());
+			assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF, 0x00, 0x00}, buffer.array());
+			assertThrows(BufferOverflowException.class, () -> key.getValueByName("MyBinary").getBytes(buffer));
+			assertEquals(4, buffer.position());
+			assertEquals(Arrays.asList("A", "BC"), key.getValueByName("MyList").getStrings());
+			assertEquals("Hello World!", key.getValueByName("MyString").getString());
+			assertThrows(IllegalStateException.class, () -> key.getValueByName("MyString").getInt());
+			assertThrows(IllegalStateException.class, () -> key.getValueByName("MyNumber").getString());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testInvalidRoot() {
+		
+		assertThrows(IOException.class, () -> Registry.setKey("HKEY_NOT_EXISTING\\Software"));
+	}
+}
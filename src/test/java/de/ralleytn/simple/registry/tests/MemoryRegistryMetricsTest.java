@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import de.ralleytn.simple.registry.CachingRegistry;
+import de.ralleytn.simple.registry.MemoryRegistryMetrics;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryMetrics;
+import de.ralleytn.simple.registry.RegistrySessionPool;
+
+class MemoryRegistryMetricsTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testHistogram() {
+		
+		// SETUP
+		MemoryRegistryMetrics.Histogram histogram = new MemoryRegistryMetrics.Histogram();
+		
+		// DO
+		for(long value = 1; value <= 100000; value++) {
+			
+			histogram.record(value);
+		}
+		
+		// TEST RESULT
+		assertEquals(100000, histogram.getCount());
+		assertEquals(1, histogram.getMin());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean());
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+		
+		for(double percentile : new double[] {50, 90, 99, 99.9}) {
+			
+			double expected = percentile * 1000;
+			assertTrue(Math.abs(histogram.getValueAtPercentile(percentile) - expected) <= expected / 64, percentile + "%");
+		}
+	}
+	
+	@Test
+	@DisabledOnOs(OS.WINDOWS)
+	public void testMetrics() {
+		
+		MemoryRegistryMetrics metrics = new MemoryRegistryMetrics();
+		Map<String, String> environment = new HashMap<>();
+		
+		try(RegistrySessionPool pool = new RegistrySessionPool(Arrays.asList("sh", "src/test/resources/fake-reg-shell.sh"), "%1$s 2>&1; echo %2$s $?", 1, 1, TimeUnit.MINUTES)) {
+			
+			// SETUP
+			CachingRegistry cache = new CachingRegistry(new ProcessRegistryBackend(pool), 16, 1, TimeUnit.MINUTES);
+			Registry.setBackend(cache);
+			Registry.setMetrics(metrics);
+			
+			// DO
+			RegistryKey key = Registry.getKey(KEY);
+			Registry.getKey(KEY);
+			key.getValueByName("MyNumber").getValue();
+			assertThrows(IOException.class, () -> Registry.getKey(KEY + "\\Child2"));
+			
+			// TEST RESULT
+			MemoryRegistryMetrics.Stats stats = metrics.getStats(RegistryMetrics.Operation.QUERY, Registry.HKEY_CURRENT_USER);
+			assertNotNull(stats);
+			assertEquals(Registry.HKEY_CURRENT_USER, stats.getHive());
+			assertEquals(3, stats.getProcessCount());
+			assertEquals(Long.valueOf(2), stats.getExitCodes().get(0));
+			assertEquals(Long.valueOf(1), stats.getExitCodes().get(1));
+			assertEquals(1, stats.getErrorCount());
+			assertEquals(1, stats.getCacheHitCount());
+			assertEquals(2, stats.getCacheMissCount());
+			assertTrue(stats.getOutputCharacters() > 0);
+			assertEquals(1, stats.getHistogram(RegistryMetrics.Phase.SPAWN).getCount());
+			assertEquals(3, stats.getHistogram(RegistryMetrics.Phase.WAIT).getCount());
+			assertEquals(2, stats.getHistogram(RegistryMetrics.Phase.PARSE).getCount());
+			assertEquals(1, stats.getHistogram(RegistryMetrics.Phase.DECODE).getCount());
+			assertNull(metrics.getStats(RegistryMetrics.Operation.ADD, Registry.HKEY_CURRENT_USER));
+			assertTrue(metrics.toString().startsWith("QUERY HKEY_CURRENT_USER"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+			
+		} finally {
+			
+			Registry.setMetrics(null);
+		}
+	}
+}
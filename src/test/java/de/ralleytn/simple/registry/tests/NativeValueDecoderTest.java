@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.NativeValueDecoder;
+import de.ralleytn.simple.registry.RegistryValue;
+import de.ralleytn.simple.registry.RegistryValueDecoder;
+
+class NativeValueDecoderTest {
+	
+	private static final String KEY = "HKEY_CURRENT_USER\\Software\\MyExampleSoftware";
+	private static final RegistryValueDecoder DECODER = new NativeValueDecoder();
+	
+	private static final ByteBuffer buffer(byte[] data) {
+		
+		// direct buffers behave like native memory
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putShort((short)0x7F7F);
+		buffer.put(data);
+		buffer.putShort((short)0x7F7F);
+		buffer.position(2);
+		buffer.limit(2 + data.length);
+		return buffer;
+	}
+	
+	private static final RegistryValue decode(RegistryValue.Type type, byte[] data) {
+		
+		ByteBuffer buffer = buffer(data);
+		RegistryValue value = DECODER.decode("MyValue", type.getCode(), buffer, KEY, null);
+		
+		// the buffer must not be changed
+		assertEquals(2, buffer.position());
+		assertEquals(2 + data.length, buffer.limit());
+		
+		return value;
+	}
+	
+	@Test
+	public void testNumbers() {
+		
+		RegistryValue dword = decode(RegistryValue.Type.REG_DWORD, new byte[] {0x2A, 0x00, 0x00, (byte)0x80});
+		assertEquals(RegistryValue.Type.REG_DWORD, dword.getType());
+		assertEquals(0x8000002A, dword.getValue());
+		assertEquals("0x8000002a", dword.getRawValue());
+		
+		RegistryValue qword = decode(RegistryValue.Type.REG_QWORD, new byte[] {0x10, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00});
+		assertEquals(0x100000010L, qword.getValue());
+		assertEquals("0x100000010", qword.getRawValue());
+		
+		RegistryValue shortDword = decode(RegistryValue.Type.REG_DWORD, new byte[] {0x01, 0x02});
+		assertEquals(0x0201, shortDword.getValue());
+		
+		RegistryValue bigEndian = DECODER.decode("MyValue", 5, buffer(new byte[] {0x00, 0x00, 0x01, 0x02}), KEY, null);
+		assertEquals(RegistryValue.Type.REG_DWORD, bigEndian.getType());
+		assertEquals(0x0102, bigEndian.getValue());
+	}
+	
+	@Test
+	public void testStrings() {
+		
+		RegistryValue string = decode(RegistryValue.Type.REG_SZ, "Hello World!\0".getBytes(StandardCharsets.UTF_16LE));
+		assertEquals("Hello World!", string.getValue());
+		assertEquals("Hello World!", string.getRawValue());
+		assertEquals(KEY, string.getPath());
+		assertEquals("MyValue", string.getName());
+		
+		RegistryValue unterminated = decode(RegistryValue.Type.REG_SZ, "Hello".getBytes(StandardCharsets.UTF_16LE));
+		assertEquals("Hello", unterminated.getValue());
+		
+		RegistryValue empty = decode(RegistryValue.Type.REG_SZ, new byte[] {0, 0});
+		assertNull(empty.getValue());
+		
+		RegistryValue multi = decode(RegistryValue.Type.REG_MULTI_SZ, "A\0BC\0D\0\0".getBytes(StandardCharsets.UTF_16LE));
+		assertEquals(Arrays.asList("A", "BC", "D"), multi.getValue());
+		assertEquals("A\\0BC\\0D", multi.getRawValue());
+		
+		RegistryValue emptyMulti = decode(RegistryValue.Type.REG_MULTI_SZ, new byte[] {0, 0});
+		assertEquals(Collections.emptyList(), emptyMulti.getValue());
+	}
+	
+	@Test
+	public void testBinary() {
+		
+		byte[] data = {0x00, 0x7F, (byte)0x80, (byte)0xFF};
+		
+		RegistryValue binary = decode(RegistryValue.Type.REG_BINARY, data);
+		assertArrayEquals(data, (byte[])binary.getValue());
+		assertEquals("007F80FF", binary.getRawValue());
+		
+		RegistryValue none = decode(RegistryValue.Type.REG_NONE, data);
+		assertEquals("007F80FF", none.getValue());
+		
+		RegistryValue unknown = DECODER.decode("MyValue", 8, buffer(data), KEY, null);
+		assertEquals(RegistryValue.Type.REG_BINARY, unknown.getType());
+		assertArrayEquals(data, (byte[])unknown.getValue());
+	}
+}
@@ -0,0 +1,449 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryNotFoundException;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class ProcessRegistryBackendTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testParseOutput() {
+		
+		try {
+			
+			// SETUP
+			ProcessRegistryBackend backend = new ProcessRegistryBackend(command -> {
+				
+				if(command.endsWith("/ve")) {
+					
+					return "\r\n" + KEY + "\r\n    (Default)    REG_SZ    \r\n";
+				}
+				
+				return "\r\n" + KEY + "\r\n" +
+					"    MyValue    REG_SZ    a    b|c    \r\n" +
+					"    My Value    REG_SZ    REG_SZ    \r\n" +
+					"    MyList    REG_MULTI_SZ    A\\0B\r\n\r\n" +
+					KEY + "\\Child1\r\n" +
+					KEY + "\\Child2\r\n";
+			});
+			
+			// DO
+			RegistryKey key = backend.getKey("HKCU\\Software\\MyExampleSoftware");
+			
+			// TEST RESULT
+			assertEquals(3, key.getValues().size());
+			assertEquals("a    b|c    ", key.getValues().get(0).getValue());
+			assertEquals("REG_SZ    ", key.getValueByName("My Value").getValue());
+			assertEquals(Arrays.asList("A", "B"), key.getValueByName("MyList").getValue());
+			assertEquals(2, key.getChilds().size());
+			assertEquals(KEY + "\\Child2", key.getChild("child2").getPath());
+			assertNull(key.getDefaultValue().getValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testConcurrentReads() {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(20);
+		
+		try {
+			
+			// SETUP
+			AtomicInteger commands = new AtomicInteger();
+			CountDownLatch release = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				commands.incrementAndGet();
+				
+				try {
+					
+					release.await();
+					
+				} catch(InterruptedException exception) {
+					
+					throw new IOException(exception);
+				}
+				
+				return command.endsWith("/ve") ? "\r\n" + KEY + "\r\n    (Default)    REG_SZ    Default\r\n" : "\r\n" + KEY + "\r\n    MyValue    REG_SZ    Hello World!\r\n";
+			}));
+			
+			// DO
+			List<Future<RegistryKey>> results = new ArrayList<>();
+			
+			for(int index = 0; index < 20; index++) {
+				
+				String path = index % 2 == 0 ? KEY : KEY.replace('\\', '/') + "/";
+				results.add(executor.submit(() -> {
+					
+					synchronized(threads) {
+						
+						threads.add(Thread.currentThread());
+					}
+					
+					return Registry.getKey(path);
+				}));
+			}
+			
+			// wait until every thread is either running the command or waiting for it
+			long deadline = System.currentTimeMillis() + 10000;
+			
+			while(System.currentTimeMillis() < deadline) {
+				
+				synchronized(threads) {
+					
+					if(threads.size() == 20 && threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+						
+						break;
+					}
+				}
+				
+				Thread.sleep(10);
+			}
+			
+			release.countDown();
+			
+			// TEST RESULT
+			Set<Object> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+			
+			for(Future<RegistryKey> result : results) {
+				
+				RegistryKey key = result.get(10, TimeUnit.SECONDS);
+				assertEquals(KEY, key.getPath());
+				assertEquals("Hello World!", key.getValueByName("MyValue").getValue());
+				assertEquals("Default", key.getDefaultValue().getValue());
+				objects.add(key);
+				objects.add(key.getValueByName("MyValue"));
+			}
+			
+			// one query for the values and one for the default value, but every thread has its own copy
+			assertEquals(2, commands.get());
+			assertEquals(40, objects.size());
+			
+			// nothing is cached
+			Registry.getKey(KEY);
+			assertEquals(4, commands.get());
+			
+		} catch(Exception exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+			
+		} finally {
+			
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testCancelledConcurrentRead() {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		
+		try {
+			
+			// SETUP
+			AtomicInteger commands = new AtomicInteger();
+			AtomicReference<Thread> first = new AtomicReference<>();
+			AtomicReference<Thread> second = new AtomicReference<>();
+			CountDownLatch never = new CountDownLatch(1);
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				if(commands.incrementAndGet() == 1) {
+					
+					try {
+						
+						never.await();
+						
+					} catch(InterruptedException exception) {
+						
+						throw new InterruptedIOException();
+					}
+				}
+				
+				return "\r\n" + KEY + "\r\n    MyValue    REG_SZ    Hello World!\r\n";
+			}));
+			
+			// DO
+			Future<RegistryValue> cancelled = executor.submit(() -> {
+				
+				first.set(Thread.currentThread());
+				return Registry.getValue(KEY, "MyValue");
+			});
+			
+			ProcessRegistryBackendTest.awaitWaiting(first);
+			
+			Future<RegistryValue> waiting = executor.submit(() -> {
+				
+				second.set(Thread.currentThread());
+				return Registry.getValue(KEY, "MyValue");
+			});
+			
+			ProcessRegistryBackendTest.awaitWaiting(second);
+			first.get().interrupt();
+			
+			// TEST RESULT
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> cancelled.get(10, TimeUnit.SECONDS));
+			assertTrue(exception.getCause() instanceof InterruptedIOException);
+			
+			// the waiting thread was not cancelled and makes the call again
+			assertEquals("Hello World!", waiting.get(10, TimeUnit.SECONDS).getValue());
+			assertEquals(2, commands.get());
+			
+		} catch(Exception exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+			
+		} finally {
+			
+			executor.shutdownNow();
+		}
+	}
+	
+	private static final void awaitWaiting(AtomicReference<Thread> thread) throws InterruptedException {
+		
+		long deadline = System.currentTimeMillis() + 10000;
+		
+		while(System.currentTimeMillis() < deadline && (thread.get() == null || thread.get().getState() != Thread.State.WAITING)) {
+			
+			Thread.sleep(10);
+		}
+	}
+	
+	@Test
+	public void testGetValues() {
+		
+		try {
+			
+			// SETUP
+			String machine = "HKEY_LOCAL_MACHINE\\SOFTWARE\\Microsoft";
+			AtomicBoolean locked = new AtomicBoolean();
+			List<String> commands = new ArrayList<>();
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				commands.add(command);
+				
+				if(command.equals("reg query \"" + KEY + "\"")) {
+					
+					return "\r\n" + KEY + "\r\n    MyValue    REG_SZ    Hello World!\r\n\r\n" + KEY + "\\Child1\r\n" + KEY + "\\Child2\r\n" + KEY + "\\Child3\r\n";
+				}
+				
+				if(command.equals("reg query \"" + KEY + "\" /ve")) {
+					
+					return "\r\n" + KEY + "\r\n    (Default)    REG_SZ    Default\r\n";
+				}
+				
+				if(command.equals("reg query \"" + KEY + "\" /s")) {
+					
+					if(locked.get()) {
+						
+						throw new IOException("ERROR: Access is denied.");
+					}
+					
+					return "\r\n" + KEY + "\r\n    (Default)    REG_SZ    Default\r\n    MyValue    REG_SZ    Hello World!\r\n\r\n" +
+						KEY + "\\Child1\r\n    MyNumber    REG_DWORD    0x2a\r\n\r\n" +
+						KEY + "\\Child1\\GrandChild\r\n    MyList    REG_MULTI_SZ    A\\0B\r\n\r\n" +
+						KEY + "\\Child2\r\n    MyValue    REG_SZ    Child\r\n\r\n" +
+						KEY + "\\Child3\r\n\r\n";
+				}
+				
+				if(command.equals("reg query \"HKEY_CURRENT_USER\\Software\"")) {
+					
+					return "\r\nHKEY_CURRENT_USER\\Software\r\n\r\n" + KEY + "\r\n";
+				}
+				
+				if(command.equals("reg query \"" + KEY + "\\Child1\"")) {
+					
+					return "\r\n" + KEY + "\\Child1\r\n    MyNumber    REG_DWORD    0x2a\r\n";
+				}
+				
+				if(command.equals("reg query \"" + KEY + "\\Child2\"")) {
+					
+					return "\r\n" + KEY + "\\Child2\r\n    MyValue    REG_SZ    Child\r\n";
+				}
+				
+				if(command.equals("reg query \"" + machine + "\\Windows\\CurrentVersion\"") || command.equals("reg query \"" + machine + "\\Office\\16.0\"")) {
+					
+					return "\r\n" + command.substring(11, command.length() - 1) + "\r\n    MyValue    REG_SZ    Machine\r\n";
+				}
+				
+				throw new IOException("ERROR: The system was unable to find the specified registry key or value.");
+			}));
+			
+			Map<String, List<String>> request = new LinkedHashMap<>();
+			request.put(KEY, Arrays.asList("MyValue", null, "MissingValue"));
+			request.put(KEY + "\\Child1", Arrays.asList("mynumber"));
+			request.put("HKCU/Software/MyExampleSoftware/child2/", Arrays.asList("MyValue"));
+			request.put(KEY + "\\Child4", Arrays.asList("MyValue"));
+			
+			// DO
+			Map<String, Map<String, Optional<RegistryValue>>> subkeys = Registry.getValues(request);
+			
+			// TEST RESULT
+			assertEquals(Arrays.asList(
+				"reg query \"" + KEY + "\"",
+				"reg query \"" + KEY + "\" /ve",
+				"reg query \"" + KEY + "\" /s"
+			), commands);
+			
+			assertEquals(Arrays.asList(KEY, KEY + "\\Child1", "HKCU/Software/MyExampleSoftware/child2/", KEY + "\\Child4"), new ArrayList<>(subkeys.keySet()));
+			assertEquals("Hello World!", subkeys.get(KEY).get("MyValue").get().getValue());
+			assertEquals("Default", subkeys.get(KEY).get(null).get().getValue());
+			assertFalse(subkeys.get(KEY).get("MissingValue").isPresent());
+			assertEquals(0x2a, subkeys.get(KEY + "\\Child1").get("mynumber").get().getValue());
+			assertEquals("Child", subkeys.get("HKCU/Software/MyExampleSoftware/child2/").get("MyValue").get().getValue());
+			assertFalse(subkeys.get(KEY + "\\Child4").get("MyValue").isPresent());
+			
+			// DO
+			commands.clear();
+			locked.set(true);
+			Map<String, Map<String, Optional<RegistryValue>>> fallback = Registry.getValues(Map.of(KEY, List.of("MyValue"), KEY + "\\Child1", List.of("MyNumber"), KEY + "\\Child2", Set.of("MyValue")));
+			
+			// TEST RESULT
+			// the order of Map.of is not defined
+			assertEquals(5, commands.size());
+			assertEquals(new HashSet<>(Arrays.asList(
+				"reg query \"" + KEY + "\"",
+				"reg query \"" + KEY + "\" /s",
+				"reg query \"HKEY_CURRENT_USER\\Software\"",
+				"reg query \"" + KEY + "\\Child1\"",
+				"reg query \"" + KEY + "\\Child2\""
+			)), new HashSet<>(commands));
+			assertEquals("Hello World!", fallback.get(KEY).get("MyValue").get().getValue());
+			assertEquals(0x2a, fallback.get(KEY + "\\Child1").get("MyNumber").get().getValue());
+			assertEquals("Child", fallback.get(KEY + "\\Child2").get("MyValue").get().getValue());
+			
+			// DO
+			commands.clear();
+			request.clear();
+			request.put(machine + "\\Windows\\CurrentVersion", List.of("MyValue"));
+			request.put(machine + "\\Office\\16.0", List.of("MyValue", "MissingValue"));
+			request.put(machine, List.of("MyValue"));
+			request.put("HKLM\\SOFTWARE\\microsoft\\office\\16.0", List.of("MyValue"));
+			Map<String, Map<String, Optional<RegistryValue>>> distant = Registry.getValues(request);
+			
+			// TEST RESULT
+			assertEquals(Arrays.asList(
+				"reg query \"" + machine + "\\Windows\\CurrentVersion\"",
+				"reg query \"" + machine + "\\Office\\16.0\"",
+				"reg query \"" + machine + "\""
+			), commands);
+			
+			assertEquals(4, distant.size());
+			assertEquals("Machine", distant.get("HKLM\\SOFTWARE\\microsoft\\office\\16.0").get("MyValue").get().getValue());
+			assertFalse(distant.get(machine + "\\Office\\16.0").get("MissingValue").isPresent());
+			assertFalse(distant.get(machine).get("MyValue").isPresent());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testLocalizedErrors() {
+		
+		// SETUP
+		String error = "FEHLER: Der angegebene Registrierungsschl\u00FCssel bzw. Wert wurde nicht gefunden.";
+		ProcessRegistryBackend backend = new ProcessRegistryBackend(command -> {
+			
+			if(command.equals("reg query \"HKEY_CURRENT_USER\\Software\"")) {
+				
+				return "\r\nHKEY_CURRENT_USER\\Software\r\n\r\n" + KEY + "\r\n";
+			}
+			
+			if(command.equals("reg query \"" + KEY + "\"")) {
+				
+				return "\r\n" + KEY + "\r\n    MyValue    REG_SZ    Hello World!\r\n\r\n" + KEY + "\\Locked\r\n";
+			}
+			
+			if(command.startsWith("reg query \"" + KEY + "\\Locked\"") || command.equals("reg query \"" + KEY + "\\Locked\\Child\"")) {
+				
+				throw new IOException("FEHLER: Zugriff verweigert");
+			}
+			
+			throw new IOException(error);
+		});
+		
+		// DO & TEST RESULT
+		RegistryNotFoundException missingKey = assertThrows(RegistryNotFoundException.class, () -> backend.getKey(KEY + "\\Child1"));
+		assertEquals(error, missingKey.getMessage());
+		assertThrows(RegistryNotFoundException.class, () -> backend.getKey(KEY + "\\Child1\\GrandChild"));
+		assertThrows(RegistryNotFoundException.class, () -> backend.getValue(KEY, "MissingValue"));
+		assertThrows(RegistryNotFoundException.class, () -> backend.deleteValue(KEY, "MissingValue"));
+		assertThrows(RegistryNotFoundException.class, () -> backend.deleteKey(KEY + "\\Child1"));
+		
+		// a key that can not be read is not the same as a key that does not exist
+		IOException locked = assertThrows(IOException.class, () -> backend.getKey(KEY + "\\Locked\\Child"));
+		assertFalse(locked instanceof RegistryNotFoundException);
+		assertFalse(assertThrows(IOException.class, () -> backend.getValue(KEY, "MyValue")) instanceof RegistryNotFoundException);
+	}
+}
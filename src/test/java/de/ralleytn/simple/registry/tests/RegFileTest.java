@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.RegFile;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryDiff;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class RegFileTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@Test
+	public void testImport() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			backend.setValue(KEY + "\\Child1", "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			backend.setValue(KEY, "MyOldValue", RegistryValue.Type.REG_SZ, '\0', "Old");
+			backend.setDefaultValue(KEY, RegistryValue.Type.REG_SZ, '\0', "Old");
+			
+			// DO
+			backend.importFile(new File("src/test/resources/batch.reg"));
+			RegistryKey key = backend.getKey(KEY);
+			
+			// TEST RESULT
+			assertEquals("Hello \"World\"!", key.getValueByName("MyValue").getValue());
+			assertEquals("C:\\Program Files", key.getValueByName("Path").getValue());
+			assertEquals(42, key.getValueByName("MyNumber").getValue());
+			assertEquals(0x100000010L, key.getValueByName("MyBigNumber").getValue());
+			assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF}, (byte[])key.getValueByName("MyBinary").getValue());
+			assertEquals(Arrays.asList("A", "BC"), key.getValueByName("MyList").getValue());
+			assertEquals("%TEMP%", key.getValueByName("MyExpandable").getRawValue());
+			assertEquals(32, ((byte[])key.getValueByName("MyLongBinary").getValue()).length);
+			assertNull(key.getValueByName("MyOldValue"));
+			assertNull(key.getDefaultValue());
+			assertNull(key.getChild("Child1"));
+			assertEquals(KEY + "\\Child2", key.getChild("Child2").getPath());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testExport() {
+		
+		File file = new File("target/export-test.reg");
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			backend.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Line 1\nLine 2");
+			backend.setValue(KEY, "MyBigNumber", RegistryValue.Type.REG_QWORD, '\0', "-1");
+			backend.setValue(KEY, "MyNone", RegistryValue.Type.REG_NONE, '\0', "0102");
+			backend.setValue(KEY + "\\Child1", "MyList", RegistryValue.Type.REG_MULTI_SZ, '|', "Ä|Ö");
+			backend.setValue(KEY + "\\Child1\\GrandChild", "MyPath", RegistryValue.Type.REG_EXPAND_SZ, '\0', "%TEMP%\\Test");
+			backend.setDefaultValue(KEY, RegistryValue.Type.REG_DWORD, '\0', "0xFFFFFFFF");
+			backend.setValue(KEY, "(Default)", RegistryValue.Type.REG_SZ, '\0', "Not the default value");
+			MemoryRegistryBackend other = new MemoryRegistryBackend();
+			
+			// DO
+			backend.exportKey(KEY, file);
+			other.importFile(file);
+			
+			// TEST RESULT
+			assertTrue(RegistryDiff.compare(backend.getKey(KEY), other.getKey(KEY)).isEmpty());
+			assertEquals("Line 1\nLine 2", other.getValue(KEY, "MyValue").getValue());
+			assertEquals(-1L, other.getValue(KEY, "MyBigNumber").getValue());
+			
+			// a value that only has the same name as the default value is not the default value
+			assertEquals(-1, other.getKey(KEY).getDefaultValue().getValue());
+			assertEquals("Not the default value", other.getValue(KEY, "(Default)").getValue());
+			assertFalse(other.getValue(KEY, "(Default)").isDefaultValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+			
+		} finally {
+			
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void testRegedit4() {
+		
+		try {
+			
+			// SETUP
+			String content = "REGEDIT4\r\n"
+					+ "\r\n"
+					+ "; a comment\r\n"
+					+ "[HKEY_CURRENT_USER\\Software\\MyExampleSoftware]\r\n"
+					+ "\"MyPath\"=hex(2):25,54,45,4d,50,25,5c,\\\r\n"
+					+ "  c4,00\r\n"
+					+ "\"My\\\"Quoted\\\" Name\"=\"Value\"\r\n"
+					+ "@=-\r\n"
+					+ "\"MyResourceList\"=hex(8):01,02\r\n"
+					+ "\"MySplitBinary\"=hex:01,0\\\r\n"
+					+ "  2,\\\r\n"
+					+ "  03\r\n"
+					+ "\r\n"
+					+ "[-HKEY_CURRENT_USER\\Software\\MyExampleSoftware\\Child1]\r\n";
+			List<String> events = new ArrayList<>();
+			RegFile.Handler handler = new RegFile.Handler() {
+				
+				@Override
+				public void key(String path) {
+					
+					events.add("key " + path);
+				}
+				
+				@Override
+				public void value(String name, RegistryValue.Type type, String rawValue) {
+					
+					events.add("value " + name + " " + type + " " + rawValue);
+				}
+				
+				@Override
+				public void deleteKey(String path) {
+					
+					events.add("deleteKey " + path);
+				}
+				
+				@Override
+				public void deleteValue(String name) {
+					
+					events.add("deleteValue " + name);
+				}
+			};
+			
+			// DO
+			RegFile.read(new StringReader(content), handler);
+			
+			// TEST RESULT
+			assertEquals(Arrays.asList(
+				"key " + KEY,
+				"value MyPath REG_EXPAND_SZ %TEMP%\\Ä",
+				"value My\"Quoted\" Name REG_SZ Value",
+				"deleteValue null",
+				"value MyResourceList REG_BINARY 0102",
+				"value MySplitBinary REG_BINARY 010203",
+				"deleteKey " + KEY + "\\Child1"
+			), events);
+			
+			IOException exception = assertThrows(IOException.class, () -> RegFile.read(new StringReader("REGEDIT4\r\n[" + KEY + "]\r\n\"MyNumber\"=dword:xyz\r\n"), handler));
+			assertEquals("ERROR: Invalid syntax. (line 3)", exception.getMessage());
+			exception = assertThrows(IOException.class, () -> RegFile.read(new StringReader("REGEDIT4\r\n[" + KEY + "]\r\n\"MyBinary\"=hex:01,\\\r\n  xy\r\n"), handler));
+			assertEquals("ERROR: Invalid syntax. (line 4)", exception.getMessage());
+			assertThrows(IOException.class, () -> RegFile.read(new StringReader("[" + KEY + "]\r\n"), handler));
+			assertFalse(events.isEmpty());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryBatch;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryNotFoundException;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class RegistryBatchTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	private static final String LONG_BINARY = "000102030405060708090A0B0C0D0E0F101112131415161718191A1B1C1D1E1F";
+	
+	@BeforeEach
+	public void setUp() {
+		
+		try {
+			
+			Registry.setBackend(new MemoryRegistryBackend());
+			Registry.setKey(KEY + "\\Child1");
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	private static final RegistryBatch createBatch(RegistryKey key) {
+		
+		return key.edit()
+			.setValue("MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello \"World\"!")
+			.setValue("Path", RegistryValue.Type.REG_SZ, '\0', "C:\\Program Files")
+			.setValue("MyNumber", RegistryValue.Type.REG_DWORD, '\0', "42")
+			.setValue("MyBigNumber", RegistryValue.Type.REG_QWORD, '\0', "0x100000010")
+			.setValue("MyBinary", RegistryValue.Type.REG_BINARY, '\0', "007F80FF")
+			.setValue("MyList", RegistryValue.Type.REG_MULTI_SZ, '|', "A|BC")
+			.setValue("MyExpandable", RegistryValue.Type.REG_EXPAND_SZ, '\0', "%TEMP%")
+			.setDefaultValue(RegistryValue.Type.REG_SZ, '\0', "Default")
+			.deleteValue("MyOldValue")
+			.deleteKey(KEY + "\\Child1")
+			.setKey(KEY + "\\Child2")
+			.setValue("MyLongBinary", RegistryValue.Type.REG_BINARY, '\0', LONG_BINARY)
+			.setValue("MyBrokenNumber", RegistryValue.Type.REG_DWORD, '\0', "forty-two")
+			.deleteDefaultValue();
+	}
+	
+	@Test
+	public void testWrite() {
+		
+		try {
+			
+			// SETUP
+			RegistryBatch batch = createBatch(Registry.getKey(KEY + "\\Child1").getParent());
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			
+			// DO
+			batch.write(output);
+			
+			// TEST RESULT
+			assertArrayEquals(Files.readAllBytes(Paths.get("src/test/resources/batch.reg")), output.toByteArray());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testApply() {
+		
+		try {
+			
+			// SETUP
+			Registry.setKey(KEY);
+			RegistryKey key = Registry.getKey(KEY);
+			RegistryBatch batch = createBatch(key);
+			
+			// DO
+			List<RegistryBatch.Operation> results = batch.apply();
+			key.reload();
+			
+			// TEST RESULT
+			assertEquals(14, results.size());
+			assertTrue(batch.getOperations().isEmpty());
+			
+			for(RegistryBatch.Operation result : results) {
+				
+				// the batch is imported as a whole, which ignores that there is no "MyOldValue" to delete
+				boolean shouldFail = "MyBrokenNumber".equals(result.getName());
+				assertEquals(!shouldFail, result.isApplied(), result.toString());
+				assertEquals(shouldFail, result.getError() != null, result.toString());
+			}
+			
+			assertEquals("Hello \"World\"!", key.getValueByName("MyValue").getValue());
+			assertEquals(42, key.getValueByName("MyNumber").getValue());
+			assertEquals(0x100000010L, key.getValueByName("MyBigNumber").getValue());
+			assertEquals(LONG_BINARY, key.getValueByName("MyLongBinary").getRawValue());
+			assertNull(key.getValueByName("MyBrokenNumber"));
+			assertNull(key.getDefaultValue());
+			assertNull(key.getChild("Child1"));
+			assertFalse(key.getChilds().isEmpty());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testNumbers() {
+		
+		try {
+			
+			// SETUP
+			Registry.setKey(KEY);
+			RegistryKey key = Registry.getKey(KEY);
+			
+			// DO
+			List<RegistryBatch.Operation> results = key.edit()
+				.setValue("MyDecimal", RegistryValue.Type.REG_DWORD, '\0', "010")
+				.setValue("MyHex", RegistryValue.Type.REG_DWORD, '\0', "0x10")
+				.setValue("MyBigHex", RegistryValue.Type.REG_QWORD, '\0', "0xFFFFFFFFFFFFFFFF")
+				.apply();
+			key.reload();
+			
+			// TEST RESULT
+			for(RegistryBatch.Operation result : results) {
+				
+				assertTrue(result.isApplied(), result.toString());
+			}
+			
+			// "reg add" reads a leading 0 as decimal and not as octal
+			assertEquals(10, key.getValueByName("MyDecimal").getValue());
+			assertEquals(16, key.getValueByName("MyHex").getValue());
+			assertEquals(-1L, key.getValueByName("MyBigHex").getValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSameDataAsRegAdd() {
+		
+		try {
+			
+			// SETUP
+			Registry.setKey(KEY);
+			RegistryKey key = Registry.getKey(KEY);
+			
+			// DO
+			List<RegistryBatch.Operation> results = key.edit()
+				.setValue("MyList", RegistryValue.Type.REG_MULTI_SZ, '\0', "a\\0b")
+				.setValue("MyNegative", RegistryValue.Type.REG_DWORD, '\0', "-1")
+				.apply();
+			key.reload();
+			
+			// TEST RESULT
+			assertTrue(results.get(0).isApplied(), results.get(0).toString());
+			assertEquals(Arrays.asList("a", "b"), key.getValueByName("MyList").getValue());
+			
+			// "reg add" rejects negative numbers
+			assertFalse(results.get(1).isApplied(), results.get(1).toString());
+			assertNotNull(results.get(1).getError());
+			assertNull(key.getValueByName("MyNegative"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testFailedImport() {
+		
+		try {
+			
+			// SETUP
+			List<String> commands = new ArrayList<>();
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				commands.add(command);
+				
+				if(command.startsWith("reg import")) {
+					
+					// the import deleted everything before it failed
+					throw new IOException("ERROR: Error accessing the registry.");
+				}
+				
+				if(command.startsWith("reg delete")) {
+					
+					throw new IOException(RegistryNotFoundException.MESSAGE);
+				}
+				
+				return "\r\n" + KEY + "\r\n";
+			}));
+			RegistryKey key = Registry.getKey(KEY);
+			
+			// DO
+			List<RegistryBatch.Operation> results = key.edit()
+				.setValue("MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!")
+				.deleteValue("MyOldValue")
+				.deleteDefaultValue()
+				.deleteKey(KEY + "\\Child1")
+				.apply();
+			
+			// TEST RESULT
+			assertEquals(4, results.size());
+			
+			for(RegistryBatch.Operation result : results) {
+				
+				// a change that is applied one by one after the import has already done it is still applied
+				assertTrue(result.isApplied(), result.toString());
+				assertNull(result.getError(), result.toString());
+			}
+			
+			assertEquals(5, commands.stream().filter(command -> command.startsWith("reg import") || command.contains("/f")).count());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
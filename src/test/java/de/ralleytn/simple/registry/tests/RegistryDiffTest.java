@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.RegistryChange;
+import de.ralleytn.simple.registry.RegistryDiff;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class RegistryDiffTest {
+	
+	private static final String CURRENT = "HKEY_CURRENT_USER\\Software\\MyExampleSoftware";
+	private static final String BASELINE = "HKEY_LOCAL_MACHINE\\SOFTWARE\\Baseline\\MyExampleSoftware";
+	
+	private static final MemoryRegistryBackend createBackend() throws IOException {
+		
+		MemoryRegistryBackend backend = new MemoryRegistryBackend();
+		
+		for(String path : new String[] {CURRENT, BASELINE}) {
+			
+			backend.setValue(path, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			backend.setValue(path, "MyNumber", RegistryValue.Type.REG_DWORD, '\0', "0x2a");
+			backend.setValue(path + "\\Child1", "MyList", RegistryValue.Type.REG_MULTI_SZ, '|', "A|B");
+			backend.setKey(path + "\\Child2");
+		}
+		
+		backend.setValue(CURRENT, "MyNumber", RegistryValue.Type.REG_DWORD, '\0', "0x2b");
+		backend.setValue(CURRENT, "MyOldValue", RegistryValue.Type.REG_SZ, '\0', "Old");
+		backend.setDefaultValue(CURRENT, RegistryValue.Type.REG_SZ, '\0', "Default");
+		backend.setKey(CURRENT + "\\Child2\\GrandChild");
+		backend.setValue(BASELINE + "\\Child1", "MyPath", RegistryValue.Type.REG_EXPAND_SZ, '\0', "%TEMP%");
+		backend.setValue(BASELINE + "\\Child3\\GrandChild", "MyValue", RegistryValue.Type.REG_SZ, '\0', "New");
+		
+		return backend;
+	}
+	
+	@Test
+	public void testCompare() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = createBackend();
+			
+			// DO
+			RegistryDiff same = RegistryDiff.compare(backend.getKey(BASELINE), backend.snapshot(BASELINE).getRoot());
+			RegistryDiff diff = RegistryDiff.compare(backend.getKey(CURRENT), backend.snapshot(BASELINE).getRoot());
+			List<String> changes = new ArrayList<>();
+			RegistryDiff.compare(backend.getKey(CURRENT), backend.getKey(BASELINE), change -> changes.add(change.toString()));
+			
+			// TEST RESULT
+			assertTrue(same.isEmpty());
+			assertEquals(6, diff.getChanges().size());
+			assertEquals(changes.size(), diff.getChanges().size());
+			RegistryChange changed = diff.getChanges().stream().filter(change -> change.getKind() == RegistryChange.Kind.VALUE_CHANGED).findFirst().get();
+			assertEquals("MyNumber", changed.getName());
+			assertEquals(43, changed.getOldValue().getValue());
+			assertEquals(42, changed.getNewValue().getValue());
+			assertTrue(changes.contains("VALUE_REMOVED|" + CURRENT + "|MyOldValue|REG_SZ|Old"));
+			assertTrue(changes.contains("VALUE_REMOVED|" + CURRENT + "|(Default)|REG_SZ|Default"));
+			assertTrue(changes.contains("VALUE_ADDED|" + BASELINE + "\\Child1|MyPath|REG_EXPAND_SZ|%TEMP%"));
+			assertTrue(changes.contains("KEY_REMOVED|" + CURRENT + "\\Child2\\GrandChild"));
+			assertTrue(changes.contains("KEY_ADDED|" + BASELINE + "\\Child3"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testPatch() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = createBackend();
+			ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			
+			// DO
+			int count = RegistryDiff.writePatch(backend.getKey(CURRENT), backend.getKey(BASELINE), streamed);
+			RegistryDiff.compare(backend.getKey(CURRENT), backend.getKey(BASELINE)).writePatch(output);
+			String patch = new String(output.toByteArray(), StandardCharsets.UTF_16LE);
+			
+			// TEST RESULT
+			assertEquals(6, count);
+			assertEquals(patch, new String(streamed.toByteArray(), StandardCharsets.UTF_16LE));
+			assertTrue(patch.startsWith("\uFEFFWindows Registry Editor Version 5.00\r\n"));
+			assertTrue(patch.contains("\r\n[" + CURRENT + "]\r\n"));
+			assertTrue(patch.contains("\r\n\"MyNumber\"=dword:0000002a\r\n"));
+			assertTrue(patch.contains("\r\n\"MyOldValue\"=-\r\n"));
+			assertTrue(patch.contains("\r\n@=-\r\n"));
+			assertTrue(patch.contains("\r\n[" + CURRENT + "\\Child1]\r\n\"MyPath\"=hex(2):25,00,54,00,45,00,4d,00,50,00,25,00,00,00\r\n"));
+			assertTrue(patch.contains("\r\n[-" + CURRENT + "\\Child2\\GrandChild]\r\n"));
+			assertTrue(patch.contains("\r\n[" + CURRENT + "\\Child3]\r\n\r\n[" + CURRENT + "\\Child3\\GrandChild]\r\n\"MyValue\"=\"New\"\r\n"));
+			assertTrue(!patch.contains(BASELINE));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryPath;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class RegistryPathTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@Test
+	public void testNavigation() {
+		
+		// DO
+		RegistryPath path = RegistryPath.of("HKCU/Software/MyExampleSoftware/");
+		RegistryPath child = path.resolve("Child1");
+		RegistryPath grandChild = path.resolve("Child1/GrandChild");
+		
+		// TEST RESULT
+		assertEquals("HKCU\\Software\\MyExampleSoftware", path.toString());
+		assertEquals("MyExampleSoftware", path.getName());
+		assertEquals(3, path.getDepth());
+		assertEquals("HKCU\\Software", path.getParent().toString());
+		assertEquals("HKCU", path.getRoot().getName());
+		assertTrue(path.getRoot().isRoot());
+		assertNull(path.getRoot().getParent());
+		
+		// both share the path of their parent
+		assertSame(path, child.getParent());
+		assertSame(path, grandChild.getParent().getParent());
+		assertEquals("HKCU\\Software\\MyExampleSoftware\\Child1\\GrandChild", grandChild.toString());
+		assertEquals(5, grandChild.getDepth());
+		
+		assertTrue(grandChild.startsWith(path));
+		assertTrue(path.startsWith(path));
+		assertFalse(path.startsWith(child));
+		assertFalse(RegistryPath.of(KEY + "2").startsWith(path));
+	}
+	
+	@Test
+	public void testEquals() {
+		
+		// DO
+		RegistryPath path = RegistryPath.of(KEY);
+		RegistryPath alias = RegistryPath.of("hkcu\\SOFTWARE\\myexamplesoftware");
+		
+		// TEST RESULT
+		assertEquals(path, alias);
+		assertEquals(path.hashCode(), alias.hashCode());
+		assertEquals("hkcu\\SOFTWARE\\myexamplesoftware", alias.toString());
+		assertEquals(path.resolve("Child1"), alias.resolve("CHILD1"));
+		assertTrue(alias.resolve("Child1").startsWith(path));
+		assertNotEquals(path, RegistryPath.of(Registry.HKEY_LOCAL_MACHINE + "\\Software\\MyExampleSoftware"));
+		assertNotEquals(path, path.getParent());
+		assertNotEquals(path, path.resolve("Child1"));
+	}
+	
+	@Test
+	public void testKey() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			backend.setValue(KEY + "\\Child1", "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			backend.setKey(KEY + "\\Child2");
+			
+			// DO
+			RegistryKey key = backend.getKey(KEY);
+			
+			// TEST RESULT
+			assertEquals(RegistryPath.of(KEY), key.getRegistryPath());
+			assertEquals("MyExampleSoftware", key.getName());
+			assertEquals(Registry.HKEY_CURRENT_USER + "\\Software", key.getParent().getPath());
+			assertEquals(KEY + "\\Child2", key.getChild("child2").getPath());
+			assertEquals(2, key.getChilds().size());
+			assertEquals(key.getRegistryPath(), key.getChild("Child1").getRegistryPath().getParent());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistrySessionPool;
+
+@DisabledOnOs(OS.WINDOWS)
+class RegistrySessionPoolTest {
+	
+	private static final String SHELL = "src/test/resources/fake-reg-shell.sh";
+	private static final String COMMAND_FORMAT = "%1$s 2>&1; echo %2$s $?";
+	private static final String KEY = "HKEY_CURRENT_USER\\Software\\MyExampleSoftware";
+	
+	private static final RegistrySessionPool createPool(int size, long idleTimeout, TimeUnit unit) {
+		
+		return new RegistrySessionPool(Arrays.asList("sh", SHELL), COMMAND_FORMAT, size, idleTimeout, unit);
+	}
+	
+	@Test
+	public void testReuse() {
+		
+		try(RegistrySessionPool pool = createPool(1, 1, TimeUnit.MINUTES)) {
+			
+			// DO
+			String first = pool.execute("echo $$");
+			String second = pool.execute("echo $$");
+			
+			// TEST RESULT
+			assertEquals(first, second);
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testErrors() {
+		
+		try(RegistrySessionPool pool = createPool(1, 1, TimeUnit.MINUTES)) {
+			
+			// SETUP
+			String pid = pool.execute("echo $$");
+			
+			// TEST RESULT
+			IOException exception = assertThrows(IOException.class, () -> pool.execute("reg query \"HKEY_CURRENT_USER\\Missing\""));
+			assertEquals("ERROR: The system was unable to find the specified registry key or value.", exception.getMessage());
+			assertEquals(pid, pool.execute("echo $$"));
+			
+			// A session that dies while executing a command is replaced
+			assertThrows(IOException.class, () -> pool.execute("exit 0"));
+			assertNotEquals(pid, pool.execute("echo $$"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testIdleTimeout() {
+		
+		try(RegistrySessionPool pool = createPool(1, 50, TimeUnit.MILLISECONDS)) {
+			
+			// SETUP
+			String pid = pool.execute("echo $$");
+			
+			// DO
+			Thread.sleep(200);
+			pool.checkHealth();
+			
+			// TEST RESULT
+			assertNotEquals(pid, pool.execute("echo $$"));
+			
+		} catch(IOException | InterruptedException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testBackend() {
+		
+		try(RegistrySessionPool pool = createPool(2, 1, TimeUnit.MINUTES)) {
+			
+			// DO
+			ProcessRegistryBackend backend = new ProcessRegistryBackend(pool);
+			RegistryKey key = backend.getKey(KEY);
+			
+			// TEST RESULT
+			assertEquals(KEY, key.getPath());
+			assertEquals(2, key.getValues().size());
+			assertEquals("Hello World!", key.getValueByName("MyValue").getValue());
+			assertEquals(42, key.getValueByName("MyNumber").getValue());
+			assertNotNull(key.getDefaultValue());
+			assertEquals("Default", key.getDefaultValue().getValue());
+			assertThrows(IOException.class, () -> backend.deleteKey(KEY));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
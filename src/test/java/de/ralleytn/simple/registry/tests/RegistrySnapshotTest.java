@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.RegFile;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistrySnapshot;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class RegistrySnapshotTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	@Test
+	public void testParse() {
+		
+		try {
+			
+			// SETUP
+			String output = new String(Files.readAllBytes(Paths.get("src/test/resources/reg-query-s.txt")), StandardCharsets.UTF_8);
+			List<String> commands = new ArrayList<>();
+			Registry.setBackend(new ProcessRegistryBackend(command -> {
+				
+				commands.add(command);
+				return output;
+			}));
+			
+			// DO
+			RegistrySnapshot snapshot = Registry.snapshot("HKCU/Software/MyExampleSoftware/");
+			RegistryKey root = snapshot.getRoot();
+			
+			// TEST RESULT
+			// the name of the default value is only asked for once
+			assertEquals(Arrays.asList("reg query \"HKCU\\Software\\MyExampleSoftware\" /ve", "reg query \"HKCU\\Software\\MyExampleSoftware\" /s"), commands);
+			assertEquals(4, snapshot.getSize());
+			assertEquals(KEY, root.getPath());
+			assertEquals(6, root.getValues().size());
+			assertEquals("Default", root.getDefaultValue().getValue());
+			assertEquals("Hello    World | again", root.getValueByName("MyValue").getValue());
+			assertEquals(42, root.getValueByName("My    Spaced    Name").getValue());
+			assertNull(root.getValueByName("MyEmptyValue").getValue());
+			assertEquals(Arrays.asList("A", "B", "C"), root.getValueByName("MyList").getValue());
+			assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF}, (byte[])root.getValueByName("MyBinary").getValue());
+			
+			RegistryKey child = root.getChild("CHILD1");
+			assertEquals(0x100000010L, child.getValueByName("MyQword").getValue());
+			assertNull(child.getDefaultValue());
+			assertEquals(KEY, child.getParent().getPath());
+			assertEquals(KEY + "\\Child1\\GrandChild", child.getChild("grandchild").getPath());
+			assertEquals(2, root.getChilds().size());
+			assertNull(root.getChild("Child3"));
+			assertEquals("C:\\Program Files\\MyExampleSoftware", snapshot.getValue(KEY + "\\Child2", "MyPath").getRawValue());
+			
+			// only one process for the whole tree
+			assertEquals(2, commands.size());
+			Registry.snapshot(KEY);
+			assertEquals(3, commands.size());
+			assertThrows(UnsupportedOperationException.class, () -> root.setValue("MyValue", RegistryValue.Type.REG_SZ, '\0', "Changed"));
+			assertThrows(IOException.class, () -> snapshot.getKey(KEY + "\\Child3"));
+			
+			// every key gets its own copies, so the snapshot cannot be changed through them
+			assertNotSame(root.getValueByName("MyValue"), snapshot.getRoot().getValueByName("MyValue"));
+			assertNotSame(snapshot.getValue(KEY, "MyValue"), snapshot.getValue(KEY, "MyValue"));
+			assertNotSame(root.getDefaultValue(), snapshot.getDefaultValue(KEY));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testTranslatedDefaultValue() {
+		
+		try {
+			
+			// SETUP
+			String output = "\r\n" + KEY + "\r\n    (Standard)    REG_SZ    Default\r\n    (Default)    REG_SZ    Not the default value\r\n";
+			Registry.setBackend(new ProcessRegistryBackend(command -> output));
+			
+			// DO
+			RegistryKey root = Registry.snapshot(KEY).getRoot();
+			ByteArrayOutputStream file = new ByteArrayOutputStream();
+			RegFile.write(root, file);
+			String reg = new String(file.toByteArray(), StandardCharsets.UTF_16LE);
+			
+			// TEST RESULT
+			assertEquals("Default", root.getDefaultValue().getValue());
+			assertTrue(root.getDefaultValue().isDefaultValue());
+			assertFalse(root.getValueByName("(Default)").isDefaultValue());
+			assertTrue(reg.contains("@=\"Default\""));
+			assertTrue(reg.contains("\"(Default)\"=\"Not the default value\""));
+			assertFalse(reg.contains("(Standard)"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testCopy() {
+		
+		try {
+			
+			// SETUP
+			Registry.setBackend(new MemoryRegistryBackend());
+			Registry.setKey(KEY + "\\Child1\\GrandChild");
+			Registry.setValue(KEY + "\\Child1", "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			Registry.setDeafultValue(KEY, RegistryValue.Type.REG_SZ, '\0', "Default");
+			
+			// DO
+			RegistrySnapshot snapshot = Registry.snapshot(KEY);
+			Registry.deleteKey(KEY);
+			
+			// TEST RESULT
+			assertEquals(3, snapshot.getSize());
+			assertTrue(snapshot.containsKey(KEY + "\\child1\\grandchild"));
+			assertEquals("Default", snapshot.getRoot().getDefaultValue().getValue());
+			assertEquals("Hello World!", snapshot.getRoot().getChild("Child1").getValueByName("MyValue").getValue());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryBackend;
+import de.ralleytn.simple.registry.RegistryBatch;
+import de.ralleytn.simple.registry.RegistryDiff;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistrySnapshot;
+import de.ralleytn.simple.registry.RegistryTransaction;
+import de.ralleytn.simple.registry.RegistryValue;
+
+class RegistryTransactionTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	private MemoryRegistryBackend backend;
+	private File journal;
+	
+	@BeforeEach
+	public void setUp() {
+		
+		try {
+			
+			this.backend = new MemoryRegistryBackend();
+			this.backend.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			this.backend.setValue(KEY, "MyNumber", RegistryValue.Type.REG_DWORD, '\0', "0x2a");
+			this.backend.setDefaultValue(KEY, RegistryValue.Type.REG_SZ, '\0', "Default");
+			this.backend.setValue(KEY + "\\Child1", "MyList", RegistryValue.Type.REG_MULTI_SZ, '|', "A|B");
+			this.backend.setValue(KEY + "\\Child1\\GrandChild", "MyPath", RegistryValue.Type.REG_EXPAND_SZ, '\0', "%TEMP%");
+			Registry.setBackend(this.backend);
+			
+			this.journal = File.createTempFile("transaction", ".reg");
+			this.journal.delete();
+			this.journal.deleteOnExit();
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		
+		Registry.resetBackend();
+	}
+	
+	private final RegistryTransaction createTransaction() {
+		
+		return new RegistryTransaction(this.journal)
+			.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Changed")
+			.setValue(KEY, "MyNewValue", RegistryValue.Type.REG_SZ, '\0', "New")
+			.deleteValue(KEY, "MyNumber")
+			.deleteDefaultValue(KEY)
+			.deleteKey(KEY + "\\Child1")
+			.setValue(KEY + "\\Child2\\GrandChild", "MyValue", RegistryValue.Type.REG_SZ, '\0', "New");
+	}
+	
+	@Test
+	public void testCommit() {
+		
+		try {
+			
+			// DO
+			List<RegistryBatch.Operation> operations = this.createTransaction().commit();
+			
+			// TEST RESULT
+			assertEquals(6, operations.size());
+			assertTrue(operations.stream().allMatch(RegistryBatch.Operation::isApplied));
+			assertFalse(this.journal.exists());
+			assertEquals("Changed", this.backend.getValue(KEY, "MyValue").getValue());
+			assertEquals("New", this.backend.getValue(KEY + "\\Child2\\GrandChild", "MyValue").getValue());
+			assertEquals(1, this.backend.getKey(KEY).getChilds().size());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testRollback() {
+		
+		try {
+			
+			// SETUP
+			RegistrySnapshot before = this.backend.snapshot(KEY);
+			RegistryTransaction transaction = this.createTransaction().setValue(KEY, "MyBrokenNumber", RegistryValue.Type.REG_DWORD, '\0', "0xZZ");
+			
+			// DO
+			IOException exception = assertThrows(IOException.class, transaction::commit);
+			
+			// TEST RESULT
+			assertTrue(exception.getMessage().contains("MyBrokenNumber"));
+			assertTrue(RegistryDiff.compare(before.getRoot(), this.backend.getKey(KEY)).isEmpty());
+			assertEquals("%TEMP%", this.backend.getValue(KEY + "\\Child1\\GrandChild", "MyPath").getRawValue());
+			assertFalse(this.journal.exists());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testRecover() {
+		
+		try {
+			
+			// SETUP
+			RegistrySnapshot before = this.backend.snapshot(KEY);
+			
+			// the changes are applied one after another, then the process "dies" before it can roll them back
+			Registry.setBackend(new CrashingBackend(this.backend));
+			assertThrows(IOException.class, this.createTransaction().setValue(KEY, "MyBrokenNumber", RegistryValue.Type.REG_DWORD, '\0', "0xZZ")::commit);
+			assertTrue(this.journal.exists());
+			assertFalse(RegistryDiff.compare(before.getRoot(), this.backend.getKey(KEY)).isEmpty());
+			Registry.setBackend(this.backend);
+			
+			// DO
+			boolean recovered = RegistryTransaction.recover(this.journal);
+			
+			// TEST RESULT
+			assertTrue(recovered);
+			assertFalse(RegistryTransaction.recover(this.journal));
+			assertTrue(RegistryDiff.compare(before.getRoot(), this.backend.getKey(KEY)).isEmpty());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	/**
+	 * Can not import files, just like a process that has been killed.
+	 */
+	private static final class CrashingBackend implements RegistryBackend {
+		
+		private final RegistryBackend backend;
+		
+		private CrashingBackend(RegistryBackend backend) {
+			
+			this.backend = backend;
+		}
+		
+		@Override
+		public final boolean isSupported() {
+			
+			return true;
+		}
+		
+		@Override
+		public final RegistryKey getKey(String path) throws IOException {
+			
+			return this.backend.getKey(path);
+		}
+		
+		@Override
+		public final RegistryValue getValue(String path, String name) throws IOException {
+			
+			return this.backend.getValue(path, name);
+		}
+		
+		@Override
+		public final RegistrySnapshot snapshot(String path) throws IOException {
+			
+			return this.backend.snapshot(path);
+		}
+		
+		@Override
+		public final void setKey(String path) throws IOException {
+			
+			this.backend.setKey(path);
+		}
+		
+		@Override
+		public final void deleteKey(String path) throws IOException {
+			
+			this.backend.deleteKey(path);
+		}
+		
+		@Override
+		public final void setValue(String path, String name, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+			
+			this.backend.setValue(path, name, type, seperator, rawValue);
+		}
+		
+		@Override
+		public final void setDefaultValue(String path, RegistryValue.Type type, char seperator, String rawValue) throws IOException {
+			
+			this.backend.setDefaultValue(path, type, seperator, rawValue);
+		}
+		
+		@Override
+		public final void deleteValue(String path, String name) throws IOException {
+			
+			this.backend.deleteValue(path, name);
+		}
+		
+		@Override
+		public final void deleteDefaultValue(String path) throws IOException {
+			
+			this.backend.deleteDefaultValue(path);
+		}
+		
+		@Override
+		public final void deleteAllValues(String path) throws IOException {
+			
+			this.backend.deleteAllValues(path);
+		}
+		
+		@Override
+		public final void importFile(File file) throws IOException {
+			
+			throw new IOException("Killed");
+		}
+		
+		@Override
+		public final void exportKey(String path, File exportFile) throws IOException {
+			
+			this.backend.exportKey(path, exportFile);
+		}
+	}
+}
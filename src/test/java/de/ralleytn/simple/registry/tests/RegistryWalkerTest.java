@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistryWalker;
+
+class RegistryWalkerTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	private MemoryRegistryBackend backend;
+	
+	@BeforeEach
+	public void setUp() {
+		
+		try {
+			
+			this.backend = new MemoryRegistryBackend();
+			this.backend.setKey(KEY + "\\A\\A1");
+			this.backend.setKey(KEY + "\\A\\A2\\A21");
+			this.backend.setKey(KEY + "\\B\\B1");
+			this.backend.setKey(KEY + "\\C");
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	private static final List<String> names(Stream<RegistryKey> keys) {
+		
+		try(Stream<RegistryKey> stream = keys) {
+			
+			return stream.map(RegistryKey::getName).collect(Collectors.toList());
+		}
+	}
+	
+	@Test
+	public void testOrder() {
+		
+		// SETUP
+		List<String> depthFirst = Arrays.asList("MyExampleSoftware", "A", "A1", "A2", "A21", "B", "B1", "C");
+		List<String> breadthFirst = Arrays.asList("MyExampleSoftware", "A", "B", "C", "A1", "A2", "B1", "A21");
+		
+		// TEST RESULT
+		assertEquals(depthFirst, names(new RegistryWalker(this.backend, KEY).stream()));
+		assertEquals(depthFirst, names(new RegistryWalker(this.backend, KEY).setParallelism(4).stream()));
+		assertEquals(breadthFirst, names(new RegistryWalker(this.backend, KEY).setOrder(RegistryWalker.Order.BREADTH_FIRST).stream()));
+		assertEquals(breadthFirst, names(new RegistryWalker(this.backend, KEY).setOrder(RegistryWalker.Order.BREADTH_FIRST).setParallelism(3).stream()));
+	}
+	
+	@Test
+	public void testLimits() {
+		
+		try {
+			
+			// SETUP
+			List<String> visited = new ArrayList<>();
+			
+			// DO
+			new RegistryWalker(this.backend, KEY).setParallelism(2).walk((key, depth) -> {
+				
+				visited.add(key.getName() + depth);
+				
+				// skip the subkeys of "A"
+				return !key.getName().equals("A");
+			});
+			
+			// TEST RESULT
+			assertEquals(Arrays.asList("MyExampleSoftware0", "A1", "B1", "B12", "C1"), visited);
+			assertEquals(Arrays.asList("MyExampleSoftware", "A", "B", "C"), names(new RegistryWalker(this.backend, KEY).setMaxDepth(1).stream()));
+			assertEquals(Arrays.asList("MyExampleSoftware", "A", "A2", "A21", "C"), names(new RegistryWalker(this.backend, KEY).setFilter(path -> !path.endsWith("A1") && !path.contains("\\B")).stream()));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testCancel() {
+		
+		try {
+			
+			// SETUP
+			RegistryWalker walker = new RegistryWalker(this.backend, KEY).setParallelism(4);
+			List<String> visited = new ArrayList<>();
+			
+			// DO
+			walker.walk((key, depth) -> {
+				
+				visited.add(key.getName());
+				
+				if(key.getName().equals("A1")) {
+					
+					walker.cancel();
+				}
+				
+				return true;
+			});
+			
+			// TEST RESULT
+			assertEquals(Arrays.asList("MyExampleSoftware", "A", "A1"), visited);
+			assertThrows(UncheckedIOException.class, () -> names(new RegistryWalker(this.backend, KEY + "\\Missing").stream()));
+			assertEquals(0, names(new RegistryWalker(this.backend, KEY + "\\Missing").setIgnoreErrors(true).stream()).size());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.CachingRegistry;
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryChange;
+import de.ralleytn.simple.registry.RegistryValue;
+import de.ralleytn.simple.registry.RegistryWatcher;
+
+class RegistryWatcherTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	@Test
+	public void testPoll() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			backend.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			backend.setValue(KEY, "MyOldValue", RegistryValue.Type.REG_SZ, '\0', "Old");
+			backend.setValue(KEY + "\\Child1", "MyValue", RegistryValue.Type.REG_DWORD, '\0', "0x1");
+			backend.setKey(KEY + "\\Child2\\GrandChild");
+			List<String> changes = new ArrayList<>();
+			
+			try(RegistryWatcher watcher = new RegistryWatcher(backend)) {
+				
+				watcher.setInterval(10, 80, TimeUnit.MILLISECONDS);
+				RegistryWatcher.Watch watch = watcher.watch(KEY, true, list -> list.forEach(change -> changes.add(change.getKind() + " " + change.getPath().substring(KEY.length()) + " " + change.getName())));
+				
+				// DO
+				watcher.poll();
+				watcher.poll();
+				
+				// TEST RESULT
+				assertTrue(changes.isEmpty());
+				assertEquals(40, watch.getInterval(TimeUnit.MILLISECONDS));
+				
+				// DO
+				backend.setValue(KEY, "myvalue", RegistryValue.Type.REG_SZ, '\0', "Changed");
+				backend.deleteValue(KEY, "MyOldValue");
+				backend.setValue(KEY, "MyNewValue", RegistryValue.Type.REG_SZ, '\0', "New");
+				backend.setValue(KEY + "\\Child1", "MyValue", RegistryValue.Type.REG_DWORD, '\0', "0x2");
+				backend.setValue(KEY + "\\Child1", "MyTemporaryValue", RegistryValue.Type.REG_DWORD, '\0', "0x2");
+				backend.deleteValue(KEY + "\\Child1", "MyTemporaryValue");
+				backend.deleteKey(KEY + "\\Child2");
+				backend.setValue(KEY + "\\Child3\\GrandChild", "MyValue", RegistryValue.Type.REG_SZ, '\0', "New");
+				watcher.poll();
+				
+				// TEST RESULT
+				assertEquals(6, changes.size());
+				assertTrue(changes.contains("VALUE_CHANGED  MyValue"));
+				assertTrue(changes.contains("VALUE_REMOVED  MyOldValue"));
+				assertTrue(changes.contains("VALUE_ADDED  MyNewValue"));
+				assertTrue(changes.contains("VALUE_CHANGED \\Child1 MyValue"));
+				assertTrue(changes.contains("KEY_REMOVED \\Child2 null"));
+				assertTrue(changes.contains("KEY_ADDED \\Child3 null"));
+				assertEquals(10, watch.getInterval(TimeUnit.MILLISECONDS));
+				
+				// DO
+				changes.clear();
+				backend.deleteKey(KEY);
+				watcher.poll();
+				watcher.poll();
+				backend.setKey(KEY);
+				watcher.poll();
+				
+				// TEST RESULT
+				assertEquals(2, changes.size());
+				assertEquals("KEY_REMOVED  null", changes.get(0));
+				assertEquals("KEY_ADDED  null", changes.get(1));
+			}
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testBackgroundThread() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			CachingRegistry cache = new CachingRegistry(backend, 100, 0, TimeUnit.SECONDS);
+			backend.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Hello World!");
+			backend.setKey(KEY + "\\Child1");
+			CountDownLatch latch = new CountDownLatch(1);
+			List<RegistryChange> changes = new ArrayList<>();
+			
+			try(RegistryWatcher watcher = new RegistryWatcher(cache)) {
+				
+				watcher.setInterval(5, 20, TimeUnit.MILLISECONDS);
+				watcher.watch(KEY, false, list -> {
+					
+					changes.addAll(list);
+					latch.countDown();
+				});
+				watcher.start();
+				
+				// DO
+				Thread.sleep(50);
+				backend.setValue(KEY, "MyValue", RegistryValue.Type.REG_SZ, '\0', "Changed");
+				backend.setKey(KEY + "\\Child1\\GrandChild");
+				
+				// TEST RESULT
+				assertTrue(latch.await(5, TimeUnit.SECONDS));
+				assertEquals(1, changes.size());
+				assertEquals(RegistryChange.Kind.VALUE_CHANGED, changes.get(0).getKind());
+				assertEquals("Hello World!", changes.get(0).getOldValue().getValue());
+				assertEquals("Changed", changes.get(0).getNewValue().getValue());
+			}
+			
+		} catch(IOException | InterruptedException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testLocalizedDelete() {
+		
+		try {
+			
+			// SETUP
+			AtomicBoolean deleted = new AtomicBoolean();
+			ProcessRegistryBackend backend = new ProcessRegistryBackend(command -> {
+				
+				if(command.equals("reg query \"HKEY_CURRENT_USER\\Software\"")) {
+					
+					return "\r\nHKEY_CURRENT_USER\\Software\r\n\r\n" + (deleted.get() ? "" : KEY + "\r\n");
+				}
+				
+				if(command.equals("reg query \"" + KEY + "\"") && !deleted.get()) {
+					
+					return "\r\n" + KEY + "\r\n    MyValue    REG_SZ    Hello World!\r\n";
+				}
+				
+				// "reg" as it is on a German system
+				throw new IOException("FEHLER: Der angegebene Registrierungsschl\u00FCssel bzw. Wert wurde nicht gefunden.");
+			});
+			
+			List<RegistryChange.Kind> changes = new ArrayList<>();
+			
+			try(RegistryWatcher watcher = new RegistryWatcher(backend)) {
+				
+				watcher.watch(KEY, false, list -> list.forEach(change -> changes.add(change.getKind())));
+				watcher.poll();
+				
+				// DO
+				deleted.set(true);
+				watcher.poll();
+				
+				// TEST RESULT
+				assertEquals(1, changes.size());
+				assertEquals(RegistryChange.Kind.KEY_REMOVED, changes.get(0));
+			}
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+}
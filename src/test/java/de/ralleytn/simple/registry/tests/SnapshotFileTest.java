@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.registry.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.registry.MemoryRegistryBackend;
+import de.ralleytn.simple.registry.ProcessRegistryBackend;
+import de.ralleytn.simple.registry.Registry;
+import de.ralleytn.simple.registry.RegistryDiff;
+import de.ralleytn.simple.registry.RegistryKey;
+import de.ralleytn.simple.registry.RegistrySnapshot;
+import de.ralleytn.simple.registry.RegistryValue;
+import de.ralleytn.simple.registry.SnapshotFile;
+
+class SnapshotFileTest {
+	
+	private static final String KEY = Registry.HKEY_CURRENT_USER + "\\Software\\MyExampleSoftware";
+	
+	private static final SnapshotFile write(RegistrySnapshot snapshot) throws IOException {
+		
+		File file = File.createTempFile("registry", ".snapshot");
+		file.deleteOnExit();
+		
+		try(OutputStream output = new FileOutputStream(file)) {
+			
+			snapshot.write(output);
+		}
+		
+		return new SnapshotFile(file);
+	}
+	
+	@Test
+	public void testRead() {
+		
+		try {
+			
+			// SETUP
+			String output = new String(Files.readAllBytes(Paths.get("src/test/resources/reg-query-s.txt")), StandardCharsets.UTF_8);
+			RegistrySnapshot snapshot = new ProcessRegistryBackend(command -> output).snapshot(KEY);
+			
+			// DO
+			SnapshotFile file = write(snapshot);
+			RegistryKey root = file.getRoot();
+			
+			// TEST RESULT
+			assertTrue(RegistryDiff.compare(snapshot.getRoot(), root).isEmpty());
+			assertEquals(4, file.getSize());
+			assertEquals(KEY, file.getPath());
+			assertEquals(6, root.getValues().size());
+			assertEquals("Default", root.getDefaultValue().getValue());
+			assertEquals("Hello    World | again", root.getValueByName("MyValue").getValue());
+			assertEquals(42, root.getValueByName("My    Spaced    Name").getInt());
+			assertNull(root.getValueByName("MyEmptyValue").getValue());
+			assertEquals(Arrays.asList("A", "B", "C"), root.getValueByName("MyList").getStrings());
+			assertArrayEquals(new byte[] {0x00, 0x7F, (byte)0x80, (byte)0xFF}, (byte[])root.getValueByName("MyBinary").getValue());
+			assertEquals(0x100000010L, file.getValue("hkcu\\software\\myexamplesoftware\\child1", "myqword").getLong());
+			assertEquals(KEY + "\\Child1\\GrandChild", file.getKey(KEY + "\\CHILD1\\grandchild").getPath());
+			assertEquals("C:\\Program Files\\MyExampleSoftware", file.getValue(KEY + "\\Child2", "MyPath").getRawValue());
+			assertFalse(file.containsKey(KEY + "\\Child3"));
+			assertThrows(IOException.class, () -> file.getKey(KEY + "\\Child3"));
+			assertThrows(IOException.class, () -> file.getValue(KEY, "MyMissingValue"));
+			assertThrows(UnsupportedOperationException.class, () -> root.setValue("MyValue", RegistryValue.Type.REG_SZ, '\0', "Changed"));
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testManyKeys() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			
+			for(int index = 0; index < 500; index++) {
+				
+				backend.setValue(KEY + "\\Child" + index, "MyNumber", RegistryValue.Type.REG_DWORD, '\0', "0x" + Integer.toHexString(index));
+			}
+			
+			backend.setValue(KEY, "MyBigNumber", RegistryValue.Type.REG_QWORD, '\0', "0x7fffffffffffffff");
+			
+			// DO
+			SnapshotFile file = write(backend.snapshot(KEY));
+			
+			// TEST RESULT
+			assertEquals(501, file.getSize());
+			assertEquals(500, file.getRoot().getChilds().size());
+			assertEquals(Long.MAX_VALUE, file.getValue(KEY, "MyBigNumber").getLong());
+			
+			for(int index = 0; index < 500; index++) {
+				
+				assertEquals(index, file.getKey(KEY + "\\child" + index).getValueByName("MyNumber").getInt());
+			}
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testNonAsciiNames() {
+		
+		try {
+			
+			// SETUP
+			MemoryRegistryBackend backend = new MemoryRegistryBackend();
+			backend.setValue(KEY + "\\Stra\u00DFe", "Gr\u00F6\u00DFe", RegistryValue.Type.REG_DWORD, '\0', "42");
+			backend.setKey(KEY + "\\\u00C4pfel");
+			
+			// DO
+			RegistrySnapshot snapshot = backend.snapshot(KEY);
+			SnapshotFile file = write(snapshot);
+			
+			// TEST RESULT
+			// the sharp s has no upper case letter of its own and must not become "SS"
+			assertEquals(KEY + "\\Stra\u00DFe", file.getKey("hkcu\\software\\myexamplesoftware\\STRA\u00DFE").getPath());
+			assertEquals(KEY + "\\\u00C4pfel", file.getKey(KEY + "\\\u00E4PFEL").getPath());
+			assertEquals(42, file.getValue(KEY + "\\Stra\u00DFe", "GR\u00D6\u00DFE").getInt());
+			assertEquals(42, snapshot.getValue(KEY + "\\stra\u00DFe", "gr\u00F6\u00DFe").getInt());
+			
+		} catch(IOException exception) {
+			
+			fail(exception.getClass().getName() + ": " + exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testInvalidFile() {
+		
+		assertThrows(IOException.class, () -> {
+			
+			File file = File.createTempFile("registry", ".snapshot");
+			file.deleteOnExit();
+			Files.write(file.toPath(), "Windows Registry Editor Version 5.00".getBytes(StandardCharsets.UTF_8));
+			new SnapshotFile(file);
+		});
+	}
+}
@@ -0,0 +1,23 @@
+#!/bin/sh
+# Emulates a shell that only knows a few "reg" commands.
+# Used to test the RegistrySessionPool without Windows.
+
+reg() {
+	if [ "$1" = "query" ] && [ "$2" = 'HKEY_CURRENT_USER\Software\MyExampleSoftware' ]; then
+		if [ "$3" = "/ve" ]; then
+			printf '\r\nHKEY_CURRENT_USER\\Software\\MyExampleSoftware\r\n    (Default)    REG_SZ    Default\r\n\r\n'
+		else
+			printf '\r\nHKEY_CURRENT_USER\\Software\\MyExampleSoftware\r\n    MyValue    REG_SZ    Hello World!\r\n    MyNumber    REG_DWORD    0x2a\r\n\r\nHKEY_CURRENT_USER\\Software\\MyExampleSoftware\\Child1\r\n'
+		fi
+		return 0
+	fi
+
+	echo "ERROR: The system was unable to find the specified registry key or value." >&2
+	return 1
+}
+
+echo "Fake Shell"
+
+while IFS= read -r line; do
+	eval "$line"
+done